@@ -0,0 +1,131 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure how event processing scales with the number of faces: in each round every face of the fleet expresses an
+ * interest and then receives its data, and the round ends once every callback has run. Faces are driven by a thread
+ * each ({@link MockEventLoop#threadPerFace()}; virtual threads on Java 21, which 100k faces require), by a loop
+ * sharing one thread per core, or by the benchmark thread polling every face in turn.
+ * <p>
+ * Faces use bare {@link MockTransport}s rather than MockFace so that key chain setup does not dominate the fleet
+ * startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FaceFleetBenchmark {
+  private static final double LIFETIME_MS = TimeUnit.HOURS.toMillis(1);
+  private static final MockTransport.OnSendBlockSignal DISCARD = new MockTransport.OnSendBlockSignal() {
+    @Override
+    public void emit(ByteBuffer buffer) {
+      // interests leave the face and go nowhere
+    }
+  };
+
+  @Param({"1000", "10000", "100000"})
+  private int faces;
+
+  @Param({"threadPerFace", "sharedLoop", "polling"})
+  private String mode;
+
+  private Face[] fleet;
+  private MockTransport[] transports;
+  private Interest[] interests;
+  private ByteBuffer[] data;
+  private ExecutorService pool;
+  private MockEventLoop loop;
+  private volatile CountDownLatch remaining;
+  private final OnData onData = new OnData() {
+    @Override
+    public void onData(Interest interest, Data data) {
+      remaining.countDown();
+    }
+  };
+
+  @Setup
+  public void setup() {
+    if ("threadPerFace".equals(mode)) {
+      loop = MockEventLoop.threadPerFace(0);
+    } else if ("sharedLoop".equals(mode)) {
+      pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      loop = new MockEventLoop(pool, 0);
+    }
+
+    fleet = new Face[faces];
+    transports = new MockTransport[faces];
+    interests = new Interest[faces];
+    data = new ByteBuffer[faces];
+    for (int i = 0; i < faces; i++) {
+      transports[i] = new MockTransport();
+      transports[i].setOnSendBlock(DISCARD);
+      fleet[i] = new Face(transports[i], null);
+      Name name = new Name("/benchmark/face" + i).appendSegment(0);
+      interests[i] = new Interest(name).setInterestLifetimeMilliseconds(LIFETIME_MS);
+      data[i] = new Data(name).wireEncode().buf();
+      if (loop != null) {
+        loop.attach(fleet[i], transports[i]);
+      }
+    }
+  }
+
+  @TearDown
+  public void teardown() {
+    if (loop != null) {
+      loop.close();
+    }
+    if (pool != null) {
+      pool.shutdownNow();
+    }
+  }
+
+  @Benchmark
+  public void round() throws Exception {
+    remaining = new CountDownLatch(faces);
+    for (int i = 0; i < faces; i++) {
+      fleet[i].expressInterest(interests[i], onData);
+    }
+    for (int i = 0; i < faces; i++) {
+      transports[i].receive(data[i]);
+    }
+    if (loop == null) {
+      for (Face face : fleet) {
+        face.processEvents();
+      }
+    }
+    remaining.await();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure NDNLPv2 fragmentation and reassembly of packets from 1 KB to 1 MB over Ethernet and jumbo frame MTUs. Run
+ * with {@code -PjmhProfilers=gc} to see the memory allocated per packet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LinkServiceBenchmark {
+  @Param({"1024", "16384", "131072", "1048576"})
+  private int size;
+
+  @Param({"1500", "8800"})
+  private int mtu;
+
+  private LinkService sender;
+  private LinkService receiver;
+  private ByteBuffer packet;
+  private List<ByteBuffer> frames;
+
+  @Setup
+  public void setup() {
+    LinkService.Options options = new LinkService.Options().setMtu(mtu);
+    sender = new LinkService(options);
+    receiver = new LinkService(options);
+    byte[] bytes = new byte[size];
+    bytes[0] = 6; // a Data packet, as far as the link service can tell
+    packet = ByteBuffer.wrap(bytes);
+    frames = sender.encode(packet);
+  }
+
+  @Benchmark
+  public List<ByteBuffer> fragment() {
+    return sender.encode(packet);
+  }
+
+  @Benchmark
+  public ByteBuffer reassemble() {
+    ByteBuffer reassembled = null;
+    for (ByteBuffer frame : frames) {
+      reassembled = receiver.decode(frame.duplicate());
+    }
+    return reassembled;
+  }
+
+  @Benchmark
+  public ByteBuffer roundTrip() {
+    ByteBuffer reassembled = null;
+    for (ByteBuffer frame : sender.encode(packet)) {
+      reassembled = receiver.decode(frame);
+    }
+    return reassembled;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure a full MockFace round trip: express an interest, let the face send it, inject the matching data and let
+ * the face dispatch it to the callback.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MockFaceBenchmark {
+  private MockFace face;
+  private MockTransport transport;
+  private Interest interest;
+  private ByteBuffer data;
+  private long received = 0;
+  private final OnData onData = new OnData() {
+    @Override
+    public void onData(Interest interest, Data data) {
+      received++;
+    }
+  };
+
+  @Setup
+  public void setup() {
+    face = new MockFace(new MockFace.Options());
+    transport = (MockTransport) face.getTransport();
+    Name name = new Name("/benchmark/data").appendSegment(0);
+    interest = new Interest(name).setInterestLifetimeMilliseconds(TimeUnit.SECONDS.toMillis(4));
+    data = new Data(name).wireEncode().buf();
+  }
+
+  @Benchmark
+  public long roundTrip() throws Exception {
+    face.expressInterest(interest, onData);
+    face.processEvents();
+    transport.receive(data);
+    face.processEvents();
+    return received;
+  }
+}
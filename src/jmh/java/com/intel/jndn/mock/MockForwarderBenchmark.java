@@ -0,0 +1,116 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.OnRegisterFailed;
+import net.named_data.jndn.OnRegisterSuccess;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure interest and data forwarding through a MockForwarder: in each round every consumer face expresses one
+ * interest, a single producer face answers them all and the consumers receive the data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MockForwarderBenchmark {
+  private static final Name PREFIX = new Name("/benchmark");
+  private static final int REGISTRATION_ATTEMPTS = 10;
+
+  @Param({"1", "10", "100"})
+  private int faces;
+
+  private Face producer;
+  private Face[] consumers;
+  private Interest[] interests;
+  private long received = 0;
+  private boolean registered = false;
+  private final OnData onData = new OnData() {
+    @Override
+    public void onData(Interest interest, Data data) {
+      received++;
+    }
+  };
+
+  @Setup
+  public void setup() throws Exception {
+    MockForwarder forwarder = new MockForwarder();
+    producer = forwarder.connect();
+    producer.registerPrefix(PREFIX, new OnInterestCallback() {
+      @Override
+      public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId,
+                             InterestFilter filter) {
+        try {
+          face.putData(new Data(interest.getName()));
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }, new OnRegisterFailed() {
+      @Override
+      public void onRegisterFailed(Name prefix) {
+        throw new IllegalStateException("Failed to register " + prefix);
+      }
+    }, new OnRegisterSuccess() {
+      @Override
+      public void onRegisterSuccess(Name prefix, long registeredPrefixId) {
+        registered = true;
+      }
+    });
+    for (int i = 0; i < REGISTRATION_ATTEMPTS && !registered; i++) {
+      producer.processEvents();
+    }
+    if (!registered) {
+      throw new IllegalStateException("Producer prefix was not registered");
+    }
+
+    consumers = new Face[faces];
+    interests = new Interest[faces];
+    for (int i = 0; i < faces; i++) {
+      consumers[i] = forwarder.connect();
+      interests[i] = new Interest(new Name(PREFIX).append("consumer" + i).appendSegment(0))
+          .setInterestLifetimeMilliseconds(TimeUnit.SECONDS.toMillis(4));
+    }
+  }
+
+  @Benchmark
+  public long forwardRound() throws Exception {
+    for (int i = 0; i < faces; i++) {
+      consumers[i].expressInterest(interests[i], onData);
+    }
+    producer.processEvents();
+    for (Face consumer : consumers) {
+      consumer.processEvents();
+    }
+    return received;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the lock-free {@link ReceiveQueue} with the synchronized list MockTransport used previously: several
+ * forwarder threads push a fixed number of blocks into one face while the benchmark thread drains them, as
+ * {@link MockTransport#processEvents()} would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReceiveQueueBenchmark {
+  private static final int BLOCKS_PER_PRODUCER = 100000;
+  private static final ByteBuffer BLOCK = ByteBuffer.allocate(64);
+
+  @Param({"lockFree", "locked"})
+  private String implementation;
+
+  @Param({"1", "4", "16"})
+  private int producers;
+
+  private ExecutorService executor;
+  private Queue queue;
+
+  /**
+   * Common view of the two implementations.
+   */
+  private interface Queue {
+    void offer(ByteBuffer block);
+
+    ByteBuffer poll();
+  }
+
+  /**
+   * The current implementation.
+   */
+  private static final class LockFreeQueue implements Queue {
+    private final ReceiveQueue queue = new ReceiveQueue();
+
+    @Override
+    public void offer(ByteBuffer block) {
+      queue.offer(block);
+    }
+
+    @Override
+    public ByteBuffer poll() {
+      return queue.poll();
+    }
+  }
+
+  /**
+   * The previous implementation: a linked list guarded by its own monitor, drained one block per lock acquisition.
+   */
+  private static final class LockedQueue implements Queue {
+    private final List<ByteBuffer> queue = new LinkedList<>();
+
+    @Override
+    public void offer(ByteBuffer block) {
+      synchronized (queue) {
+        queue.add(block);
+      }
+    }
+
+    @Override
+    public ByteBuffer poll() {
+      synchronized (queue) {
+        return queue.isEmpty() ? null : queue.remove(0);
+      }
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void startProducers() {
+    executor = Executors.newFixedThreadPool(producers);
+  }
+
+  @Setup(Level.Invocation)
+  public void createQueue() {
+    queue = "locked".equals(implementation) ? new LockedQueue() : new LockFreeQueue();
+  }
+
+  @TearDown(Level.Trial)
+  public void stopProducers() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public int receiveAndDrain() throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    for (int i = 0; i < producers; i++) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int j = 0; j < BLOCKS_PER_PRODUCER; j++) {
+            queue.offer(BLOCK.duplicate());
+          }
+        }
+      });
+    }
+
+    start.countDown();
+    int expected = producers * BLOCKS_PER_PRODUCER;
+    int received = 0;
+    while (received < expected) {
+      if (queue.poll() != null) {
+        received++;
+      }
+    }
+    return received;
+  }
+}
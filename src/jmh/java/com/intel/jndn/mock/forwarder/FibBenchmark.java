@@ -0,0 +1,78 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.MockTransport;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.RegistrationOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure FIB longest-prefix match as the number of routes grows; routes are spread over a two-level hierarchy and
+ * interests carry a few extra components below the matched route, as segmented content would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FibBenchmark {
+  private static final int INTERESTS = 1024;
+  private static final int FANOUT = 1000;
+
+  @Param({"10", "1000", "100000", "1000000"})
+  private int routes;
+
+  private FibImpl fib;
+  private Interest[] interests;
+  private int next = 0;
+
+  @Setup
+  public void setup() {
+    fib = new FibImpl();
+    MockTransport transport = new MockTransport();
+    RegistrationOptions flags = new RegistrationOptions();
+    for (int i = 0; i < routes; i++) {
+      fib.add(new ClientFibEntry(route(i), transport, flags));
+    }
+
+    Random random = new Random(0);
+    interests = new Interest[INTERESTS];
+    for (int i = 0; i < INTERESTS; i++) {
+      Name name = route(random.nextInt(routes)).append("data").appendVersion(1).appendSegment(i);
+      interests[i] = new Interest(name);
+    }
+  }
+
+  @Benchmark
+  public List<?> find() {
+    Interest interest = interests[next++ & (INTERESTS - 1)];
+    return fib.find(interest);
+  }
+
+  private static Name route(int i) {
+    return new Name("/benchmark").append("site" + (i / FANOUT)).append("app" + (i % FANOUT));
+  }
+}
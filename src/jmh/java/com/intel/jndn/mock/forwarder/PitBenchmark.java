@@ -0,0 +1,92 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.MockForwarder;
+import com.intel.jndn.mock.MockTransport;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure PIT lookups as the number of pending interests grows. A hit extracts an entry and puts it back so the table
+ * size stays constant; a miss looks up a data name with no pending interest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PitBenchmark {
+  private static final int PROBES = 1024;
+  private static final double LIFETIME_MS = TimeUnit.HOURS.toMillis(1);
+
+  @Param({"10", "1000", "100000"})
+  private int entries;
+
+  private PitImpl pit;
+  private PitEntryImpl[] pending;
+  private Name[] hits;
+  private Name[] misses;
+  private int next = 0;
+
+  @Setup
+  public void setup() {
+    pit = new PitImpl();
+    MockTransport transport = new MockTransport();
+    pending = new PitEntryImpl[entries];
+    for (int i = 0; i < entries; i++) {
+      Interest interest = new Interest(name(i)).setInterestLifetimeMilliseconds(LIFETIME_MS);
+      pending[i] = new PitEntryImpl(interest, transport);
+      pit.add(pending[i]);
+    }
+
+    Random random = new Random(0);
+    hits = new Name[PROBES];
+    misses = new Name[PROBES];
+    for (int i = 0; i < PROBES; i++) {
+      hits[i] = name(random.nextInt(entries));
+      misses[i] = hits[i].getPrefix(-1).appendSegment(1);
+    }
+  }
+
+  @Benchmark
+  public List<MockForwarder.PitEntry> extractHit() {
+    int probe = next++ & (PROBES - 1);
+    List<MockForwarder.PitEntry> found = pit.extract(hits[probe]);
+    for (MockForwarder.PitEntry entry : found) {
+      pit.add(entry);
+    }
+    return found;
+  }
+
+  @Benchmark
+  public List<MockForwarder.PitEntry> extractMiss() {
+    return pit.extract(misses[next++ & (PROBES - 1)]);
+  }
+
+  private static Name name(int i) {
+    return new Name("/benchmark").append("prefix" + (i % 100)).append("data" + i).appendSegment(0);
+  }
+}
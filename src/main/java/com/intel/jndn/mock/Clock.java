@@ -0,0 +1,36 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+/**
+ * Source of monotonic time for mock components that expire or schedule work; tests may substitute their own
+ * implementation to control time explicitly.
+ */
+public interface Clock {
+  /**
+   * Clock backed by {@link System#nanoTime()}.
+   */
+  Clock SYSTEM = new Clock() {
+    @Override
+    public long nanoTime() {
+      return System.nanoTime();
+    }
+  };
+
+  /**
+   * @return the current time in nanoseconds; only differences between values are meaningful
+   */
+  long nanoTime();
+}
@@ -0,0 +1,504 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Emulated one-way link between two transports: packets pass through a transmit queue drained at a fixed rate, then
+ * take a propagation delay to arrive, and may be dropped or reordered on the way. Use it through
+ * {@link MockTransport#setLink(EmulatedLink)} (or the {@code setLink} options of {@link MockFace} and
+ * {@link MockForwarder}) to see how consumers behave on realistic links.
+ * <p>
+ * Delayed packets are delivered by a {@link Scheduler}, by default a process-wide {@link WheelScheduler} on the system
+ * clock; packets that need no delay are delivered immediately on the sending thread. All randomness comes from a
+ * seedable generator, so runs with a seed and a manual clock are reproducible.
+ */
+public final class EmulatedLink {
+  /**
+   * Weight of the current queue length in RED's moving average, as recommended by Floyd and Jacobson.
+   */
+  private static final double RED_WEIGHT = 0.002;
+  private final Scheduler scheduler;
+  private final long delayNanos;
+  private final long bitsPerSecond;
+  private final int queueLimit;
+  private final QueueDiscipline queueDiscipline;
+  private final double redMinThreshold;
+  private final double redMaxThreshold;
+  private final double redMaxProbability;
+  private final double lossRate;
+  private final double reorderRate;
+  private final long reorderDelayNanos;
+  private final int mtu;
+  private final Random random;
+
+  // transmit queue, as the times at which queued packets finish transmission; guarded by this
+  private long[] finishTimes = new long[16];
+  private int head = 0;
+  private int queued = 0;
+  private long busyUntil = Long.MIN_VALUE;
+  private double averageQueue = 0;
+
+  private long offered = 0;
+  private long queueDrops = 0;
+  private long losses = 0;
+  private long reordered = 0;
+  private long oversized = 0;
+
+  /**
+   * API for the receiving end of a link.
+   */
+  public interface Receiver {
+    /**
+     * Called, on the scheduler's thread for delayed packets, when a packet arrives at the end of the link.
+     *
+     * @param block the packet
+     */
+    void receive(ByteBuffer block);
+  }
+
+  /**
+   * How a full transmit queue decides which packets to drop.
+   */
+  public enum QueueDiscipline {
+    /**
+     * Drop arriving packets only when the queue is at its limit.
+     */
+    DROP_TAIL,
+    /**
+     * Random early detection: drop arriving packets with a probability growing with the average queue length, and
+     * always when the queue is at its limit.
+     */
+    RED
+  }
+
+  /**
+   * Options for EmulatedLink; the defaults describe a perfect link that delivers immediately.
+   */
+  public static class Options {
+    private Scheduler scheduler = null;
+    private long delayNanos = 0;
+    private long bitsPerSecond = 0;
+    private int queueLimit = 0;
+    private QueueDiscipline queueDiscipline = QueueDiscipline.DROP_TAIL;
+    private double redMinThreshold = 5;
+    private double redMaxThreshold = 15;
+    private double redMaxProbability = 0.1;
+    private double lossRate = 0;
+    private double reorderRate = 0;
+    private long reorderDelayNanos = 0;
+    private int mtu = 0;
+    private Long seed = null;
+    private final AtomicLong links = new AtomicLong();
+
+    /**
+     * @return the scheduler delivering delayed packets, or null for the process-wide default
+     */
+    public Scheduler getScheduler() {
+      return scheduler;
+    }
+
+    /**
+     * @param scheduler the scheduler delivering delayed packets, e.g. a {@link WheelScheduler} on a manual clock; null
+     * (the default) uses a process-wide {@link WheelScheduler} on the system clock
+     * @return this
+     */
+    public Options setScheduler(final Scheduler scheduler) {
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    /**
+     * @return the propagation delay in nanoseconds
+     */
+    public long getDelayNanos() {
+      return delayNanos;
+    }
+
+    /**
+     * @param delay the propagation delay, added after transmission; 0 by default
+     * @param unit the unit of the delay
+     * @return this
+     */
+    public Options setDelay(final long delay, final TimeUnit unit) {
+      this.delayNanos = unit.toNanos(delay);
+      return this;
+    }
+
+    /**
+     * @return the transmission rate in bits per second, or 0 if unlimited
+     */
+    public long getBandwidth() {
+      return bitsPerSecond;
+    }
+
+    /**
+     * @param bitsPerSecond the rate at which the transmit queue is drained, or 0 (the default) for no serialization
+     * delay and no queueing
+     * @return this
+     */
+    public Options setBandwidth(final long bitsPerSecond) {
+      this.bitsPerSecond = bitsPerSecond;
+      return this;
+    }
+
+    /**
+     * @return the maximum number of packets waiting for transmission, or 0 if unlimited
+     */
+    public int getQueueLimit() {
+      return queueLimit;
+    }
+
+    /**
+     * @param queueLimit the maximum number of packets waiting for or in transmission, or 0 (the default) for no limit;
+     * only meaningful with a bandwidth
+     * @return this
+     */
+    public Options setQueueLimit(final int queueLimit) {
+      this.queueLimit = queueLimit;
+      return this;
+    }
+
+    /**
+     * @return the discipline of the transmit queue
+     */
+    public QueueDiscipline getQueueDiscipline() {
+      return queueDiscipline;
+    }
+
+    /**
+     * @param queueDiscipline the discipline of the transmit queue; {@link QueueDiscipline#DROP_TAIL} by default
+     * @return this
+     */
+    public Options setQueueDiscipline(final QueueDiscipline queueDiscipline) {
+      this.queueDiscipline = queueDiscipline;
+      return this;
+    }
+
+    /**
+     * Configure {@link QueueDiscipline#RED}; the defaults are 5 and 15 packets and a probability of 0.1.
+     *
+     * @param minThreshold the average queue length, in packets, below which no packets are dropped early
+     * @param maxThreshold the average queue length, in packets, from which all arriving packets are dropped
+     * @param maxProbability the drop probability just below the maximum threshold
+     * @return this
+     */
+    public Options setRedParameters(final double minThreshold, final double maxThreshold,
+                                    final double maxProbability) {
+      if (minThreshold < 0 || maxThreshold <= minThreshold || maxProbability < 0 || maxProbability > 1) {
+        throw new IllegalArgumentException("Invalid RED parameters: " + minThreshold + ", " + maxThreshold + ", "
+            + maxProbability);
+      }
+      this.redMinThreshold = minThreshold;
+      this.redMaxThreshold = maxThreshold;
+      this.redMaxProbability = maxProbability;
+      return this;
+    }
+
+    /**
+     * @return the probability that a transmitted packet is lost
+     */
+    public double getLossRate() {
+      return lossRate;
+    }
+
+    /**
+     * @param lossRate the probability, from 0 (the default) to 1, that a transmitted packet is lost on the way
+     * @return this
+     */
+    public Options setLossRate(final double lossRate) {
+      this.lossRate = probability(lossRate);
+      return this;
+    }
+
+    /**
+     * @return the probability that a packet is held back and overtaken by later packets
+     */
+    public double getReorderRate() {
+      return reorderRate;
+    }
+
+    /**
+     * Reorder packets by holding some of them back.
+     *
+     * @param reorderRate the probability, from 0 (the default) to 1, that a packet is held back
+     * @param extraDelay how long a held back packet is delayed beyond its normal arrival
+     * @param unit the unit of the extra delay
+     * @return this
+     */
+    public Options setReordering(final double reorderRate, final long extraDelay, final TimeUnit unit) {
+      this.reorderRate = probability(reorderRate);
+      this.reorderDelayNanos = unit.toNanos(extraDelay);
+      return this;
+    }
+
+    /**
+     * @return the largest packet the link carries, in bytes, or 0 if unlimited
+     */
+    public int getMtu() {
+      return mtu;
+    }
+
+    /**
+     * @param mtu the largest packet the link carries, in bytes, or 0 (the default) for no limit; larger packets are
+     * dropped, so pair the link with a {@link LinkService} fragmenting to the same MTU
+     * @return this
+     */
+    public Options setMtu(final int mtu) {
+      if (mtu < 0) {
+        throw new IllegalArgumentException("MTU must not be negative: " + mtu);
+      }
+      this.mtu = mtu;
+      return this;
+    }
+
+    /**
+     * @return the seed of the random loss, drop and reordering decisions, or null if unseeded
+     */
+    public Long getSeed() {
+      return seed;
+    }
+
+    /**
+     * @param seed the seed of the random loss, drop and reordering decisions; links created from these options get
+     * distinct seeds derived from it, in creation order. Unseeded (null) by default
+     * @return this
+     */
+    public Options setSeed(final Long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    private Random newRandom() {
+      long index = links.getAndIncrement();
+      return seed == null ? new Random() : new Random(seed + index * 0x9E3779B97F4A7C15L);
+    }
+
+    private static double probability(double p) {
+      if (p < 0 || p > 1) {
+        throw new IllegalArgumentException("Probability must be between 0 and 1: " + p);
+      }
+      return p;
+    }
+  }
+
+  /**
+   * Create a perfect link that delivers immediately; mainly useful as a placeholder.
+   */
+  public EmulatedLink() {
+    this(new Options());
+  }
+
+  /**
+   * @param options see {@link Options}
+   */
+  public EmulatedLink(final Options options) {
+    this(options, null);
+  }
+
+  /**
+   * @param options see {@link Options}
+   * @param fallback the scheduler to use if the options name none, or null for the process-wide default
+   */
+  EmulatedLink(final Options options, final Scheduler fallback) {
+    if (options.getScheduler() != null) {
+      this.scheduler = options.getScheduler();
+    } else {
+      this.scheduler = fallback != null ? fallback : DefaultScheduler.INSTANCE;
+    }
+    this.delayNanos = options.getDelayNanos();
+    this.bitsPerSecond = options.getBandwidth();
+    this.queueLimit = options.getQueueLimit();
+    this.queueDiscipline = options.getQueueDiscipline();
+    this.redMinThreshold = options.redMinThreshold;
+    this.redMaxThreshold = options.redMaxThreshold;
+    this.redMaxProbability = options.redMaxProbability;
+    this.lossRate = options.getLossRate();
+    this.reorderRate = options.getReorderRate();
+    this.reorderDelayNanos = options.reorderDelayNanos;
+    this.mtu = options.getMtu();
+    this.random = options.newRandom();
+  }
+
+  /**
+   * Send a packet over the link; it is queued, transmitted, delayed and finally handed to the receiver unless
+   * dropped on the way. Safe to call from any thread.
+   *
+   * @param block the packet; it is copied if delivery is delayed, so the caller may reuse it
+   * @param receiver the end of the link
+   */
+  public void send(final ByteBuffer block, final Receiver receiver) {
+    long now;
+    long deliverAt;
+    synchronized (this) {
+      now = scheduler.nanoTime();
+      offered++;
+      if (mtu > 0 && block.remaining() > mtu) {
+        oversized++;
+        return;
+      }
+      if (!admit(now)) {
+        queueDrops++;
+        return;
+      }
+
+      long finish = now;
+      if (bitsPerSecond > 0) {
+        long start = Math.max(now, busyUntil);
+        finish = start + transmissionNanos(block.remaining());
+        busyUntil = finish;
+        enqueue(finish);
+      }
+      if (lossRate > 0 && random.nextDouble() < lossRate) {
+        losses++;
+        return;
+      }
+
+      deliverAt = finish + delayNanos;
+      if (reorderRate > 0 && random.nextDouble() < reorderRate) {
+        deliverAt += reorderDelayNanos;
+        reordered++;
+      }
+    }
+
+    long wait = deliverAt - now;
+    if (wait <= 0) {
+      receiver.receive(block);
+    } else {
+      scheduler.schedule(new Delivery(copy(block), receiver), wait);
+    }
+  }
+
+  /**
+   * @return the number of packets sent over the link
+   */
+  public synchronized long getOffered() {
+    return offered;
+  }
+
+  /**
+   * @return the number of packets dropped by the transmit queue
+   */
+  public synchronized long getQueueDrops() {
+    return queueDrops;
+  }
+
+  /**
+   * @return the number of packets lost after transmission
+   */
+  public synchronized long getLosses() {
+    return losses;
+  }
+
+  /**
+   * @return the number of packets held back for reordering
+   */
+  public synchronized long getReordered() {
+    return reordered;
+  }
+
+  /**
+   * @return the number of packets dropped because they exceeded the MTU
+   */
+  public synchronized long getOversized() {
+    return oversized;
+  }
+
+  /**
+   * @return the number of packets currently waiting for or in transmission
+   */
+  public synchronized int getQueueLength() {
+    dequeueFinished(scheduler.nanoTime());
+    return queued;
+  }
+
+  private boolean admit(long now) {
+    if (bitsPerSecond <= 0) {
+      return true;
+    }
+    dequeueFinished(now);
+    if (queueLimit > 0 && queued >= queueLimit) {
+      return false;
+    }
+    if (queueDiscipline == QueueDiscipline.RED) {
+      averageQueue += RED_WEIGHT * (queued - averageQueue);
+      if (averageQueue >= redMaxThreshold) {
+        return false;
+      }
+      if (averageQueue > redMinThreshold) {
+        double p = redMaxProbability * (averageQueue - redMinThreshold) / (redMaxThreshold - redMinThreshold);
+        return random.nextDouble() >= p;
+      }
+    }
+    return true;
+  }
+
+  private long transmissionNanos(int bytes) {
+    return (long) Math.ceil(bytes * 8 * 1e9 / bitsPerSecond);
+  }
+
+  private void enqueue(long finishTime) {
+    if (queued == finishTimes.length) {
+      long[] grown = new long[finishTimes.length * 2];
+      for (int i = 0; i < queued; i++) {
+        grown[i] = finishTimes[(head + i) & (finishTimes.length - 1)];
+      }
+      finishTimes = grown;
+      head = 0;
+    }
+    finishTimes[(head + queued) & (finishTimes.length - 1)] = finishTime;
+    queued++;
+  }
+
+  private void dequeueFinished(long now) {
+    while (queued > 0 && finishTimes[head] - now <= 0) {
+      head = (head + 1) & (finishTimes.length - 1);
+      queued--;
+    }
+  }
+
+  private static ByteBuffer copy(ByteBuffer block) {
+    ByteBuffer copy = ByteBuffer.allocate(block.remaining());
+    copy.put(block.duplicate());
+    copy.flip();
+    return copy;
+  }
+
+  private static final class Delivery implements Runnable {
+    private final ByteBuffer block;
+    private final Receiver receiver;
+
+    Delivery(ByteBuffer block, Receiver receiver) {
+      this.block = block;
+      this.receiver = receiver;
+    }
+
+    @Override
+    public void run() {
+      receiver.receive(block);
+    }
+  }
+
+  /**
+   * Lazily started process-wide scheduler.
+   */
+  private static final class DefaultScheduler {
+    private static final Scheduler INSTANCE = new WheelScheduler().start();
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.encoding.tlv.Tlv;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Packet and byte counters for a face, per direction and packet type, along with the interest-to-data round trip
+ * times seen by the face. Counters are {@link LongAdder}s, so updating them from many threads does not contend.
+ */
+public final class FaceMetrics {
+  private final LongAdder interestsSent = new LongAdder();
+  private final LongAdder interestBytesSent = new LongAdder();
+  private final LongAdder dataSent = new LongAdder();
+  private final LongAdder dataBytesSent = new LongAdder();
+  private final LongAdder interestsReceived = new LongAdder();
+  private final LongAdder interestBytesReceived = new LongAdder();
+  private final LongAdder dataReceived = new LongAdder();
+  private final LongAdder dataBytesReceived = new LongAdder();
+  private final LatencyHistogram roundTripTimes = new LatencyHistogram();
+
+  /**
+   * Count a packet sent by the face (towards the forwarder).
+   *
+   * @param buffer the wire encoding of the packet
+   */
+  void recordSent(ByteBuffer buffer) {
+    if (isType(buffer, Tlv.Interest)) {
+      interestsSent.increment();
+      interestBytesSent.add(buffer.remaining());
+    } else if (isType(buffer, Tlv.Data)) {
+      dataSent.increment();
+      dataBytesSent.add(buffer.remaining());
+    }
+  }
+
+  /**
+   * Count a packet received by the face (from the forwarder).
+   *
+   * @param buffer the wire encoding of the packet
+   */
+  void recordReceived(ByteBuffer buffer) {
+    if (isType(buffer, Tlv.Interest)) {
+      interestsReceived.increment();
+      interestBytesReceived.add(buffer.remaining());
+    } else if (isType(buffer, Tlv.Data)) {
+      dataReceived.increment();
+      dataBytesReceived.add(buffer.remaining());
+    }
+  }
+
+  /**
+   * @return the number of interests sent by the face
+   */
+  public long getInterestsSent() {
+    return interestsSent.sum();
+  }
+
+  /**
+   * @return the number of interest bytes sent by the face
+   */
+  public long getInterestBytesSent() {
+    return interestBytesSent.sum();
+  }
+
+  /**
+   * @return the number of data packets sent by the face
+   */
+  public long getDataSent() {
+    return dataSent.sum();
+  }
+
+  /**
+   * @return the number of data bytes sent by the face
+   */
+  public long getDataBytesSent() {
+    return dataBytesSent.sum();
+  }
+
+  /**
+   * @return the number of interests received by the face
+   */
+  public long getInterestsReceived() {
+    return interestsReceived.sum();
+  }
+
+  /**
+   * @return the number of interest bytes received by the face
+   */
+  public long getInterestBytesReceived() {
+    return interestBytesReceived.sum();
+  }
+
+  /**
+   * @return the number of data packets received by the face
+   */
+  public long getDataReceived() {
+    return dataReceived.sum();
+  }
+
+  /**
+   * @return the number of data bytes received by the face
+   */
+  public long getDataBytesReceived() {
+    return dataBytesReceived.sum();
+  }
+
+  /**
+   * @return the round trip times, in nanoseconds, from expressing an interest to receiving its data
+   */
+  public LatencyHistogram getRoundTripTimes() {
+    return roundTripTimes;
+  }
+
+  private static boolean isType(ByteBuffer buffer, int type) {
+    return buffer.hasRemaining() && buffer.get(buffer.position()) == type;
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import com.intel.jndn.mock.forwarder.ForwardingCounters;
+import com.intel.jndn.mock.forwarder.ForwardingStatistics;
+import net.named_data.jndn.Name;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exports the forwarding counters of a forwarder as MBeans on the platform MBean server, named
+ * {@code com.intel.jndn.mock:type=MockForwarder,name=<name>} for the totals, with an added {@code face=<number>} key
+ * for each face (numbered in the order they are first counted) and a quoted {@code prefix=<uri>} key for each FIB
+ * prefix. The MBean of a face is unregistered when the face disconnects.
+ */
+final class ForwarderMBeans implements ForwardingStatistics.Listener {
+  private static final Logger LOGGER = Logger.getLogger(ForwarderMBeans.class.getName());
+  static final String DOMAIN = "com.intel.jndn.mock";
+  private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+  private final String base;
+  private final AtomicInteger faceIds = new AtomicInteger();
+  private final Map<ForwardingCounters, ObjectName> registered = new ConcurrentHashMap<>();
+
+  /**
+   * Export the totals and listen for face and prefix counters as they are created and dropped.
+   *
+   * @param name the name of the forwarder
+   * @param statistics its counters
+   */
+  ForwarderMBeans(String name, ForwardingStatistics statistics) {
+    this.base = DOMAIN + ":type=MockForwarder,name=" + ObjectName.quote(name);
+    register(base, statistics.getTotals());
+    statistics.setListener(this);
+  }
+
+  @Override
+  public void faceAdded(Object face, ForwardingCounters counters) {
+    register(base + ",face=" + faceIds.incrementAndGet(), counters);
+  }
+
+  @Override
+  public void faceRemoved(Object face, ForwardingCounters counters) {
+    ObjectName name = registered.remove(counters);
+    if (name != null) {
+      unregister(name);
+    }
+  }
+
+  @Override
+  public void prefixAdded(Name prefix, ForwardingCounters counters) {
+    register(base + ",prefix=" + ObjectName.quote(prefix.toUri()), counters);
+  }
+
+  /**
+   * Remove every MBean registered so far.
+   */
+  void unregister() {
+    for (ForwardingCounters counters : registered.keySet()) {
+      ObjectName name = registered.remove(counters);
+      if (name != null) {
+        unregister(name);
+      }
+    }
+  }
+
+  private void unregister(ObjectName name) {
+    try {
+      server.unregisterMBean(name);
+    } catch (JMException e) {
+      LOGGER.log(Level.FINE, "MBean already unregistered: " + name, e);
+    }
+  }
+
+  private void register(String name, ForwardingCounters counters) {
+    try {
+      ObjectName objectName = new ObjectName(name);
+      server.registerMBean(counters, objectName);
+      registered.put(counters, objectName);
+    } catch (JMException e) {
+      LOGGER.log(Level.WARNING, "Failed to register forwarding counters as " + name, e);
+    }
+  }
+}
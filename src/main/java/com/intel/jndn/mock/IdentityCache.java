@@ -0,0 +1,246 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.security.KeyType;
+import net.named_data.jndn.security.SecurityException;
+import net.named_data.jndn.security.certificate.IdentityCertificate;
+import net.named_data.jndn.security.identity.IdentityManager;
+import net.named_data.jndn.security.identity.IdentityStorage;
+import net.named_data.jndn.security.identity.MemoryIdentityStorage;
+import net.named_data.jndn.security.identity.MemoryPrivateKeyStorage;
+import net.named_data.jndn.util.Blob;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache of pre-generated identities (key pair and self-signed certificate) keyed by identity name and key type, so that
+ * each {@link MockKeyChain} installs an existing identity instead of generating one. Optionally backed by a keystore
+ * file, a properties file of Base64-encoded keys and certificates, so that later runs skip key generation entirely.
+ * <p>
+ * The keystore holds unencrypted private keys and must only ever be used for tests.
+ */
+final class IdentityCache {
+  private static final Logger LOGGER = Logger.getLogger(IdentityCache.class.getName());
+  private static final int RSA_KEY_SIZE = 2048;
+  private static final String EC_CURVE = "secp256r1";
+  private final Map<String, Identity> identities = new ConcurrentHashMap<>();
+  private final File keyStore;
+
+  /**
+   * @param keyStore the keystore file to load identities from and save generated ones to, or null to keep identities
+   * in memory only; a missing file is created on the first generated identity
+   */
+  IdentityCache(File keyStore) {
+    this.keyStore = keyStore;
+    if (keyStore != null && keyStore.isFile()) {
+      load();
+    }
+  }
+
+  /**
+   * Install an identity into a key chain's storage, generating and caching it on first use, and make it the default
+   * key and certificate of the identity.
+   *
+   * @param name the identity name
+   * @param keyType {@link KeyType#RSA} or {@link KeyType#EC}
+   * @param identityManager the identity manager of the key chain
+   * @param identityStorage the identity storage of the key chain
+   * @param keyStorage the private key storage of the key chain
+   * @throws SecurityException if the identity cannot be generated or installed
+   */
+  void install(Name name, KeyType keyType, IdentityManager identityManager, IdentityStorage identityStorage,
+               MemoryPrivateKeyStorage keyStorage) throws SecurityException {
+    get(name, keyType).install(identityManager, identityStorage, keyStorage);
+  }
+
+  /**
+   * @return the number of cached identities
+   */
+  int size() {
+    return identities.size();
+  }
+
+  /**
+   * Forget all cached identities; the keystore file, if any, is left untouched.
+   */
+  void clear() {
+    identities.clear();
+  }
+
+  private Identity get(Name name, KeyType keyType) throws SecurityException {
+    String key = keyOf(name, keyType);
+    Identity identity = identities.get(key);
+    if (identity == null) {
+      synchronized (this) {
+        identity = identities.get(key);
+        if (identity == null) {
+          identity = generate(name, keyType);
+          identities.put(key, identity);
+          save();
+        }
+      }
+    }
+    return identity;
+  }
+
+  private static Identity generate(Name name, KeyType keyType) throws SecurityException {
+    KeyPair keyPair;
+    try {
+      if (keyType == KeyType.RSA) {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(RSA_KEY_SIZE);
+        keyPair = generator.generateKeyPair();
+      } else if (keyType == KeyType.EC) {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(EC_CURVE));
+        keyPair = generator.generateKeyPair();
+      } else {
+        throw new SecurityException("Unsupported identity key type: " + keyType);
+      }
+    } catch (GeneralSecurityException e) {
+      throw new SecurityException("Failed to generate " + keyType + " key for " + name.toUri() + ": " + e.getMessage());
+    }
+
+    // self-sign in a scratch key chain storage to obtain the certificate
+    MemoryIdentityStorage identityStorage = new MemoryIdentityStorage();
+    MemoryPrivateKeyStorage keyStorage = new MemoryPrivateKeyStorage();
+    IdentityManager identityManager = new IdentityManager(identityStorage, keyStorage);
+    Name keyName = identityStorage.getNewKeyName(name, true);
+    byte[] publicKey = keyPair.getPublic().getEncoded();
+    byte[] privateKey = keyPair.getPrivate().getEncoded();
+    identityStorage.addKey(keyName, keyType, new Blob(publicKey, false));
+    keyStorage.setKeyPairForKeyName(keyName, keyType, ByteBuffer.wrap(publicKey), ByteBuffer.wrap(privateKey));
+    IdentityCertificate certificate = identityManager.selfSign(keyName);
+    return new Identity(keyName, keyType, publicKey, privateKey, certificate.wireEncode().getImmutableArray());
+  }
+
+  private void load() {
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(keyStore.toPath())) {
+      properties.load(in);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to read keystore " + keyStore + "; generating identities instead", e);
+      return;
+    }
+
+    Base64.Decoder decoder = Base64.getDecoder();
+    for (String key : properties.stringPropertyNames()) {
+      if (!key.endsWith(".keyName")) {
+        continue;
+      }
+      String prefix = key.substring(0, key.length() - ".keyName".length());
+      try {
+        Identity identity = new Identity(new Name(properties.getProperty(key)),
+            KeyType.valueOf(properties.getProperty(prefix + ".keyType")),
+            decoder.decode(properties.getProperty(prefix + ".publicKey")),
+            decoder.decode(properties.getProperty(prefix + ".privateKey")),
+            decoder.decode(properties.getProperty(prefix + ".certificate")));
+        identities.put(prefix, identity);
+      } catch (IllegalArgumentException | NullPointerException e) {
+        LOGGER.log(Level.WARNING, "Skipping malformed keystore entry " + prefix + " in " + keyStore, e);
+      }
+    }
+  }
+
+  private void save() {
+    if (keyStore == null) {
+      return;
+    }
+
+    Properties properties = new Properties();
+    Base64.Encoder encoder = Base64.getEncoder();
+    for (Map.Entry<String, Identity> entry : identities.entrySet()) {
+      String prefix = entry.getKey();
+      Identity identity = entry.getValue();
+      properties.setProperty(prefix + ".keyName", identity.keyName.toUri());
+      properties.setProperty(prefix + ".keyType", identity.keyType.name());
+      properties.setProperty(prefix + ".publicKey", encoder.encodeToString(identity.publicKey));
+      properties.setProperty(prefix + ".privateKey", encoder.encodeToString(identity.privateKey));
+      properties.setProperty(prefix + ".certificate", encoder.encodeToString(identity.certificate));
+    }
+
+    // write to a temporary file first so that concurrent runs never read a partial keystore
+    try {
+      File directory = keyStore.getAbsoluteFile().getParentFile();
+      if (directory != null) {
+        Files.createDirectories(directory.toPath());
+      }
+      File temporary = File.createTempFile(keyStore.getName(), ".tmp", directory);
+      try (OutputStream out = Files.newOutputStream(temporary.toPath())) {
+        properties.store(out, "jndn-mock test identities; unencrypted, for tests only");
+      }
+      Files.move(temporary.toPath(), keyStore.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to write keystore " + keyStore, e);
+    }
+  }
+
+  private static String keyOf(Name name, KeyType keyType) {
+    return keyType.name() + ":" + name.toUri();
+  }
+
+  /**
+   * A generated identity: the key pair in DER encoding (SubjectPublicKeyInfo and PKCS #8) and the wire encoding of its
+   * self-signed certificate.
+   */
+  private static final class Identity {
+    private final Name keyName;
+    private final KeyType keyType;
+    private final byte[] publicKey;
+    private final byte[] privateKey;
+    private final byte[] certificate;
+
+    Identity(Name keyName, KeyType keyType, byte[] publicKey, byte[] privateKey, byte[] certificate) {
+      this.keyName = keyName;
+      this.keyType = keyType;
+      this.publicKey = publicKey;
+      this.privateKey = privateKey;
+      this.certificate = certificate;
+    }
+
+    void install(IdentityManager identityManager, IdentityStorage identityStorage,
+                 MemoryPrivateKeyStorage keyStorage) throws SecurityException {
+      identityStorage.addKey(keyName, keyType, new Blob(publicKey, false));
+      keyStorage.setKeyPairForKeyName(keyName, keyType, ByteBuffer.wrap(publicKey), ByteBuffer.wrap(privateKey));
+      IdentityCertificate decoded = new IdentityCertificate();
+      try {
+        decoded.wireDecode(new Blob(certificate, false));
+      } catch (EncodingException e) {
+        throw new SecurityException("Failed to decode cached certificate of " + keyName.toUri() + ": "
+            + e.getMessage());
+      }
+      identityManager.addCertificateAsIdentityDefault(decoded);
+    }
+  }
+}
@@ -0,0 +1,618 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.encoding.EncodingException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * NDNLPv2 link service for one direction of a link: the sending end {@link #encode(ByteBuffer)}s network layer packets
+ * into LpPacket frames, fragmenting those that exceed the MTU, and the receiving end {@link #decode(ByteBuffer)}s
+ * frames back into packets. Use it through {@link MockTransport#setLinkService(LinkService)} (or the
+ * {@code setLinkService} options of {@link MockFace} and {@link MockForwarder}), typically together with an
+ * {@link EmulatedLink} with the same MTU.
+ * <p>
+ * Fragments of a packet carry consecutive sequence numbers, as NDNLPv2 requires; partially received packets are held
+ * in bounded reassembly buffers and dropped when they time out or when newer packets need the room. With loss
+ * detection enabled every frame carries a sequence number, and gaps in the received sequence are counted as lost
+ * frames. Nack and CongestionMark headers travel with the first fragment; {@link #decode(ByteBuffer)} passes them on
+ * to the network layer (jndn decodes them) in an unfragmented LpPacket, while {@link #receive(ByteBuffer)} returns them
+ * next to the bare packet.
+ */
+public final class LinkService {
+  /**
+   * The smallest MTU that leaves room for the LpPacket headers of a fragment.
+   */
+  public static final int MIN_MTU = 64;
+  /**
+   * Nack reason meaning that no Nack is sent, see {@link #encode(ByteBuffer, int, boolean)}.
+   */
+  public static final int NO_NACK = LpFrame.NO_NACK;
+  /**
+   * The largest number of fragments a received packet may be split into, enough for a 16 MiB packet over a 1500 byte
+   * MTU link.
+   */
+  public static final int MAX_FRAGMENTS = 16384;
+  private static final Logger LOGGER = Logger.getLogger(LinkService.class.getName());
+  private final int mtu;
+  private final long reassemblyTimeoutNanos;
+  private final int maxPartialPackets;
+  private final long maxReassemblyBytes;
+  private final boolean lossDetection;
+  private final int congestionThreshold;
+  private final Clock clock;
+
+  // sending end, guarded by this
+  private long nextSequence = 0;
+  private long framesSent = 0;
+  private long fragmentedPackets = 0;
+  private long overheadBytes = 0;
+  private long congestionMarks = 0;
+
+  // receiving end, guarded by this
+  private final Map<Long, PartialPacket> partialPackets = new LinkedHashMap<>();
+  private long reassemblyBytes = 0;
+  private boolean receivedSequence = false;
+  private long expectedSequence = 0;
+  private long framesReceived = 0;
+  private long reassembledPackets = 0;
+  private long reassemblyDrops = 0;
+  private long lostFrames = 0;
+  private long decodeErrors = 0;
+
+  /**
+   * Options for LinkService; by default packets are framed without fragmentation or sequence numbers.
+   */
+  public static class Options {
+    private int mtu = 0;
+    private long reassemblyTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(500);
+    private int maxPartialPackets = 100;
+    private long maxReassemblyBytes = 16 * 1024 * 1024;
+    private boolean lossDetection = false;
+    private int congestionThreshold = 0;
+
+    /**
+     * @return the largest frame sent, in bytes, or 0 if packets are never fragmented
+     */
+    public int getMtu() {
+      return mtu;
+    }
+
+    /**
+     * @param mtu the largest frame to send, in bytes, or 0 (the default) to never fragment; must leave room for the
+     * LpPacket headers
+     * @return this
+     */
+    public Options setMtu(final int mtu) {
+      if (mtu != 0 && mtu < MIN_MTU) {
+        throw new IllegalArgumentException("MTU must be 0 or at least " + MIN_MTU + ": " + mtu);
+      }
+      this.mtu = mtu;
+      return this;
+    }
+
+    /**
+     * @return how long a partially received packet waits for its missing fragments, in nanoseconds
+     */
+    public long getReassemblyTimeoutNanos() {
+      return reassemblyTimeoutNanos;
+    }
+
+    /**
+     * @param timeout how long a partially received packet waits for its missing fragments; 500 ms by default
+     * @param unit the unit of the timeout
+     * @return this
+     */
+    public Options setReassemblyTimeout(final long timeout, final TimeUnit unit) {
+      this.reassemblyTimeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
+    /**
+     * @return the maximum number of partially received packets
+     */
+    public int getMaxPartialPackets() {
+      return maxPartialPackets;
+    }
+
+    /**
+     * @param maxPartialPackets the maximum number of partially received packets; the oldest is dropped to make room
+     * for a new one. 100 by default
+     * @return this
+     */
+    public Options setMaxPartialPackets(final int maxPartialPackets) {
+      this.maxPartialPackets = maxPartialPackets;
+      return this;
+    }
+
+    /**
+     * @return the maximum number of bytes held by partially received packets
+     */
+    public long getMaxReassemblyBytes() {
+      return maxReassemblyBytes;
+    }
+
+    /**
+     * @param maxReassemblyBytes the maximum number of bytes held by partially received packets; the oldest are dropped
+     * to make room for new fragments. 16 MiB by default
+     * @return this
+     */
+    public Options setMaxReassemblyBytes(final long maxReassemblyBytes) {
+      this.maxReassemblyBytes = maxReassemblyBytes;
+      return this;
+    }
+
+    /**
+     * @return true if every frame carries a sequence number and gaps are counted as losses
+     */
+    public boolean isLossDetection() {
+      return lossDetection;
+    }
+
+    /**
+     * @param lossDetection true to number every frame and count gaps in the received sequence as lost frames; false
+     * by default
+     * @return this
+     */
+    public Options setLossDetection(final boolean lossDetection) {
+      this.lossDetection = lossDetection;
+      return this;
+    }
+
+    /**
+     * @return the link queue length at which sent packets are marked as congested, or 0 if they never are
+     */
+    public int getCongestionThreshold() {
+      return congestionThreshold;
+    }
+
+    /**
+     * @param congestionThreshold the number of packets waiting on the {@link EmulatedLink} at which sent packets get a
+     * CongestionMark, or 0 (the default) to never mark them
+     * @return this
+     */
+    public Options setCongestionThreshold(final int congestionThreshold) {
+      this.congestionThreshold = congestionThreshold;
+      return this;
+    }
+  }
+
+  /**
+   * Create a link service framing packets without fragmentation.
+   */
+  public LinkService() {
+    this(new Options());
+  }
+
+  /**
+   * @param options see {@link Options}
+   */
+  public LinkService(final Options options) {
+    this(options, Clock.SYSTEM);
+  }
+
+  /**
+   * @param options see {@link Options}
+   * @param clock the clock timing out reassembly, e.g. a {@link VirtualScheduler}
+   */
+  public LinkService(final Options options, final Clock clock) {
+    this.mtu = options.getMtu();
+    this.reassemblyTimeoutNanos = options.getReassemblyTimeoutNanos();
+    this.maxPartialPackets = options.getMaxPartialPackets();
+    this.maxReassemblyBytes = options.getMaxReassemblyBytes();
+    this.lossDetection = options.isLossDetection();
+    this.congestionThreshold = options.getCongestionThreshold();
+    this.clock = clock;
+  }
+
+  /**
+   * Frame a packet for sending; bare packets that fit the MTU are sent as they are unless loss detection is on.
+   *
+   * @param packet the network layer packet
+   * @return the frames to send, in order
+   */
+  public List<ByteBuffer> encode(final ByteBuffer packet) {
+    return encode(packet, NO_NACK, false);
+  }
+
+  /**
+   * Frame a packet for sending.
+   *
+   * @param packet the network layer packet
+   * @param nackReason the NDNLPv2 Nack reason code (e.g. 150 for NoRoute), 0 for a Nack without reason, or
+   * {@link #NO_NACK}
+   * @param congested true to add a CongestionMark
+   * @return the frames to send, in order
+   */
+  public synchronized List<ByteBuffer> encode(final ByteBuffer packet, final int nackReason, final boolean congested) {
+    LpFrame frame = new LpFrame();
+    frame.nackReason = nackReason;
+    frame.congestionMark = congested ? 1 : 0;
+    if (congested) {
+      congestionMarks++;
+    }
+
+    frame.fragment = packet.duplicate();
+    frame.hasSequence = lossDetection;
+    boolean framed = lossDetection || frame.hasNetworkHeaders();
+    if (mtu == 0 || (framed ? frame.size() : packet.remaining()) <= mtu) {
+      if (!framed) {
+        framesSent++;
+        return Collections.singletonList(packet.duplicate());
+      }
+      if (lossDetection) {
+        frame.sequence = nextSequence++;
+      }
+      return Collections.singletonList(send(frame));
+    }
+    return fragment(packet, frame);
+  }
+
+  /**
+   * @param queueLength the number of packets waiting on the link
+   * @return true if packets sent now should get a CongestionMark
+   */
+  public boolean isCongested(final int queueLength) {
+    return congestionThreshold > 0 && queueLength >= congestionThreshold;
+  }
+
+  /**
+   * Process a received frame.
+   *
+   * @param frame a received LpPacket or bare network layer packet
+   * @return the network layer packet, as an LpPacket if it carries a Nack or CongestionMark; or null if the frame was
+   * a fragment of an incomplete packet, carried no packet (e.g. an IDLE frame) or could not be decoded
+   * @see #receive(ByteBuffer)
+   */
+  public ByteBuffer decode(final ByteBuffer frame) {
+    Packet packet = receive(frame);
+    if (packet == null) {
+      return null;
+    }
+    if (!packet.frame.hasNetworkHeaders()) {
+      return packet.frame.fragment;
+    }
+    packet.frame.hasSequence = false;
+    return packet.frame.encode();
+  }
+
+  /**
+   * Process a received frame, for receivers that handle the Nack and CongestionMark headers themselves rather than
+   * passing them on to jndn, e.g. a forwarder.
+   *
+   * @param frame a received LpPacket or bare network layer packet
+   * @return the network layer packet with its headers; or null if the frame was a fragment of an incomplete packet,
+   * carried no packet (e.g. an IDLE frame) or could not be decoded
+   */
+  public synchronized Packet receive(final ByteBuffer frame) {
+    framesReceived++;
+    LpFrame decoded;
+    if (!LpFrame.isLpPacket(frame)) {
+      decoded = new LpFrame();
+      decoded.fragment = frame;
+    } else {
+      try {
+        decoded = LpFrame.decode(frame);
+      } catch (EncodingException e) {
+        decodeErrors++;
+        LOGGER.log(Level.INFO, "Failed to decode LpPacket", e);
+        return null;
+      }
+      if (decoded.hasSequence) {
+        detectLoss(decoded.sequence);
+      }
+      if (decoded.fragCount > 1) {
+        decoded = reassemble(decoded);
+      }
+    }
+    return decoded != null && decoded.fragment.hasRemaining() ? new Packet(decoded) : null;
+  }
+
+  /**
+   * @return the number of frames sent
+   */
+  public synchronized long getFramesSent() {
+    return framesSent;
+  }
+
+  /**
+   * @return the number of packets sent in more than one fragment
+   */
+  public synchronized long getFragmentedPackets() {
+    return fragmentedPackets;
+  }
+
+  /**
+   * @return the number of LpPacket header bytes sent in addition to the packets themselves
+   */
+  public synchronized long getOverheadBytes() {
+    return overheadBytes;
+  }
+
+  /**
+   * @return the number of packets sent with a CongestionMark
+   */
+  public synchronized long getCongestionMarks() {
+    return congestionMarks;
+  }
+
+  /**
+   * @return the number of frames received
+   */
+  public synchronized long getFramesReceived() {
+    return framesReceived;
+  }
+
+  /**
+   * @return the number of fragmented packets received completely
+   */
+  public synchronized long getReassembledPackets() {
+    return reassembledPackets;
+  }
+
+  /**
+   * @return the number of partially received packets dropped, because they timed out or the reassembly buffers were
+   * full
+   */
+  public synchronized long getReassemblyDrops() {
+    return reassemblyDrops;
+  }
+
+  /**
+   * @return the number of frames missing from the received sequence; frames arriving late after a gap are deducted
+   */
+  public synchronized long getLostFrames() {
+    return lostFrames;
+  }
+
+  /**
+   * @return the number of received frames that could not be decoded
+   */
+  public synchronized long getDecodeErrors() {
+    return decodeErrors;
+  }
+
+  /**
+   * @return the number of packets currently partially received
+   */
+  public synchronized int getPartialPackets() {
+    expirePartialPackets(clock.nanoTime());
+    return partialPackets.size();
+  }
+
+  /**
+   * @return the number of fragment bytes currently held for reassembly
+   */
+  public synchronized long getReassemblyBytes() {
+    expirePartialPackets(clock.nanoTime());
+    return reassemblyBytes;
+  }
+
+  private List<ByteBuffer> fragment(ByteBuffer packet, LpFrame first) {
+    int length = packet.remaining();
+    // headers only grow with the fragment index and count and the fragment length, so size every fragment for the
+    // largest values possible
+    LpFrame largest = new LpFrame();
+    largest.hasSequence = true;
+    largest.fragCount = Math.max(2, length);
+    largest.fragIndex = largest.fragCount - 1;
+    largest.nackReason = first.nackReason;
+    largest.congestionMark = first.congestionMark;
+    largest.fragment = ByteBuffer.allocate(mtu);
+    int payload = mtu - largest.overhead();
+    int count = (length + payload - 1) / payload;
+
+    List<ByteBuffer> frames = new ArrayList<>(count);
+    long base = nextSequence;
+    nextSequence += count;
+    for (int i = 0; i < count; i++) {
+      LpFrame frame = new LpFrame();
+      frame.hasSequence = true;
+      frame.sequence = base + i;
+      frame.fragIndex = i;
+      frame.fragCount = count;
+      if (i == 0) {
+        frame.nackReason = first.nackReason;
+        frame.congestionMark = first.congestionMark;
+      }
+      ByteBuffer slice = packet.duplicate();
+      slice.position(packet.position() + i * payload);
+      slice.limit(Math.min(packet.position() + (i + 1) * payload, packet.limit()));
+      frame.fragment = slice;
+      frames.add(send(frame));
+    }
+    fragmentedPackets++;
+    return frames;
+  }
+
+  private ByteBuffer send(LpFrame frame) {
+    framesSent++;
+    overheadBytes += frame.overhead();
+    return frame.encode();
+  }
+
+  private void detectLoss(long sequence) {
+    if (!receivedSequence) {
+      receivedSequence = true;
+    } else if (sequence - expectedSequence > 0) {
+      lostFrames += sequence - expectedSequence;
+    } else if (sequence - expectedSequence < 0) {
+      if (lostFrames > 0) {
+        lostFrames--; // a late frame filling an earlier gap
+      }
+      return;
+    }
+    expectedSequence = sequence + 1;
+  }
+
+  private LpFrame reassemble(LpFrame fragment) {
+    if (!fragment.hasSequence) {
+      reassemblyDrops++;
+      LOGGER.info("Dropping a fragment without a sequence number");
+      return null;
+    }
+    if (fragment.fragCount > Math.min(maxReassemblyBytes, MAX_FRAGMENTS)) {
+      // every fragment holds at least a byte, so the packet could never be reassembled; nor is it worth allocating
+      // room for that many fragments
+      decodeErrors++;
+      LOGGER.log(Level.INFO, "Dropping a fragment of a packet in too many fragments: {0}", fragment.fragCount);
+      return null;
+    }
+    long now = clock.nanoTime();
+    expirePartialPackets(now);
+
+    long base = fragment.sequence - fragment.fragIndex;
+    PartialPacket partial = partialPackets.get(base);
+    if (partial != null && partial.fragments.length != fragment.fragCount) {
+      drop(base);
+      partial = null;
+    }
+    if (partial == null) {
+      while (!partialPackets.isEmpty() && partialPackets.size() >= maxPartialPackets) {
+        dropOldest();
+      }
+      partial = new PartialPacket(fragment.fragCount, now + reassemblyTimeoutNanos);
+      partialPackets.put(base, partial);
+    }
+    if (partial.fragments[fragment.fragIndex] != null) {
+      return null; // duplicate
+    }
+
+    int length = fragment.fragment.remaining();
+    while (reassemblyBytes + length > maxReassemblyBytes && !partialPackets.isEmpty()) {
+      if (partialPackets.keySet().iterator().next() == base) {
+        drop(base);
+        return null; // the packet alone exceeds the buffers
+      }
+      dropOldest();
+    }
+    ByteBuffer copy = ByteBuffer.allocate(length);
+    copy.put(fragment.fragment.duplicate()).flip();
+    partial.fragments[fragment.fragIndex] = copy;
+    partial.received++;
+    partial.bytes += length;
+    reassemblyBytes += length;
+    if (fragment.fragIndex == 0) {
+      partial.nackReason = fragment.nackReason;
+      partial.congestionMark = fragment.congestionMark;
+    }
+    if (partial.received < partial.fragments.length) {
+      return null;
+    }
+
+    partialPackets.remove(base);
+    reassemblyBytes -= partial.bytes;
+    reassembledPackets++;
+    ByteBuffer packet = ByteBuffer.allocate(partial.bytes);
+    for (ByteBuffer piece : partial.fragments) {
+      packet.put(piece);
+    }
+    packet.flip();
+    LpFrame whole = new LpFrame();
+    whole.nackReason = partial.nackReason;
+    whole.congestionMark = partial.congestionMark;
+    whole.fragment = packet;
+    return whole;
+  }
+
+  private void expirePartialPackets(long now) {
+    Iterator<PartialPacket> partials = partialPackets.values().iterator();
+    while (partials.hasNext()) {
+      PartialPacket partial = partials.next();
+      if (now - partial.deadline < 0) {
+        break; // deadlines grow in insertion order
+      }
+      partials.remove();
+      reassemblyBytes -= partial.bytes;
+      reassemblyDrops++;
+    }
+  }
+
+  private void dropOldest() {
+    drop(partialPackets.keySet().iterator().next());
+  }
+
+  private void drop(long base) {
+    PartialPacket partial = partialPackets.remove(base);
+    reassemblyBytes -= partial.bytes;
+    reassemblyDrops++;
+  }
+
+  /**
+   * A received network layer packet and the NDNLPv2 headers it arrived with.
+   */
+  public static final class Packet {
+    private final LpFrame frame;
+
+    private Packet(LpFrame frame) {
+      this.frame = frame;
+    }
+
+    /**
+     * @return the network layer packet, e.g. an Interest or Data block
+     */
+    public ByteBuffer getPacket() {
+      return frame.fragment;
+    }
+
+    /**
+     * @return true if the packet is a Nack of the interest it carries
+     */
+    public boolean isNack() {
+      return frame.nackReason != NO_NACK;
+    }
+
+    /**
+     * @return the NDNLPv2 Nack reason code, 0 for a Nack without reason, or {@link #NO_NACK}
+     */
+    public int getNackReason() {
+      return frame.nackReason;
+    }
+
+    /**
+     * @return the CongestionMark of the packet, or 0 if it has none
+     */
+    public long getCongestionMark() {
+      return frame.congestionMark;
+    }
+  }
+
+  /**
+   * Fragments received so far of one packet.
+   */
+  private static final class PartialPacket {
+    private final ByteBuffer[] fragments;
+    private final long deadline;
+    private int received = 0;
+    private int bytes = 0;
+    private int nackReason = LpFrame.NO_NACK;
+    private long congestionMark = 0;
+
+    PartialPacket(int fragCount, long deadline) {
+      this.fragments = new ByteBuffer[fragCount];
+      this.deadline = deadline;
+    }
+  }
+}
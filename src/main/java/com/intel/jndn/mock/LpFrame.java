@@ -0,0 +1,289 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.tlv.Tlv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * NDNLPv2 LpPacket codec, limited to the fields used by {@link LinkService}: Sequence, FragIndex, FragCount, Nack,
+ * CongestionMark and Fragment. Unknown header fields are skipped if NDNLPv2 allows ignoring them.
+ */
+final class LpFrame {
+  static final int NO_NACK = -1;
+  private static final int SEQUENCE_LENGTH = 8;
+  private static final int IGNORABLE_MIN = 800;
+  private static final int IGNORABLE_MAX = 959;
+  boolean hasSequence = false;
+  long sequence = 0;
+  int fragIndex = 0;
+  int fragCount = 1;
+  int nackReason = NO_NACK;
+  long congestionMark = 0;
+  ByteBuffer fragment;
+
+  /**
+   * @param buffer a received block
+   * @return true if the block is an LpPacket rather than a bare network layer packet
+   */
+  static boolean isLpPacket(ByteBuffer buffer) {
+    return buffer.remaining() > 0 && (buffer.get(buffer.position()) & 0xff) == Tlv.LpPacket_LpPacket;
+  }
+
+  /**
+   * @return true if the frame carries headers that the network layer must see, i.e. a Nack or a CongestionMark
+   */
+  boolean hasNetworkHeaders() {
+    return nackReason != NO_NACK || congestionMark != 0;
+  }
+
+  /**
+   * @return the number of bytes of the encoded frame
+   */
+  int size() {
+    int fields = headerSize() + fieldSize(Tlv.LpPacket_Fragment, fragment.remaining());
+    return fieldSize(Tlv.LpPacket_LpPacket, fields);
+  }
+
+  /**
+   * @return the number of bytes of the encoded frame besides the fragment value
+   */
+  int overhead() {
+    return size() - fragment.remaining();
+  }
+
+  /**
+   * @return a new buffer holding the encoded frame
+   */
+  ByteBuffer encode() {
+    int headers = headerSize();
+    int fields = headers + fieldSize(Tlv.LpPacket_Fragment, fragment.remaining());
+    ByteBuffer out = ByteBuffer.allocate(fieldSize(Tlv.LpPacket_LpPacket, fields));
+    writeVarNumber(out, Tlv.LpPacket_LpPacket);
+    writeVarNumber(out, fields);
+    if (hasSequence) {
+      writeVarNumber(out, Tlv.LpPacket_Sequence);
+      writeVarNumber(out, SEQUENCE_LENGTH);
+      out.putLong(sequence);
+    }
+    if (fragCount > 1) {
+      writeNonNegativeInteger(out, Tlv.LpPacket_FragIndex, fragIndex);
+      writeNonNegativeInteger(out, Tlv.LpPacket_FragCount, fragCount);
+    }
+    if (nackReason != NO_NACK) {
+      writeVarNumber(out, Tlv.LpPacket_Nack);
+      if (nackReason > 0) {
+        writeVarNumber(out, nonNegativeIntegerFieldSize(Tlv.LpPacket_NackReason, nackReason));
+        writeNonNegativeInteger(out, Tlv.LpPacket_NackReason, nackReason);
+      } else {
+        writeVarNumber(out, 0);
+      }
+    }
+    if (congestionMark != 0) {
+      writeNonNegativeInteger(out, Tlv.LpPacket_CongestionMark, congestionMark);
+    }
+    writeVarNumber(out, Tlv.LpPacket_Fragment);
+    writeVarNumber(out, fragment.remaining());
+    out.put(fragment.duplicate());
+    out.flip();
+    return out;
+  }
+
+  /**
+   * @param buffer an encoded LpPacket; its position is not changed
+   * @return the decoded frame; its fragment shares the content of the buffer
+   * @throws EncodingException if the packet is malformed or has a header that must not be ignored
+   */
+  static LpFrame decode(ByteBuffer buffer) throws EncodingException {
+    ByteBuffer in = buffer.duplicate();
+    if (readVarNumber(in) != Tlv.LpPacket_LpPacket) {
+      throw new EncodingException("Not an LpPacket");
+    }
+    int end = readLength(in, in.limit());
+    LpFrame frame = new LpFrame();
+    frame.fragment = ByteBuffer.allocate(0);
+    while (in.position() < end) {
+      long type = readVarNumber(in);
+      int fieldEnd = readLength(in, end);
+      int length = fieldEnd - in.position();
+      if (type == Tlv.LpPacket_Sequence) {
+        if (length != SEQUENCE_LENGTH) {
+          throw new EncodingException("Sequence must be 8 bytes long, not " + length);
+        }
+        frame.hasSequence = true;
+        frame.sequence = in.getLong();
+      } else if (type == Tlv.LpPacket_FragIndex) {
+        frame.fragIndex = toInt(readNonNegativeInteger(in, length));
+      } else if (type == Tlv.LpPacket_FragCount) {
+        frame.fragCount = toInt(readNonNegativeInteger(in, length));
+      } else if (type == Tlv.LpPacket_Nack) {
+        frame.nackReason = 0;
+        while (in.position() < fieldEnd) {
+          long nackField = readVarNumber(in);
+          int nackFieldEnd = readLength(in, fieldEnd);
+          if (nackField == Tlv.LpPacket_NackReason) {
+            frame.nackReason = toInt(readNonNegativeInteger(in, nackFieldEnd - in.position()));
+          }
+          in.position(nackFieldEnd);
+        }
+      } else if (type == Tlv.LpPacket_CongestionMark) {
+        frame.congestionMark = readNonNegativeInteger(in, length);
+      } else if (type == Tlv.LpPacket_Fragment) {
+        ByteBuffer fragment = in.duplicate();
+        fragment.limit(fieldEnd);
+        frame.fragment = fragment.slice();
+      } else if (type < IGNORABLE_MIN || type > IGNORABLE_MAX || (type & 0x03) != 0) {
+        throw new EncodingException("Unknown LpPacket header that must not be ignored: " + type);
+      }
+      in.position(fieldEnd);
+    }
+    if (frame.fragCount < 1 || frame.fragIndex >= frame.fragCount) {
+      throw new EncodingException("Invalid fragment " + frame.fragIndex + " of " + frame.fragCount);
+    }
+    return frame;
+  }
+
+  /**
+   * @param type the type of a field
+   * @param length the length of its value
+   * @return the number of bytes of the encoded field
+   */
+  static int fieldSize(long type, int length) {
+    return varNumberSize(type) + varNumberSize(length) + length;
+  }
+
+  private int headerSize() {
+    int size = 0;
+    if (hasSequence) {
+      size += fieldSize(Tlv.LpPacket_Sequence, SEQUENCE_LENGTH);
+    }
+    if (fragCount > 1) {
+      size += nonNegativeIntegerFieldSize(Tlv.LpPacket_FragIndex, fragIndex);
+      size += nonNegativeIntegerFieldSize(Tlv.LpPacket_FragCount, fragCount);
+    }
+    if (nackReason != NO_NACK) {
+      size += fieldSize(Tlv.LpPacket_Nack,
+          nackReason > 0 ? nonNegativeIntegerFieldSize(Tlv.LpPacket_NackReason, nackReason) : 0);
+    }
+    if (congestionMark != 0) {
+      size += nonNegativeIntegerFieldSize(Tlv.LpPacket_CongestionMark, congestionMark);
+    }
+    return size;
+  }
+
+  private static int nonNegativeIntegerFieldSize(long type, long value) {
+    return fieldSize(type, nonNegativeIntegerSize(value));
+  }
+
+  private static int nonNegativeIntegerSize(long value) {
+    if (value >= 0 && value <= 0xff) {
+      return 1;
+    } else if (value >= 0 && value <= 0xffff) {
+      return 2;
+    } else if (value >= 0 && value <= 0xffffffffL) {
+      return 4;
+    }
+    return 8;
+  }
+
+  private static int varNumberSize(long value) {
+    if (value < 253) {
+      return 1;
+    } else if (value <= 0xffff) {
+      return 3;
+    } else if (value <= 0xffffffffL) {
+      return 5;
+    }
+    return 9;
+  }
+
+  private static void writeVarNumber(ByteBuffer out, long value) {
+    if (value < 253) {
+      out.put((byte) value);
+    } else if (value <= 0xffff) {
+      out.put((byte) 253).putShort((short) value);
+    } else if (value <= 0xffffffffL) {
+      out.put((byte) 254).putInt((int) value);
+    } else {
+      out.put((byte) 255).putLong(value);
+    }
+  }
+
+  private static void writeNonNegativeInteger(ByteBuffer out, long type, long value) {
+    int size = nonNegativeIntegerSize(value);
+    writeVarNumber(out, type);
+    writeVarNumber(out, size);
+    switch (size) {
+      case 1:
+        out.put((byte) value);
+        break;
+      case 2:
+        out.putShort((short) value);
+        break;
+      case 4:
+        out.putInt((int) value);
+        break;
+      default:
+        out.putLong(value);
+    }
+  }
+
+  private static long readVarNumber(ByteBuffer in) throws EncodingException {
+    if (!in.hasRemaining()) {
+      throw new EncodingException("Truncated LpPacket");
+    }
+    int first = in.get() & 0xff;
+    if (first < 253) {
+      return first;
+    }
+    int size = first == 253 ? 2 : first == 254 ? 4 : 8;
+    return readNonNegativeInteger(in, size);
+  }
+
+  private static int readLength(ByteBuffer in, int end) throws EncodingException {
+    long length = readVarNumber(in);
+    if (length < 0 || length > end - in.position()) {
+      throw new EncodingException("LpPacket field length " + length + " exceeds the enclosing field");
+    }
+    return in.position() + (int) length;
+  }
+
+  private static long readNonNegativeInteger(ByteBuffer in, int length) throws EncodingException {
+    if (in.remaining() < length) {
+      throw new EncodingException("Truncated LpPacket");
+    }
+    switch (length) {
+      case 1:
+        return in.get() & 0xffL;
+      case 2:
+        return in.getShort() & 0xffffL;
+      case 4:
+        return in.getInt() & 0xffffffffL;
+      case 8:
+        return in.getLong();
+      default:
+        throw new EncodingException("Invalid NonNegativeInteger length: " + length);
+    }
+  }
+
+  private static int toInt(long value) throws EncodingException {
+    if (value < 0 || value > Integer.MAX_VALUE) {
+      throw new EncodingException("Value out of range: " + value);
+    }
+    return (int) value;
+  }
+}
@@ -20,7 +20,8 @@ import net.named_data.jndn.Interest;
 import java.util.Collection;
 
 /**
- * Provide API for measuring packet use on a given face.
+ * Provide API for measuring packet use on a given face. Counters and latencies are always available through
+ * {@link #metrics()}; the packet histories may be empty unless the face was created with history enabled.
  *
  * @author Andrew Brown, andrew.brown@intel.com
  */
@@ -44,4 +45,27 @@ public interface MeasurableFace {
    * @return all data packets received by the measured face
    */
   Collection<Data> receivedDatas();
+
+  /**
+   * By default the counters are derived from the packet histories each time this is called, and no round trip times
+   * are measured; faces keeping live counters override this.
+   *
+   * @return the packet counters and round trip times of the measured face
+   */
+  default FaceMetrics metrics() {
+    FaceMetrics metrics = new FaceMetrics();
+    for (Interest interest : sentInterests()) {
+      metrics.recordSent(interest.wireEncode().buf());
+    }
+    for (Data data : sentDatas()) {
+      metrics.recordSent(data.wireEncode().buf());
+    }
+    for (Interest interest : receivedInterests()) {
+      metrics.recordReceived(interest.wireEncode().buf());
+    }
+    for (Data data : receivedDatas()) {
+      metrics.recordReceived(data.wireEncode().buf());
+    }
+    return metrics;
+  }
 }
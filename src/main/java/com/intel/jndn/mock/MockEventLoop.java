@@ -0,0 +1,339 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Face;
+import net.named_data.jndn.encoding.EncodingException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Event loop driving attached mock faces: instead of the caller polling {@link Face#processEvents()}, a face's events
+ * are processed on the loop's executor as soon as its {@link MockTransport} receives a block. A face is never
+ * processed by two threads at once, so one loop may be shared by many faces on a thread pool, or each face may have
+ * a loop of its own.
+ * <p>
+ * Alternatively, {@link #threadPerFace()} gives every attached face a thread of its own that parks until the face's
+ * transport has data; on Java 21 and later these are virtual threads, so fleets of many thousands of faces neither
+ * need a platform thread each nor serialize behind a single polling thread.
+ * <p>
+ * Interest timeouts and other delayed calls are only checked when a face processes events; the loop therefore also
+ * processes every attached face at a fixed timer interval.
+ */
+public class MockEventLoop implements Closeable {
+  private static final Logger LOGGER = Logger.getLogger(MockEventLoop.class.getName());
+  private static final long DEFAULT_TIMER_INTERVAL_MS = 100;
+  private static final AtomicInteger LOOP_IDS = new AtomicInteger();
+  private final Executor executor;
+  private final ExecutorService ownedExecutor;
+  private final ThreadFactory faceThreads;
+  private final long timerIntervalNanos;
+  private final ScheduledExecutorService timer;
+  private final Map<MockTransport, Driver> tasks = new ConcurrentHashMap<>();
+
+  /**
+   * Drives the events of one face.
+   */
+  private interface Driver extends MockTransport.OnReadySignal {
+    /**
+     * Process the face soon, e.g. to check its timeouts.
+     */
+    void schedule();
+
+    /**
+     * Stop processing the face.
+     */
+    void stop();
+  }
+
+  /**
+   * Create a loop processing its faces on a single thread of its own, checking timeouts every 100 ms.
+   */
+  public MockEventLoop() {
+    this(Executors.newSingleThreadExecutor(daemonThreads("mock-event-loop-" + LOOP_IDS.incrementAndGet())),
+        DEFAULT_TIMER_INTERVAL_MS, true, null);
+  }
+
+  /**
+   * @param executor the executor processing face events, e.g. a thread pool shared by many faces; it is not shut
+   * down when the loop is closed
+   * @param timerIntervalMs the interval at which every face is processed to check timeouts, or 0 to never check
+   */
+  public MockEventLoop(Executor executor, long timerIntervalMs) {
+    this(executor, timerIntervalMs, false, null);
+  }
+
+  /**
+   * Create a loop processing its faces as tasks of a scheduler, e.g. a {@link VirtualScheduler}; the loop has no
+   * timer of its own, so timeouts must also be driven by the scheduler.
+   *
+   * @param scheduler the scheduler running face events
+   */
+  public MockEventLoop(final Scheduler scheduler) {
+    this(new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        scheduler.schedule(task, 0);
+      }
+    }, 0, false, null);
+  }
+
+  private MockEventLoop(Executor executor, long timerIntervalMs, boolean owned, ThreadFactory faceThreads) {
+    if (timerIntervalMs < 0) {
+      throw new IllegalArgumentException("Timer interval must not be negative: " + timerIntervalMs);
+    }
+    this.executor = executor;
+    this.ownedExecutor = owned ? (ExecutorService) executor : null;
+    this.faceThreads = faceThreads;
+    this.timerIntervalNanos = TimeUnit.MILLISECONDS.toNanos(timerIntervalMs);
+    if (timerIntervalMs > 0 && faceThreads == null) {
+      timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("mock-event-loop-timer"));
+      timer.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          for (Driver task : tasks.values()) {
+            task.schedule();
+          }
+        }
+      }, timerIntervalMs, timerIntervalMs, TimeUnit.MILLISECONDS);
+    } else {
+      timer = null;
+    }
+  }
+
+  /**
+   * Create a loop running each attached face on a thread of its own that parks until the face has packets waiting,
+   * checking timeouts every 100 ms.
+   *
+   * @return a new loop
+   * @see #isVirtual()
+   */
+  public static MockEventLoop threadPerFace() {
+    return threadPerFace(DEFAULT_TIMER_INTERVAL_MS);
+  }
+
+  /**
+   * Create a loop running each attached face on a thread of its own that parks until the face has packets waiting.
+   *
+   * @param timerIntervalMs the interval at which each face is processed to check timeouts, or 0 to never check
+   * @return a new loop
+   * @see #isVirtual()
+   */
+  public static MockEventLoop threadPerFace(long timerIntervalMs) {
+    return new MockEventLoop(null, timerIntervalMs, false,
+        ThreadFactories.perFace("mock-face-" + LOOP_IDS.incrementAndGet()));
+  }
+
+  /**
+   * @return true if {@link #threadPerFace()} loops run faces on virtual threads; this is the case when running on
+   * Java 21 or later from the multi-release JAR
+   */
+  public static boolean isVirtual() {
+    return ThreadFactories.isVirtual();
+  }
+
+  /**
+   * Start driving a face; its transport becomes asynchronous.
+   *
+   * @param face the face to process
+   * @param transport the transport of the face
+   */
+  void attach(Face face, MockTransport transport) {
+    Driver task;
+    if (faceThreads != null) {
+      FaceThread faceThread = new FaceThread(face);
+      faceThread.thread = faceThreads.newThread(faceThread);
+      task = faceThread;
+    } else {
+      task = new FaceTask(face);
+    }
+    tasks.put(transport, task);
+    transport.setOnReady(task);
+    if (task instanceof FaceThread) {
+      ((FaceThread) task).thread.start();
+    }
+  }
+
+  /**
+   * Stop driving a face; the caller must poll it again.
+   *
+   * @param transport the transport of the face
+   */
+  void detach(MockTransport transport) {
+    Driver task = tasks.remove(transport);
+    if (task != null) {
+      transport.setOnReady(null);
+      task.stop();
+    }
+  }
+
+  /**
+   * @return the number of faces driven by the loop
+   */
+  public int size() {
+    return tasks.size();
+  }
+
+  /**
+   * Stop the timer and, if the loop created its own thread, the thread; attached faces stop being processed.
+   */
+  @Override
+  public void close() {
+    for (MockTransport transport : tasks.keySet()) {
+      detach(transport);
+    }
+    if (timer != null) {
+      timer.shutdownNow();
+    }
+    if (ownedExecutor != null) {
+      ownedExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Processes one face, serially: a face signalled while it is being processed is processed again afterwards rather
+   * than concurrently.
+   */
+  private final class FaceTask implements Runnable, Driver {
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int RESCHEDULED = 2;
+    private final Face face;
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    FaceTask(Face face) {
+      this.face = face;
+    }
+
+    @Override
+    public void ready(MockTransport transport) {
+      schedule();
+    }
+
+    @Override
+    public void schedule() {
+      while (true) {
+        int current = state.get();
+        if (current == IDLE) {
+          if (state.compareAndSet(IDLE, SCHEDULED)) {
+            executor.execute(this);
+            return;
+          }
+        } else if (current == SCHEDULED) {
+          if (state.compareAndSet(SCHEDULED, RESCHEDULED)) {
+            return;
+          }
+        } else {
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void stop() {
+      // the executor is shut down, or not ours to shut down; a pass already scheduled simply runs
+    }
+
+    @Override
+    public void run() {
+      do {
+        state.set(SCHEDULED);
+        try {
+          face.processEvents();
+        } catch (IOException | EncodingException e) {
+          LOGGER.log(Level.INFO, "Failed to process face events", e);
+        } catch (RuntimeException e) {
+          LOGGER.log(Level.WARNING, "Face callback failed", e);
+        }
+      } while (!state.compareAndSet(SCHEDULED, IDLE));
+    }
+  }
+
+  /**
+   * Processes one face on a dedicated thread that parks whenever the face has nothing waiting.
+   */
+  private final class FaceThread implements Runnable, Driver {
+    private final Face face;
+    private final AtomicBoolean pending = new AtomicBoolean(true);
+    private volatile boolean running = true;
+    private Thread thread;
+
+    FaceThread(Face face) {
+      this.face = face;
+    }
+
+    @Override
+    public void ready(MockTransport transport) {
+      schedule();
+    }
+
+    @Override
+    public void schedule() {
+      pending.set(true);
+      LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void stop() {
+      running = false;
+      LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        if (pending.getAndSet(false)) {
+          try {
+            face.processEvents();
+          } catch (IOException | EncodingException e) {
+            LOGGER.log(Level.INFO, "Failed to process face events", e);
+          } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Face callback failed", e);
+          }
+        } else if (timerIntervalNanos > 0) {
+          LockSupport.parkNanos(this, timerIntervalNanos);
+          pending.set(true); // woken either by a signal or the timer; both mean process the face
+        } else {
+          LockSupport.park(this);
+        }
+      }
+    }
+  }
+
+  private static ThreadFactory daemonThreads(final String name) {
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+}
@@ -19,19 +19,26 @@ import net.named_data.jndn.Data;
 import net.named_data.jndn.Face;
 import net.named_data.jndn.Interest;
 import net.named_data.jndn.Name;
+import net.named_data.jndn.NetworkNack;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnNetworkNack;
+import net.named_data.jndn.OnTimeout;
 import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.encoding.TlvWireFormat;
+import net.named_data.jndn.encoding.WireFormat;
 import net.named_data.jndn.encoding.tlv.Tlv;
 import net.named_data.jndn.encoding.tlv.TlvDecoder;
 import net.named_data.jndn.security.KeyChain;
 import net.named_data.jndn.security.SecurityException;
-import net.named_data.jndn.security.pib.PibImpl;
-import net.named_data.jndn.security.tpm.TpmBackEnd;
 import net.named_data.jndn.transport.Transport;
+import net.named_data.jndn.util.Blob;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,20 +54,24 @@ public class MockFace extends Face {
    * <p/>
    * Sent Interests are appended to this container if options.enablePacketLogger
    * is true. User of this class is responsible for cleaning up the container,
-   * if necessary. After .expressInterest, .processEvents must be called before
-   * the Interest would show up here.
+   * if necessary, unless a capture capacity is set in {@link Options}. After
+   * .expressInterest, .processEvents must be called before the Interest would
+   * show up here. The container is a live, thread-safe {@link PacketCapture};
+   * use {@link #getSentInterests()} for a stable copy.
    */
-  public final List<Interest> sentInterests = new ArrayList<>();
+  public final List<Interest> sentInterests;
 
   /**
    * Data sent out of this MockFace.
    * <p/>
    * Sent Data are appended to this container if options.enablePacketLogger is
    * true. User of this class is responsible for cleaning up the container, if
-   * necessary. After .put, .processEvents must be called before the Data would
-   * show up here.
+   * necessary, unless a capture capacity is set in {@link Options}. After .put,
+   * .processEvents must be called before the Data would show up here. The
+   * container is a live, thread-safe {@link PacketCapture}; use
+   * {@link #getSentData()} for a stable copy.
    */
-  public final List<Data> sentData = new ArrayList<>();
+  public final List<Data> sentData;
 
   /**
    * Emits whenever an Interest is sent.
@@ -79,8 +90,13 @@ public class MockFace extends Face {
   public final List<SignalOnSendData> onSendData = new ArrayList<>();
 
   private static final Logger LOGGER = Logger.getLogger(MockFace.class.getName());
+  private static final int NACK_CONGESTION = 50;
+  private static final int NACK_DUPLICATE = 100;
+  private static final int NACK_NO_ROUTE = 150;
   private MockTransport transport;
   private KeyChain keyChain;
+  private MockKeyChain.SigningMode signingMode;
+  private final Scheduler scheduler;
 
   /////////////////////////////////////////////////////////////////////////////
 
@@ -113,6 +129,15 @@ public class MockFace extends Face {
   public static class Options {
     private boolean enablePacketLogging = false;
     private boolean enableRegistrationReply = false;
+    private int captureCapacity = 0;
+    private int captureSampling = 1;
+    private Name captureFilter = null;
+    private MockEventLoop eventLoop = null;
+    private MockKeyChain.SigningMode signingMode = MockKeyChain.SigningMode.RSA;
+    private EmulatedLink link = null;
+    private LinkService linkService = null;
+    private Scheduler scheduler = null;
+    private TraceWriter traceWriter = null;
 
     /**
      * @return true if packet logging is enabled
@@ -150,6 +175,174 @@ public class MockFace extends Face {
       this.enableRegistrationReply = enableRegistrationReply;
       return this;
     }
+
+    /**
+     * @return the maximum number of packets of each type kept by packet logging, or 0 if unbounded
+     */
+    public int getCaptureCapacity() {
+      return captureCapacity;
+    }
+
+    /**
+     * Bound the memory used by packet logging.
+     *
+     * @param captureCapacity the maximum number of packets of each type kept, oldest overwritten first; 0 (the
+     *                        default) keeps every packet
+     * @return this
+     */
+    public Options setCaptureCapacity(final int captureCapacity) {
+      this.captureCapacity = captureCapacity;
+      return this;
+    }
+
+    /**
+     * @return the packet logging sampling rate
+     */
+    public int getCaptureSampling() {
+      return captureSampling;
+    }
+
+    /**
+     * Log only a sample of the sent packets.
+     *
+     * @param captureSampling log one in this many packets of each type (after filtering); 1 (the default) logs every
+     *                        packet
+     * @return this
+     */
+    public Options setCaptureSampling(final int captureSampling) {
+      this.captureSampling = captureSampling;
+      return this;
+    }
+
+    /**
+     * @return the name prefix packets must match to be logged, or null if all packets are logged
+     */
+    public Name getCaptureFilter() {
+      return captureFilter;
+    }
+
+    /**
+     * Log only packets under a name prefix.
+     *
+     * @param captureFilter the name prefix packets must match to be logged; null (the default) logs all packets
+     * @return this
+     */
+    public Options setCaptureFilter(final Name captureFilter) {
+      this.captureFilter = captureFilter;
+      return this;
+    }
+
+    /**
+     * @return the event loop processing events of the face, or null if the caller must call processEvents()
+     */
+    public MockEventLoop getEventLoop() {
+      return eventLoop;
+    }
+
+    /**
+     * Process events of the face on an event loop instead of by polling processEvents().
+     *
+     * @param eventLoop the loop to attach the face to, or null (the default) to poll
+     * @return this
+     */
+    public Options setEventLoop(final MockEventLoop eventLoop) {
+      this.eventLoop = eventLoop;
+      return this;
+    }
+
+    /**
+     * @return the signing mode of the face (registration replies and command interests)
+     */
+    public MockKeyChain.SigningMode getSigningMode() {
+      return signingMode;
+    }
+
+    /**
+     * Choose how the face signs registration replies and command interests; cheaper modes speed up
+     * registration-heavy tests.
+     *
+     * @param signingMode the signing mode; {@link MockKeyChain.SigningMode#RSA} by default
+     * @return this
+     */
+    public Options setSigningMode(final MockKeyChain.SigningMode signingMode) {
+      this.signingMode = signingMode;
+      return this;
+    }
+
+    /**
+     * @return the link that packets received by the face cross, or null if they arrive immediately
+     */
+    public EmulatedLink getLink() {
+      return link;
+    }
+
+    /**
+     * Emulate the link towards the face: packets passed to the receive methods arrive after its delay, if at all.
+     *
+     * @param link the link, or null (the default) for immediate delivery
+     * @return this
+     */
+    public Options setLink(final EmulatedLink link) {
+      this.link = link;
+      return this;
+    }
+
+    /**
+     * @return the NDNLPv2 link service of packets received by the face, or null if they arrive bare
+     */
+    public LinkService getLinkService() {
+      return linkService;
+    }
+
+    /**
+     * Frame packets received by the face with NDNLPv2, e.g. to fragment large data over a {@link #setLink(EmulatedLink)
+     * link} with a small MTU.
+     *
+     * @param linkService the link service, or null (the default) to receive bare packets
+     * @return this
+     */
+    public Options setLinkService(final LinkService linkService) {
+      this.linkService = linkService;
+      return this;
+    }
+
+    /**
+     * @return the scheduler timing the face, or null if it runs on the wall clock
+     */
+    public Scheduler getScheduler() {
+      return scheduler;
+    }
+
+    /**
+     * Run the face on a scheduler, typically a {@link VirtualScheduler}: interest timeouts and {@code callLater}
+     * callbacks are timed by the scheduler, and unless an event loop is set, the face's events are processed as
+     * scheduler tasks.
+     *
+     * @param scheduler the scheduler, or null (the default) to run on the wall clock
+     * @return this
+     */
+    public Options setScheduler(final Scheduler scheduler) {
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    /**
+     * @return the trace recording the packets of the face, or null if none
+     */
+    public TraceWriter getTraceWriter() {
+      return traceWriter;
+    }
+
+    /**
+     * Record every packet the face sends and receives, as raw blocks, for later replay with a {@link TraceReplayer}.
+     *
+     * @param traceWriter the trace, or null (the default) to record nothing
+     * @return this
+     */
+    public Options setTraceWriter(final TraceWriter traceWriter) {
+      this.traceWriter = traceWriter;
+      return this;
+    }
   }
 
   /**
@@ -190,10 +383,18 @@ public class MockFace extends Face {
   public MockFace(final Options options) {
     super(new MockTransport(), null);
     transport = (MockTransport) node_.getTransport();
+    sentInterests = new PacketCapture<>(options.getCaptureCapacity(), options.getCaptureSampling());
+    sentData = new PacketCapture<>(options.getCaptureCapacity(), options.getCaptureSampling());
+    final Name captureFilter = options.getCaptureFilter();
     transport.setOnSendBlock(new OnIncomingPacket());
+    transport.setLink(options.getLink());
+    transport.setLinkService(options.getLinkService());
+    transport.setTraceWriter(options.getTraceWriter());
+    scheduler = options.getScheduler();
 
     try {
-      keyChain = MockKeyChain.configure(new Name("/mock/key"));
+      signingMode = options.getSigningMode();
+      keyChain = MockKeyChain.configure(new Name("/mock/key"), signingMode);
       setCommandSigningInfo(keyChain, keyChain.getDefaultCertificateName());
     } catch (SecurityException ex) {
       LOGGER.log(Level.SEVERE, "Unexpected error in MockKeyChain; this class should never throw", ex);
@@ -204,14 +405,18 @@ public class MockFace extends Face {
       onSendInterest.add(new SignalOnSendInterest() {
         @Override
         public void emit(final Interest interest) {
-          sentInterests.add(interest);
+          if (captureFilter == null || captureFilter.match(interest.getName())) {
+            sentInterests.add(interest);
+          }
         }
       });
 
       onSendData.add(new SignalOnSendData() {
         @Override
         public void emit(final Data data) {
-          sentData.add(data);
+          if (captureFilter == null || captureFilter.match(data.getName())) {
+            sentData.add(data);
+          }
         }
       });
     }
@@ -219,18 +424,74 @@ public class MockFace extends Face {
     if (options.isEnableRegistrationReply()) {
       onSendInterest.add(new OnPrefixRegistration());
     }
+
+    if (options.getEventLoop() != null) {
+      options.getEventLoop().attach(this, transport);
+    } else if (scheduler != null) {
+      new MockEventLoop(scheduler).attach(this, transport);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long expressInterest(final Interest interest, final OnData onData, final OnTimeout onTimeout,
+                              final OnNetworkNack onNetworkNack, final WireFormat wireFormat) throws IOException {
+    if (scheduler == null) {
+      return super.expressInterest(interest, onData, onTimeout, onNetworkNack, wireFormat);
+    }
+    ScheduledTimeout callbacks = new ScheduledTimeout(interest, onData, onTimeout, onNetworkNack);
+    long pendingInterestId = super.expressInterest(interest, callbacks, callbacks, callbacks, wireFormat);
+    callbacks.start(this, pendingInterestId, scheduler);
+    return pendingInterestId;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long expressInterest(final Name name, final Interest interestTemplate, final OnData onData,
+                              final OnTimeout onTimeout, final OnNetworkNack onNetworkNack,
+                              final WireFormat wireFormat) throws IOException {
+    if (scheduler == null) {
+      return super.expressInterest(name, interestTemplate, onData, onTimeout, onNetworkNack, wireFormat);
+    }
+    return expressInterest(getInterestCopy(name, interestTemplate), onData, onTimeout, onNetworkNack, wireFormat);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void callLater(final double delayMilliseconds, final Runnable callback) {
+    if (scheduler == null) {
+      super.callLater(delayMilliseconds, callback);
+    } else {
+      scheduler.schedule(callback, (long) (delayMilliseconds * TimeUnit.MILLISECONDS.toNanos(1)));
+    }
   }
 
   /**
    * Route incoming packets to the correct callbacks.
    */
   private class OnIncomingPacket implements MockTransport.OnSendBlockSignal {
+    private final LinkService linkService = new LinkService();
+
     /**
      * {@inheritDoc}
      */
     @Override
-    public void emit(final ByteBuffer buffer) {
-      // @todo Implement NDNLP processing
+    public void emit(final ByteBuffer frame) {
+      ByteBuffer buffer = linkService.decode(frame);
+      if (buffer == null) {
+        return; // a fragment of a packet not yet complete, a frame without packet, or malformed
+      }
+      if (buffer.get(buffer.position()) == (byte) Tlv.LpPacket_LpPacket) {
+        LOGGER.fine("Received a network Nack or congestion mark; ignoring it");
+        return;
+      }
+      buffer = buffer.slice();
 
       try {
         if (buffer.get(0) == Tlv.Interest || buffer.get(0) == Tlv.Data) {
@@ -297,8 +558,8 @@ public class MockFace extends Face {
       data.setName(interest.getName());
       data.setContent(response.wireEncode());
       try {
-        keyChain.sign(data);
-      } catch (SecurityException | KeyChain.Error | TpmBackEnd.Error | PibImpl.Error e) {
+        MockKeyChain.sign(keyChain, data, signingMode);
+      } catch (SecurityException e) {
         LOGGER.log(Level.FINE, "MockKeyChain signing failed", e);
       }
 
@@ -330,6 +591,91 @@ public class MockFace extends Face {
     transport.receive(data.wireEncode().buf());
   }
 
+  /**
+   * Mock reception of a batch of Interest and Data packets on the Face, in order. The packets are encoded into one
+   * buffer that is queued at once, which is much cheaper than receiving them one by one when priming a face with
+   * many packets.
+   *
+   * @param packets the mock-remote {@link Interest} and {@link Data} packets
+   * @throws EncodingException if packet encoding fails (it should not)
+   * @throws IllegalArgumentException if a packet is neither an Interest nor Data
+   */
+  public void receive(final Collection<?> packets) throws EncodingException {
+    Blob[] encoded = new Blob[packets.size()];
+    long size = 0;
+    int i = 0;
+    for (Object packet : packets) {
+      if (packet instanceof Data) {
+        encoded[i] = ((Data) packet).wireEncode();
+      } else if (packet instanceof Interest) {
+        encoded[i] = ((Interest) packet).wireEncode();
+      } else {
+        throw new IllegalArgumentException("Not an Interest or Data packet: " + packet);
+      }
+      size += encoded[i++].size();
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Batch of " + size + " bytes does not fit one buffer");
+    }
+
+    ByteBuffer elements = ByteBuffer.allocate((int) size);
+    for (Blob blob : encoded) {
+      elements.put(blob.buf().duplicate());
+    }
+    elements.flip();
+    transport.receiveElements(elements);
+  }
+
+  /**
+   * Mock reception of already encoded packets on the Face, e.g. a recorded capture.
+   *
+   * @param elements consecutive TLV-encoded packets, from the buffer's position to its limit
+   * @throws EncodingException if the buffer does not hold whole TLV elements
+   * @see MockTransport#receiveElements(ByteBuffer)
+   */
+  public void receiveElements(final ByteBuffer elements) throws EncodingException {
+    transport.receiveElements(elements);
+  }
+
+  /**
+   * Mock reception of a network Nack for an interest on the Face, as an NDNLPv2 LpPacket with a Nack header.
+   *
+   * @param interest the interest being nacked, as previously expressed on the face
+   * @param nack the Nack, giving its reason
+   */
+  public void receive(final Interest interest, final NetworkNack nack) {
+    transport.receiveNack(interest.wireEncode().buf(), reasonCode(nack));
+  }
+
+  private static int reasonCode(final NetworkNack nack) {
+    switch (nack.getReason()) {
+      case CONGESTION:
+        return NACK_CONGESTION;
+      case DUPLICATE:
+        return NACK_DUPLICATE;
+      case NO_ROUTE:
+        return NACK_NO_ROUTE;
+      case OTHER_CODE:
+        return nack.getOtherReasonCode();
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * @return a copy of the logged interests, oldest first
+   */
+  public List<Interest> getSentInterests() {
+    return ((PacketCapture<Interest>) sentInterests).snapshot();
+  }
+
+  /**
+   * @return a copy of the logged data packets, oldest first
+   */
+  public List<Data> getSentData() {
+    return ((PacketCapture<Data>) sentData).snapshot();
+  }
+
   /**
    * @return the callback for this face
    */
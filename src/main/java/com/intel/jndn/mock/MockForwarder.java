@@ -15,10 +15,15 @@
 package com.intel.jndn.mock;
 
 import com.intel.jndn.mock.forwarder.BufferHandler;
+import com.intel.jndn.mock.forwarder.ClientFibEntry;
 import com.intel.jndn.mock.forwarder.FibImpl;
+import com.intel.jndn.mock.forwarder.ForwardingStatistics;
 import com.intel.jndn.mock.forwarder.LocalFibEntry;
 import com.intel.jndn.mock.forwarder.OnPrefixRegistration;
+import com.intel.jndn.mock.forwarder.PeerTransport;
 import com.intel.jndn.mock.forwarder.PitImpl;
+import com.intel.jndn.mock.forwarder.StrategyChoiceTable;
+import com.intel.jndn.mock.forwarder.WirePacket;
 import net.named_data.jndn.Data;
 import net.named_data.jndn.Face;
 import net.named_data.jndn.Interest;
@@ -27,15 +32,24 @@ import net.named_data.jndn.OnData;
 import net.named_data.jndn.OnNetworkNack;
 import net.named_data.jndn.OnTimeout;
 import net.named_data.jndn.RegistrationOptions;
+import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.encoding.WireFormat;
 import net.named_data.jndn.security.KeyChain;
 import net.named_data.jndn.security.SecurityException;
 import net.named_data.jndn.transport.Transport;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -46,10 +60,26 @@ import java.util.logging.Logger;
  */
 public class MockForwarder {
   private static final Logger LOGGER = Logger.getLogger(MockForwarder.class.getName());
+  private static final long PUMP_SWEEP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
   private final KeyChain keyChain;
   private final Name certName;
   private final Fib fib = new FibImpl();
-  private final Pit pit = new PitImpl();
+  private final PitImpl pit;
+  private final ContentStore contentStore;
+  private final boolean enableHistory;
+  private final MockEventLoop eventLoop;
+  private final EmulatedLink.Options link;
+  private final LinkService.Options linkService;
+  private final Scheduler scheduler;
+  private final Clock clock;
+  private final TraceWriter traceWriter;
+  private final ForwardingStatistics statistics = new ForwardingStatistics();
+  private final ForwarderMBeans mbeans;
+  private final Queue<MockForwarderFace> faces = new ConcurrentLinkedQueue<>();
+  private final Queue<MockForwarderFace> readyFaces = new ConcurrentLinkedQueue<>();
+  private final Map<MockForwarder, PeerTransport> peers = new ConcurrentHashMap<>();
+  private final StrategyChoiceTable strategies = new StrategyChoiceTable();
+  private volatile Thread pump;
 
   /**
    * Forwarding information base API; use this for recording FIB entries.
@@ -61,6 +91,14 @@ public class MockForwarder {
      */
     Collection<FibEntry> find(Interest interest);
 
+    /**
+     * @param interest the incoming client interest, as received on the wire
+     * @return all FIB entries matching the interest
+     */
+    default Collection<FibEntry> find(WirePacket interest) {
+      return find(interest.getInterest());
+    }
+
     /**
      * @param entry a new FIB entry to add; enables routing to the face (or more correctly, channel) contained in this
      * entry
@@ -78,6 +116,17 @@ public class MockForwarder {
      */
     void forward(Interest interest, Transport sourceTransport);
 
+    /**
+     * Forward an interest as received on the wire; entries that only pass the packet on should override this to
+     * reuse the wire encoding instead of re-encoding the decoded interest.
+     *
+     * @param interest the interest to forward, with its wire encoding
+     * @param sourceTransport the source of the interest for use in the callback
+     */
+    default void forward(WirePacket interest, Transport sourceTransport) {
+      forward(interest.getInterest(), sourceTransport);
+    }
+
     /**
      * @return then entry prefix name
      */
@@ -87,6 +136,63 @@ public class MockForwarder {
      * @return the entry flags
      */
     RegistrationOptions getFlags();
+
+    /**
+     * @return the cost of the route, as registered; strategies prefer cheaper routes
+     */
+    default int getCost() {
+      return 0;
+    }
+
+    /**
+     * @return the destination of the entry, e.g. its transport; a prefix holds at most one entry per next hop, as
+     * compared by {@link Object#equals(Object)}
+     */
+    default Object getNextHop() {
+      return this;
+    }
+  }
+
+  /**
+   * Forwarding strategy API; decides where interests go. Strategies are chosen per name prefix, see
+   * {@link #setStrategy(Name, Strategy)}, and must be thread-safe.
+   */
+  public interface Strategy {
+    /**
+     * Forward a new interest, i.e. one not already pending in the PIT.
+     *
+     * @param interest the interest, as received on the wire
+     * @param nextHops the FIB entries matching the interest, longest prefix first; entries leading back to the source
+     * have been removed
+     * @param sourceTransport the transport the interest came from
+     */
+    void afterReceiveInterest(WirePacket interest, List<FibEntry> nextHops, Transport sourceTransport);
+
+    /**
+     * Forward an interest that is either new or retransmitted by a downstream face already waiting on its pending PIT
+     * entry, with a new nonce. By default retransmissions are forwarded like new interests.
+     *
+     * @param interest the interest, as received on the wire
+     * @param nextHops the FIB entries matching the interest, longest prefix first; entries leading back to the source
+     * have been removed
+     * @param sourceTransport the transport the interest came from
+     * @param upstreams the next hops the pending entry was already forwarded to, from least to most recently (see
+     * {@link FibEntry#getNextHop()}); empty for a new interest
+     */
+    default void afterReceiveInterest(WirePacket interest, List<FibEntry> nextHops, Transport sourceTransport,
+                                      List<Object> upstreams) {
+      afterReceiveInterest(interest, nextHops, sourceTransport);
+    }
+
+    /**
+     * Called when data satisfies a pending interest chosen by this strategy, before the data is forwarded
+     * downstream; e.g. to measure round-trip times.
+     *
+     * @param entry the satisfied PIT entry
+     * @param data the data packet
+     */
+    default void beforeSatisfyInterest(PitEntry entry, WirePacket data) {
+    }
   }
 
   /**
@@ -104,11 +210,90 @@ public class MockForwarder {
      */
     boolean has(Interest interest);
 
+    /**
+     * @param interest the incoming interest to match against, as received on the wire
+     * @return true if the interest matches an entry already in the PIT
+     */
+    default boolean has(WirePacket interest) {
+      return has(interest.getInterest());
+    }
+
     /**
      * @param name the name to match against
      * @return the PIT entries matching a name, removing them from the PIT
      */
     Collection<PitEntry> extract(Name name);
+
+    /**
+     * Record an interest received from a downstream face. If an entry for the same name and selectors is pending, the
+     * face is added to it, so that one upstream data satisfies every face waiting for it; otherwise a new entry is
+     * created.
+     * <p>
+     * The default implementation keeps the behavior of tables that only implement {@link #has(WirePacket)} and
+     * {@link #add(PitEntry)}: an interest matching a pending entry is swallowed without recording its face, and any
+     * other interest is added as a new entry answering its downstream face.
+     *
+     * @param interest the incoming interest, as received on the wire
+     * @param downstream the face the interest arrived on
+     * @return whether the interest must be forwarded upstream
+     */
+    default Insertion insert(WirePacket interest, MockTransport downstream) {
+      if (has(interest)) {
+        return Insertion.AGGREGATED;
+      }
+      add(new DownstreamPitEntry(interest, downstream));
+      return Insertion.NEW;
+    }
+
+    /**
+     * Record that the pending entry of an interest was forwarded upstream; its nonce then identifies the interest if
+     * it loops back.
+     *
+     * @param interest the forwarded interest
+     * @param nextHop the upstream, see {@link FibEntry#getNextHop()}
+     */
+    default void addOutRecord(WirePacket interest, Object nextHop) {
+    }
+
+    /**
+     * @param interest an incoming interest
+     * @return the upstreams the pending entry of the interest was already forwarded to, from least to most recently;
+     * empty if no entry is pending or it was not forwarded yet
+     */
+    default List<Object> getUpstreams(WirePacket interest) {
+      return Collections.emptyList();
+    }
+
+    /**
+     * Outcome of {@link #insert(WirePacket, MockTransport)}.
+     */
+    enum Insertion {
+      /**
+       * No entry was pending; the interest must be forwarded.
+       */
+      NEW,
+      /**
+       * The face was added to a pending entry; the interest must not be forwarded again.
+       */
+      AGGREGATED,
+      /**
+       * A face already waiting on a pending entry sent the interest again; it is forwarded again, e.g. to let a
+       * strategy try another next hop.
+       */
+      RETRANSMITTED,
+      /**
+       * The nonce of the interest was already received from another face or forwarded upstream; the interest looped
+       * and must be dropped.
+       */
+      LOOPED;
+
+      /**
+       * @return true if the interest must be forwarded upstream
+       */
+      public boolean isForwarded() {
+        return this == NEW || this == RETRANSMITTED;
+      }
+    }
   }
 
   /**
@@ -120,17 +305,51 @@ public class MockForwarder {
      */
     void forward(Data data);
 
+    /**
+     * Forward a data packet as received on the wire; entries that only pass the packet on should override this to
+     * reuse the wire encoding instead of re-encoding the decoded packet.
+     *
+     * @param data the packet to forward, with its wire encoding
+     */
+    default void forward(WirePacket data) {
+      forward(data.getData());
+    }
+
     /**
      * @return the interest that first created the entry
      */
     Interest getInterest();
 
+    /**
+     * @return the interest that first created the entry, with its wire encoding; implementations holding the received
+     * packet should override this to avoid re-encoding the interest
+     */
+    default WirePacket getPacket() {
+      return WirePacket.wrap(getInterest());
+    }
+
     /**
      * @return true if the entry has been satisfied (has had a matching data forwarded through it)
      */
     boolean isSatisfied();
   }
 
+  /**
+   * Content store API; use this for caching data packets and answering interests from the cache.
+   */
+  public interface ContentStore {
+    /**
+     * @param interest the incoming interest
+     * @return a cached data packet satisfying the interest, or null if none does
+     */
+    WirePacket find(WirePacket interest);
+
+    /**
+     * @param data a data packet forwarded to downstream faces; may be cached for later interests
+     */
+    void insert(WirePacket data);
+  }
+
   /**
    * Mock-specific API for recording the source and destination of incoming interests.
    */
@@ -147,43 +366,574 @@ public class MockForwarder {
     void in(Interest interest, Transport destinationTransport, Face sourceFace);
   }
 
+  /**
+   * Options for MockForwarder.
+   */
+  public static class Options {
+    private ContentStore contentStore = null;
+    private boolean enableHistory = false;
+    private MockEventLoop eventLoop = null;
+    private MockKeyChain.SigningMode signingMode = MockKeyChain.SigningMode.RSA;
+    private EmulatedLink.Options link = null;
+    private LinkService.Options linkService = null;
+    private Scheduler scheduler = null;
+    private TraceWriter traceWriter = null;
+    private String jmxName = null;
+
+    /**
+     * @return the content store used by the forwarder, or null if caching is disabled
+     */
+    public ContentStore getContentStore() {
+      return contentStore;
+    }
+
+    /**
+     * Enable/disable caching of forwarded data packets.
+     *
+     * @param contentStore the content store to check before forwarding interests, e.g. a
+     * {@link com.intel.jndn.mock.forwarder.ContentStoreImpl}; null disables caching (the default)
+     * @return this
+     */
+    public Options setContentStore(final ContentStore contentStore) {
+      this.contentStore = contentStore;
+      return this;
+    }
+
+    /**
+     * @return true if connected faces keep a history of the packets they send and receive
+     */
+    public boolean isEnableHistory() {
+      return enableHistory;
+    }
+
+    /**
+     * Enable/disable packet histories on connected faces; packet and byte counters are kept either way.
+     *
+     * @param enableHistory if true, every packet sent or received by a connected face is kept in memory and
+     *                      available through {@link MeasurableFace}; leave disabled for long runs
+     * @return this
+     */
+    public Options setEnableHistory(final boolean enableHistory) {
+      this.enableHistory = enableHistory;
+      return this;
+    }
+
+    /**
+     * @return the event loop processing events of connected faces, or null if the caller must call processEvents()
+     */
+    public MockEventLoop getEventLoop() {
+      return eventLoop;
+    }
+
+    /**
+     * Process events of connected faces on an event loop instead of by polling processEvents().
+     *
+     * @param eventLoop the loop to attach connected faces to, or null (the default) to poll
+     * @return this
+     */
+    public Options setEventLoop(final MockEventLoop eventLoop) {
+      this.eventLoop = eventLoop;
+      return this;
+    }
+
+    /**
+     * @return the signing mode of the forwarder (registration replies and command interests of connected faces)
+     */
+    public MockKeyChain.SigningMode getSigningMode() {
+      return signingMode;
+    }
+
+    /**
+     * Choose how the forwarder signs registration replies and command interests of connected faces; cheaper modes
+     * speed up registration-heavy tests.
+     *
+     * @param signingMode the signing mode; {@link MockKeyChain.SigningMode#RSA} by default
+     * @return this
+     */
+    public Options setSigningMode(final MockKeyChain.SigningMode signingMode) {
+      this.signingMode = signingMode;
+      return this;
+    }
+
+    /**
+     * @return the options of the links between the forwarder and connected faces, or null if packets pass
+     * immediately
+     */
+    public EmulatedLink.Options getLink() {
+      return link;
+    }
+
+    /**
+     * Emulate the links of connected faces: each face gets one {@link EmulatedLink} towards the forwarder and one
+     * back, created from these options. Internal registration faces are not affected.
+     *
+     * @param link the link options, or null (the default) for immediate delivery
+     * @return this
+     */
+    public Options setLink(final EmulatedLink.Options link) {
+      this.link = link;
+      return this;
+    }
+
+    /**
+     * @return the options of the NDNLPv2 link services of connected faces, or null if packets are passed bare
+     */
+    public LinkService.Options getLinkService() {
+      return linkService;
+    }
+
+    /**
+     * Frame the packets between the forwarder and connected faces with NDNLPv2: each face gets one {@link LinkService}
+     * per direction, created from these options, so that e.g. large data is fragmented to fit the MTU of the
+     * {@link #setLink(EmulatedLink.Options) links}. Internal registration faces are not affected.
+     *
+     * @param linkService the link service options, or null (the default) to pass bare packets
+     * @return this
+     */
+    public Options setLinkService(final LinkService.Options linkService) {
+      this.linkService = linkService;
+      return this;
+    }
+
+    /**
+     * @return the scheduler timing the forwarder and its faces, or null if they run on the wall clock
+     */
+    public Scheduler getScheduler() {
+      return scheduler;
+    }
+
+    /**
+     * Run the forwarder on a scheduler, typically a {@link VirtualScheduler}: PIT expiry, round-trip times, interest
+     * timeouts and {@code callLater} callbacks of connected faces, and links without a scheduler of their own are all
+     * timed by the scheduler, and unless an event loop is set, face events are processed as scheduler tasks. A content
+     * store should be created on the same clock, see {@link com.intel.jndn.mock.forwarder.ContentStoreImpl}.
+     *
+     * @param scheduler the scheduler, or null (the default) to run on the wall clock
+     * @return this
+     */
+    public Options setScheduler(final Scheduler scheduler) {
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    /**
+     * @return the trace recording the packets of connected faces, or null if none
+     */
+    public TraceWriter getTraceWriter() {
+      return traceWriter;
+    }
+
+    /**
+     * Record every packet exchanged between the forwarder and its connected faces, as raw blocks, for later replay
+     * with a {@link TraceReplayer}; each face is recorded under a face number of its own, in connection order. Blocks
+     * sent by a face are those the forwarder receives. Internal registration faces and links to other forwarders are
+     * not recorded.
+     *
+     * @param traceWriter the trace, or null (the default) to record nothing
+     * @return this
+     */
+    public Options setTraceWriter(final TraceWriter traceWriter) {
+      this.traceWriter = traceWriter;
+      return this;
+    }
+
+    /**
+     * @return the name under which the forwarding counters are exported through JMX, or null if they are not
+     */
+    public String getJmxName() {
+      return jmxName;
+    }
+
+    /**
+     * Export the forwarding counters of {@link #getStatistics()} as MXBeans on the platform MBean server, e.g. to
+     * watch them with JConsole while a test or workload runs: the totals are registered as
+     * {@code com.intel.jndn.mock:type=MockForwarder,name="<jmxName>"}, each face with an added
+     * {@code face=<number>} key and each FIB prefix with an added {@code prefix="<uri>"} key. Names must be unique
+     * among the forwarders of a process; call {@link #unregisterMBeans()} when done with the forwarder.
+     *
+     * @param jmxName the name of the forwarder, or null (the default) to not export its counters
+     * @return this
+     */
+    public Options setJmxName(final String jmxName) {
+      this.jmxName = jmxName;
+      return this;
+    }
+  }
+
+  /**
+   * Create a forwarder without a content store.
+   */
   public MockForwarder() {
+    this(new Options());
+  }
+
+  /**
+   * @param options see {@link Options}
+   */
+  public MockForwarder(final Options options) {
+    contentStore = options.getContentStore();
+    enableHistory = options.isEnableHistory();
+    link = options.getLink();
+    linkService = options.getLinkService();
+    scheduler = options.getScheduler();
+    traceWriter = options.getTraceWriter();
+    clock = scheduler != null ? scheduler : Clock.SYSTEM;
+    pit = new PitImpl(clock);
+    pit.setStatistics(statistics);
+    mbeans = options.getJmxName() != null ? new ForwarderMBeans(options.getJmxName(), statistics) : null;
+    if (options.getEventLoop() == null && scheduler != null) {
+      eventLoop = new MockEventLoop(scheduler);
+    } else {
+      eventLoop = options.getEventLoop();
+    }
     try {
-      keyChain = MockKeyChain.configure(new Name("/mock/forwarder"));
+      keyChain = MockKeyChain.configure(new Name("/mock/forwarder"), options.getSigningMode());
       certName = keyChain.getDefaultCertificateName();
     } catch (SecurityException e) {
       throw new IllegalStateException("Failed to set up mock prefix registration", e);
     }
 
-    OnPrefixRegistration onPrefixRegistration = new OnPrefixRegistration(keyChain, fib);
+    OnPrefixRegistration onPrefixRegistration = new OnPrefixRegistration(keyChain, fib, options.getSigningMode());
     Name registrationPrefix = new Name("/localhost/nfd/rib/register");
     register(registrationPrefix, onPrefixRegistration, new RegistrationOptions());
   }
 
   public Face connect() {
-    MockForwarderFace face = new MockForwarderFace();
+    return connect(link, linkService, traceWriter);
+  }
+
+  private Face connect(EmulatedLink.Options linkOptions, LinkService.Options linkServiceOptions,
+                       TraceWriter trace) {
+    MockForwarderFace face = new MockForwarderFace(linkOptions, linkServiceOptions);
     face.setCommandSigningInfo(keyChain, certName);
+    ((MockTransport) face.getTransport()).setTraceWriter(trace);
+    faces.add(face);
+    if (eventLoop != null) {
+      eventLoop.attach(face, (MockTransport) face.getTransport());
+    } else {
+      ((MockTransport) face.getTransport()).setOnReady(face);
+    }
     LOGGER.info("Connected new face using transport: " + face.getTransport());
     return face;
   }
 
+  /**
+   * Connect this forwarder to another through a pair of peer faces, so that routes added with
+   * {@link #addRoute(Name, MockTransport)} can forward interests to it and data can flow back.
+   *
+   * @param other the forwarder to connect to
+   * @return the transport through which this forwarder reaches the other one
+   */
+  public MockTransport link(MockForwarder other) {
+    return link(other, null);
+  }
+
+  /**
+   * Connect this forwarder to another through a pair of peer faces crossing emulated links, one in each direction.
+   *
+   * @param other the forwarder to connect to
+   * @param linkOptions the options of both links, or null to hand packets over immediately
+   * @return the transport through which this forwarder reaches the other one
+   */
+  public MockTransport link(MockForwarder other, EmulatedLink.Options linkOptions) {
+    if (other == this) {
+      throw new IllegalArgumentException("A forwarder cannot be linked to itself");
+    }
+    PeerTransport toOther = new PeerTransport(linkOptions != null ? new EmulatedLink(linkOptions, scheduler) : null);
+    PeerTransport toThis = new PeerTransport(linkOptions != null ? new EmulatedLink(linkOptions, other.scheduler)
+        : null);
+    toOther.connectTo(new BufferHandler(toThis, other.fib, other.pit, other.contentStore, other.strategies,
+        other.statistics));
+    toThis.connectTo(new BufferHandler(toOther, fib, pit, contentStore, strategies, statistics));
+    peers.put(other, toOther);
+    other.peers.put(this, toThis);
+    LOGGER.info("Linked forwarders using transports: " + toOther + ", " + toThis);
+    return toOther;
+  }
+
+  /**
+   * @param other a forwarder
+   * @return the transport through which this forwarder reaches the other one, or null if they are not linked
+   */
+  public MockTransport getPeer(MockForwarder other) {
+    return peers.get(other);
+  }
+
+  /**
+   * Add a static route, e.g. towards a linked forwarder.
+   *
+   * @param prefix the routed prefix
+   * @param nextHop the transport to forward matching interests to, e.g. as returned by {@link #link(MockForwarder)}
+   */
+  public void addRoute(Name prefix, MockTransport nextHop) {
+    addRoute(prefix, nextHop, new RegistrationOptions());
+  }
+
+  /**
+   * Add a static route, e.g. towards a linked forwarder.
+   *
+   * @param prefix the routed prefix
+   * @param nextHop the transport to forward matching interests to, e.g. as returned by {@link #link(MockForwarder)}
+   * @param flags the route flags
+   */
+  public void addRoute(Name prefix, MockTransport nextHop, RegistrationOptions flags) {
+    addRoute(prefix, nextHop, flags, 0);
+  }
+
+  /**
+   * Add a static route, e.g. towards a linked forwarder; a later route for the same prefix and next hop replaces
+   * this one.
+   *
+   * @param prefix the routed prefix
+   * @param nextHop the transport to forward matching interests to, e.g. as returned by {@link #link(MockForwarder)}
+   * @param flags the route flags
+   * @param cost the route cost, used by strategies to choose between next hops
+   */
+  public void addRoute(Name prefix, MockTransport nextHop, RegistrationOptions flags, int cost) {
+    fib.add(new ClientFibEntry(prefix, nextHop, flags, cost));
+    LOGGER.info("Added static route " + prefix + " with cost " + cost + " to: " + nextHop);
+  }
+
+  /**
+   * Choose the forwarding strategy for interests under a prefix; by default every interest goes to all matching
+   * next hops ({@link com.intel.jndn.mock.forwarder.MulticastStrategy}).
+   *
+   * @param prefix the prefix; the empty name sets the default strategy
+   * @param strategy the strategy, e.g. a {@link com.intel.jndn.mock.forwarder.BestRouteStrategy} or
+   * {@link com.intel.jndn.mock.forwarder.LoadBalanceStrategy}
+   */
+  public void setStrategy(Name prefix, Strategy strategy) {
+    strategies.set(prefix, strategy);
+  }
+
+  /**
+   * @return the number of interests dropped because their nonce showed they looped, either while their PIT entry was
+   * pending or afterwards
+   */
+  public long getLoopedInterests() {
+    return pit.getDuplicateNonces() + pit.getDeadNonceHits();
+  }
+
+  /**
+   * @return the forwarding counters of this forwarder, per face, per FIB prefix and in total
+   */
+  public ForwardingStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Remove the MBeans exported for this forwarder, if {@link Options#setJmxName(String)} was set; counters created
+   * afterwards are still exported.
+   */
+  public void unregisterMBeans() {
+    if (mbeans != null) {
+      mbeans.unregister();
+    }
+  }
+
   public void register(Name prefix, OnInterestReceived callback, RegistrationOptions flags) {
-    Face registrationFace = this.connect();
+    Face registrationFace = this.connect(null, null, null);
     FibEntry registrationEntry = new LocalFibEntry(prefix, callback, registrationFace, flags);
     fib.add(registrationEntry);
     LOGGER.info("Registered new prefix to receive interests: " + prefix);
   }
 
-  private class MockForwarderFace extends Face implements MeasurableFace {
-    final Collection<Interest> sentInterests = new ArrayList<>();
-    final Collection<Data> sentDatas = new ArrayList<>();
-    final Collection<Interest> receivedInterests = new ArrayList<>();
-    final Collection<Data> receivedDatas = new ArrayList<>();
+  /**
+   * Process events on every connected face that has received packets since it was last processed, including the
+   * internal registration faces; faces with nothing waiting are not touched. Faces made ready while processing are
+   * served in the same call, so forwarding runs until no face has work left.
+   *
+   * @return the number of faces processed
+   * @throws IOException if a face fails to process its events
+   * @throws EncodingException if a face fails to decode a received packet
+   */
+  public int processEvents() throws IOException, EncodingException {
+    int processed = 0;
+    for (MockForwarderFace face = readyFaces.poll(); face != null; face = readyFaces.poll()) {
+      face.processEvents();
+      processed++;
+    }
+    return processed;
+  }
+
+  /**
+   * Start a background thread that calls {@link #processEvents()} whenever a face becomes ready, parking while none
+   * are. The thread also processes every face at a fixed interval so that interest timeouts fire. Has no effect if
+   * the thread is already running or the forwarder uses an event loop.
+   */
+  public synchronized void start() {
+    if (pump != null || eventLoop != null) {
+      return;
+    }
+    pump = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        pumpEvents();
+      }
+    }, "mock-forwarder-pump");
+    pump.setDaemon(true);
+    pump.start();
+  }
+
+  /**
+   * Stop the background thread started by {@link #start()}, waiting for it to finish its current pass.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void stop() throws InterruptedException {
+    Thread stopping;
+    synchronized (this) {
+      stopping = pump;
+      pump = null;
+    }
+    if (stopping != null) {
+      LockSupport.unpark(stopping);
+      stopping.join();
+    }
+  }
+
+  private void pumpEvents() {
+    Thread self = Thread.currentThread();
+    long nextSweep = System.nanoTime() + PUMP_SWEEP_INTERVAL_NANOS;
+    while (pump == self) {
+      try {
+        if (processEvents() == 0) {
+          LockSupport.parkNanos(this, Math.max(nextSweep - System.nanoTime(), 0));
+        }
+        if (System.nanoTime() - nextSweep >= 0) {
+          for (MockForwarderFace face : faces) {
+            face.processEvents();
+          }
+          nextSweep = System.nanoTime() + PUMP_SWEEP_INTERVAL_NANOS;
+        }
+      } catch (IOException | EncodingException | RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Failed to process face events", e);
+      }
+    }
+  }
+
+  private void disconnect(MockForwarderFace face) {
+    MockTransport transport = (MockTransport) face.getTransport();
+    faces.remove(face);
+    readyFaces.remove(face);
+    if (eventLoop != null) {
+      eventLoop.detach(transport);
+    }
+    statistics.removeFace(transport);
+    LOGGER.info("Disconnected face using transport: " + transport);
+  }
+
+  private void ready(MockForwarderFace face) {
+    readyFaces.offer(face);
+    Thread waiting = pump;
+    if (waiting != null) {
+      LockSupport.unpark(waiting);
+    }
+  }
+
+  /**
+   * PIT entry answering a single downstream face, added by the default {@link Pit#insert(WirePacket, MockTransport)}.
+   */
+  private static final class DownstreamPitEntry implements PitEntry {
+    private final WirePacket interest;
+    private final MockTransport downstream;
+    private boolean satisfied;
+
+    DownstreamPitEntry(WirePacket interest, MockTransport downstream) {
+      this.interest = interest;
+      this.downstream = downstream;
+    }
+
+    @Override
+    public void forward(Data data) {
+      forward(WirePacket.wrap(data));
+    }
+
+    @Override
+    public void forward(WirePacket data) {
+      downstream.receive(data.wire());
+      satisfied = true;
+    }
+
+    @Override
+    public Interest getInterest() {
+      return new Interest(interest.getInterest());
+    }
+
+    @Override
+    public WirePacket getPacket() {
+      return interest;
+    }
+
+    @Override
+    public boolean isSatisfied() {
+      return satisfied;
+    }
+  }
+
+  private class MockForwarderFace extends Face implements MeasurableFace, MockTransport.OnReadySignal {
+    private final FaceMetrics metrics = new FaceMetrics();
+    private final Collection<Interest> sentInterests = new PacketCapture<>();
+    private final Collection<Data> sentDatas = new PacketCapture<>();
+    private final Collection<Interest> receivedInterests = new PacketCapture<>();
+    private final Collection<Data> receivedDatas = new PacketCapture<>();
 
-    MockForwarderFace() {
+    MockForwarderFace(EmulatedLink.Options linkOptions, LinkService.Options linkServiceOptions) {
       super(new MockTransport(), null);
       MockTransport transport = (MockTransport) node_.getTransport();
-      transport.setOnSendBlock(new BufferHandler(transport, fib, pit));
+      final BufferHandler handler = new BufferHandler(transport, fib, pit, contentStore, strategies, statistics);
+      final EmulatedLink uplink = linkOptions != null ? new EmulatedLink(linkOptions, scheduler) : null;
+      final LinkService uplinkService = linkServiceOptions != null ? new LinkService(linkServiceOptions, clock) : null;
+      final EmulatedLink.Receiver forward = new EmulatedLink.Receiver() {
+        @Override
+        public void receive(ByteBuffer frame) {
+          if (uplinkService == null) {
+            handler.emit(frame);
+            return;
+          }
+          LinkService.Packet packet = uplinkService.receive(frame);
+          if (packet != null) {
+            handler.emit(packet);
+          }
+        }
+      };
+      transport.setOnSendBlock(new MockTransport.OnSendBlockSignal() {
+        @Override
+        public void emit(ByteBuffer buffer) {
+          metrics.recordSent(buffer);
+          if (uplinkService == null) {
+            send(buffer);
+            return;
+          }
+          boolean congested = uplink != null && uplinkService.isCongested(uplink.getQueueLength());
+          for (ByteBuffer frame : uplinkService.encode(buffer, LinkService.NO_NACK, congested)) {
+            send(frame);
+          }
+        }
+
+        private void send(ByteBuffer frame) {
+          if (uplink != null) {
+            uplink.send(frame, forward);
+          } else {
+            forward.receive(frame);
+          }
+        }
+      });
+      if (linkOptions != null) {
+        transport.setLink(new EmulatedLink(linkOptions, scheduler));
+      }
+      if (linkServiceOptions != null) {
+        transport.setLinkService(new LinkService(linkServiceOptions, clock));
+      }
+      transport.setOnReceiveBlock(new MockTransport.OnReceiveBlockSignal() {
+        @Override
+        public void emit(ByteBuffer buffer) {
+          metrics.recordReceived(buffer);
+          if (enableHistory) {
+            recordReceived(buffer);
+          }
+        }
+      });
     }
 
     Transport getTransport() {
@@ -193,20 +943,44 @@ public class MockForwarder {
     @Override
     public long expressInterest(Interest interest, OnData onData, OnTimeout onTimeout,
                                 OnNetworkNack onNetworkNack, WireFormat wireFormat) throws IOException {
-      sentInterests.add(interest);
-      return super.expressInterest(interest, onData, onTimeout, onNetworkNack, wireFormat);
+      if (enableHistory) {
+        sentInterests.add(interest);
+      }
+      if (scheduler == null) {
+        return super.expressInterest(interest, timed(onData), onTimeout, onNetworkNack, wireFormat);
+      }
+      ScheduledTimeout callbacks = new ScheduledTimeout(interest, timed(onData), onTimeout, onNetworkNack);
+      long pendingInterestId = super.expressInterest(interest, callbacks, callbacks, callbacks, wireFormat);
+      callbacks.start(this, pendingInterestId, scheduler);
+      return pendingInterestId;
     }
 
     @Override
     public long expressInterest(Name name, Interest interestTemplate, OnData onData, OnTimeout onTimeout,
                                 OnNetworkNack onNetworkNack, WireFormat wireFormat) throws IOException {
-      sentInterests.add(getInterestCopy(name, interestTemplate));
-      return super.expressInterest(name, interestTemplate, onData, onTimeout, onNetworkNack, wireFormat);
+      if (scheduler != null) {
+        return expressInterest(getInterestCopy(name, interestTemplate), onData, onTimeout, onNetworkNack, wireFormat);
+      }
+      if (enableHistory) {
+        sentInterests.add(getInterestCopy(name, interestTemplate));
+      }
+      return super.expressInterest(name, interestTemplate, timed(onData), onTimeout, onNetworkNack, wireFormat);
+    }
+
+    @Override
+    public void callLater(double delayMilliseconds, Runnable callback) {
+      if (scheduler == null) {
+        super.callLater(delayMilliseconds, callback);
+      } else {
+        scheduler.schedule(callback, (long) (delayMilliseconds * TimeUnit.MILLISECONDS.toNanos(1)));
+      }
     }
 
     @Override
     public void putData(Data data, WireFormat wireFormat) throws IOException {
-      sentDatas.add(data);
+      if (enableHistory) {
+        sentDatas.add(data);
+      }
       super.putData(data, wireFormat);
     }
 
@@ -229,5 +1003,51 @@ public class MockForwarder {
     public Collection<Data> receivedDatas() {
       return Collections.unmodifiableCollection(receivedDatas);
     }
+
+    @Override
+    public FaceMetrics metrics() {
+      return metrics;
+    }
+
+    /**
+     * Close the face and disconnect it from the forwarder, dropping its forwarding counters.
+     */
+    @Override
+    public void shutdown() {
+      super.shutdown();
+      disconnect(this);
+    }
+
+    @Override
+    public void ready(MockTransport transport) {
+      MockForwarder.this.ready(this);
+    }
+
+    private OnData timed(final OnData onData) {
+      if (onData == null) {
+        return null;
+      }
+      final long expressedAt = clock.nanoTime();
+      return new OnData() {
+        @Override
+        public void onData(Interest interest, Data data) {
+          metrics.getRoundTripTimes().record(clock.nanoTime() - expressedAt);
+          onData.onData(interest, data);
+        }
+      };
+    }
+
+    private void recordReceived(ByteBuffer buffer) {
+      try {
+        WirePacket packet = WirePacket.decode(buffer);
+        if (packet.isInterest()) {
+          receivedInterests.add(packet.getInterest());
+        } else {
+          receivedDatas.add(packet.getData());
+        }
+      } catch (EncodingException e) {
+        LOGGER.log(Level.FINE, "Failed to decode received packet for history", e);
+      }
+    }
   }
 }
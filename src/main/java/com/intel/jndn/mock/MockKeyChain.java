@@ -13,22 +13,71 @@
  */
 package com.intel.jndn.mock;
 
+import net.named_data.jndn.Data;
 import net.named_data.jndn.Name;
 import net.named_data.jndn.security.KeyChain;
+import net.named_data.jndn.security.KeyType;
+import net.named_data.jndn.security.SigningInfo;
 import net.named_data.jndn.security.identity.IdentityManager;
 import net.named_data.jndn.security.identity.IdentityStorage;
 import net.named_data.jndn.security.identity.MemoryIdentityStorage;
 import net.named_data.jndn.security.identity.MemoryPrivateKeyStorage;
-import net.named_data.jndn.security.identity.PrivateKeyStorage;
 import net.named_data.jndn.security.policy.SelfVerifyPolicyManager;
 import net.named_data.jndn.security.SecurityException;
+import net.named_data.jndn.security.pib.PibImpl;
+import net.named_data.jndn.security.tpm.TpmBackEnd;
+import net.named_data.jndn.util.Blob;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Create an in-memory key chain for use in NDN-related tests.
+ * <p>
+ * Identities are generated once per identity name and key type and shared by all key chains of the process, which
+ * makes creating many mock faces cheap. Setting the system property {@value #KEYSTORE_PROPERTY} to a file path, or
+ * calling {@link #setKeyStore(File)}, also keeps generated identities in that file for later runs.
  *
  * @author Andrew Brown, andrew.brown@intel.com
  */
 public final class MockKeyChain {
+  private static final Blob HMAC_KEY = new Blob("jndn-mock HMAC key".getBytes(StandardCharsets.UTF_8), false);
+  private static final Name.Component HMAC_KEY_COMPONENT = new Name.Component("HMAC");
+
+  /**
+   * System property naming the keystore file in which generated identities are kept across runs.
+   */
+  public static final String KEYSTORE_PROPERTY = "com.intel.jndn.mock.keystore";
+  private static volatile IdentityCache identities = new IdentityCache(keyStoreFromProperty());
+
+  /**
+   * How packets signed by the mock infrastructure (registration responses and, through the face's command signing
+   * info, command interests) are signed; the cheaper modes avoid the RSA signing that dominates registration-heavy
+   * tests.
+   */
+  public enum SigningMode {
+    /**
+     * RSA-2048 signatures with the identity's key; the default and the only mode before signing modes existed.
+     */
+    RSA,
+    /**
+     * ECDSA signatures with the identity's EC P-256 key.
+     */
+    ECDSA,
+    /**
+     * HMAC-SHA256 signatures with a fixed shared key; command interests are signed with ECDSA.
+     */
+    HMAC,
+    /**
+     * DigestSha256 "signatures", i.e. a plain SHA-256 digest; command interests are signed with ECDSA.
+     */
+    DIGEST_SHA256,
+    /**
+     * No signature at all, for tests that trust every packet; command interests are signed with ECDSA.
+     */
+    NONE
+  }
+
   /**
    * Do not allow instances of this key chain.
    */
@@ -36,7 +85,7 @@ public final class MockKeyChain {
   }
 
   /**
-   * Build and configure an in-memory {@link KeyChain}.
+   * Build and configure an in-memory {@link KeyChain} with an RSA identity.
    *
    * @param name the name of the default identity to create
    * @return an in-memory {@link KeyChain} configured with the name as the
@@ -44,19 +93,95 @@ public final class MockKeyChain {
    * @throws SecurityException if failed to create mock identity
    */
   public static KeyChain configure(final Name name) throws SecurityException {
-    PrivateKeyStorage keyStorage = new MemoryPrivateKeyStorage();
+    return configure(name, SigningMode.RSA);
+  }
+
+  /**
+   * Build and configure an in-memory {@link KeyChain} for a signing mode; the default identity has an RSA key in
+   * {@link SigningMode#RSA} mode and an EC P-256 key, cheaper to generate and sign with, in all others.
+   *
+   * @param name the name of the default identity to create
+   * @param mode the signing mode the key chain will be used with
+   * @return an in-memory {@link KeyChain} configured with the name as the
+   * default identity
+   * @throws SecurityException if failed to create mock identity
+   */
+  public static KeyChain configure(final Name name, final SigningMode mode) throws SecurityException {
+    MemoryPrivateKeyStorage keyStorage = new MemoryPrivateKeyStorage();
     IdentityStorage identityStorage = new MemoryIdentityStorage();
-    KeyChain keyChain = new KeyChain(new IdentityManager(identityStorage, keyStorage),
-            new SelfVerifyPolicyManager(identityStorage));
+    IdentityManager identityManager = new IdentityManager(identityStorage, keyStorage);
+    KeyChain keyChain = new KeyChain(identityManager, new SelfVerifyPolicyManager(identityStorage));
 
-    // create keys, certs if necessary
-    if (!identityStorage.doesIdentityExist(name)) {
-      keyChain.createIdentityAndCertificate(name);
-    }
+    // install the cached keys and cert, generating them on first use
+    identities.install(name, mode == SigningMode.RSA ? KeyType.RSA : KeyType.EC, identityManager, identityStorage,
+        keyStorage);
 
     // set default identity
     keyChain.getIdentityManager().setDefaultIdentity(name);
 
     return keyChain;
   }
+
+  /**
+   * Sign a data packet according to a signing mode.
+   *
+   * @param keyChain a key chain built by {@link #configure(Name, SigningMode)}
+   * @param data the packet to sign
+   * @param mode the signing mode
+   * @throws SecurityException if signing fails
+   */
+  public static void sign(final KeyChain keyChain, final Data data, final SigningMode mode) throws SecurityException {
+    try {
+      switch (mode) {
+        case RSA:
+        case ECDSA:
+          keyChain.sign(data);
+          break;
+        case HMAC:
+          KeyChain.signWithHmacWithSha256(data, HMAC_KEY, new Name(keyChain.getDefaultIdentity())
+              .append(HMAC_KEY_COMPONENT));
+          break;
+        case DIGEST_SHA256:
+          keyChain.sign(data, new SigningInfo(SigningInfo.SignerType.SHA256));
+          break;
+        case NONE:
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown signing mode: " + mode);
+      }
+    } catch (KeyChain.Error | TpmBackEnd.Error | PibImpl.Error e) {
+      throw new SecurityException("Failed to sign " + data.getName().toUri() + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * @return the shared key used in {@link SigningMode#HMAC} mode, for verifying packets in tests
+   */
+  public static Blob getHmacKey() {
+    return HMAC_KEY;
+  }
+
+  /**
+   * Keep generated identities in a keystore file, loading the identities it already holds; this replaces the
+   * identities cached so far. The file holds unencrypted private keys and must only be used for tests.
+   *
+   * @param keyStore the keystore file, created when the first identity is generated, or null to cache identities in
+   * memory only
+   */
+  public static void setKeyStore(final File keyStore) {
+    identities = new IdentityCache(keyStore);
+  }
+
+  /**
+   * Forget all cached identities so that the next key chains generate fresh ones; a keystore file, if set, is
+   * overwritten as they are generated.
+   */
+  public static void clearIdentityCache() {
+    identities.clear();
+  }
+
+  private static File keyStoreFromProperty() {
+    String path = System.getProperty(KEYSTORE_PROPERTY);
+    return path == null || path.isEmpty() ? null : new File(path);
+  }
 }
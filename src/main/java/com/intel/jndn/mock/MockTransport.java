@@ -15,8 +15,7 @@ package com.intel.jndn.mock;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.encoding.ElementListener;
@@ -33,10 +32,23 @@ import net.named_data.jndn.transport.Transport;
  */
 public class MockTransport extends Transport {
   private OnSendBlockSignal onSendBlock;
+  private OnReceiveBlockSignal onReceiveBlock;
+  private volatile OnReadySignal onReady;
+  private final AtomicBoolean signalled = new AtomicBoolean(false);
   private static final Logger LOGGER = Logger.getLogger(MockTransport.class.getName());
   private boolean connected;
-  private ElementReader elementReader;
-  private final List<ByteBuffer> receiveBuffer = new LinkedList<>();
+  private volatile ElementReader elementReader;
+  private final ReceiveQueue receiveBuffer = new ReceiveQueue();
+  private volatile EmulatedLink link;
+  private volatile LinkService linkService;
+  private volatile TraceWriter traceWriter;
+  private int traceFace;
+  private final EmulatedLink.Receiver delivery = new EmulatedLink.Receiver() {
+    @Override
+    public void receive(ByteBuffer block) {
+      deliver(block);
+    }
+  };
 
   /////////////////////////////////////////////////////////////////////////////
 
@@ -53,14 +65,158 @@ public class MockTransport extends Transport {
   }
 
   /**
-   * Receive some bytes to add to the mock socket.
+   * API for observing received buffers.
+   */
+  public interface OnReceiveBlockSignal {
+    /**
+     * Callback called when a ByteBuffer is received (from NFD towards app), before it is queued; may be called from
+     * any thread.
+     *
+     * @param buffer buffer being received; must not be modified
+     */
+    void emit(ByteBuffer buffer);
+  }
+
+  /**
+   * API for being told that received blocks are waiting to be processed.
+   */
+  public interface OnReadySignal {
+    /**
+     * Callback called, from the receiving thread, when a block is received while none were waiting; it is not called
+     * again until {@link MockTransport#processEvents()} has started draining the waiting blocks.
+     *
+     * @param transport the transport with blocks waiting
+     */
+    void ready(MockTransport transport);
+  }
+
+  /**
+   * Receive some bytes to add to the mock socket; safe to call from any number of threads without blocking, blocks
+   * are handed to the face in arrival order on the next {@link #processEvents()}. If the transport has an
+   * {@link EmulatedLink}, blocks first cross the link and may arrive later, out of order or not at all; if it has a
+   * {@link LinkService}, they cross it as NDNLPv2 frames.
    *
    * @param block the byte buffer
    */
   public void receive(final ByteBuffer block) {
-    synchronized (receiveBuffer) {
-      receiveBuffer.add(block.duplicate());
+    LinkService service = linkService;
+    if (service == null) {
+      transmit(block);
+      return;
+    }
+    EmulatedLink current = link;
+    boolean congested = current != null && service.isCongested(current.getQueueLength());
+    for (ByteBuffer frame : service.encode(block, LinkService.NO_NACK, congested)) {
+      transmit(frame);
+    }
+  }
+
+  /**
+   * Receive a buffer of consecutive TLV elements, e.g. a batch of encoded packets, as one block: it is queued once
+   * and split into packets by the face's element reader on the next {@link #processEvents()}. If the transport has a
+   * link, a link service or a receive observer, which all handle packets individually, the elements are instead
+   * received one by one as by {@link #receive(ByteBuffer)}.
+   *
+   * @param elements the encoded elements, from the buffer's position to its limit; the buffer is not modified
+   * @throws EncodingException if the buffer does not hold whole TLV elements
+   */
+  public void receiveElements(final ByteBuffer elements) throws EncodingException {
+    ByteBuffer block = elements.duplicate();
+    if (link == null && linkService == null && onReceiveBlock == null) {
+      int offset = block.position();
+      while (offset < block.limit()) {
+        offset = elementEnd(block, offset); // only check the elements are whole; the element reader splits them
+      }
+      deliver(block);
+      return;
+    }
+    int end;
+    for (int offset = block.position(); offset < block.limit(); offset = end) {
+      end = elementEnd(block, offset);
+      ByteBuffer element = block.duplicate();
+      element.position(offset).limit(end);
+      receive(element.slice());
+    }
+  }
+
+  /**
+   * Receive a network Nack for an interest, as an LpPacket with a Nack header; see {@link #receive(ByteBuffer)}.
+   *
+   * @param interest the encoded interest being nacked
+   * @param reason the NDNLPv2 Nack reason code, e.g. 50 (Congestion), 100 (Duplicate) or 150 (NoRoute); or 0 for
+   * none
+   */
+  public void receiveNack(final ByteBuffer interest, final int reason) {
+    LinkService service = linkService;
+    for (ByteBuffer frame : (service != null ? service : new LinkService()).encode(interest, reason, false)) {
+      transmit(frame);
+    }
+  }
+
+  private void transmit(final ByteBuffer block) {
+    EmulatedLink current = link;
+    if (current != null) {
+      current.send(block, delivery);
+    } else {
+      deliver(block);
+    }
+  }
+
+  private void deliver(final ByteBuffer frame) {
+    LinkService service = linkService;
+    final ByteBuffer block = service != null ? service.decode(frame) : frame;
+    if (block == null) {
+      return;
+    }
+    if (onReceiveBlock != null) {
+      onReceiveBlock.emit(block.duplicate());
+    }
+    TraceWriter trace = traceWriter;
+    if (trace != null) {
+      trace.record(traceFace, TraceWriter.Direction.RECEIVED, block);
+    }
+    receiveBuffer.offer(block.duplicate());
+
+    OnReadySignal ready = onReady;
+    if (ready != null && !signalled.get() && signalled.compareAndSet(false, true)) {
+      ready.ready(this);
+    }
+  }
+
+  private static int elementEnd(final ByteBuffer buffer, final int offset) throws EncodingException {
+    int position = offset + varNumberSize(buffer, offset);
+    int lengthSize = varNumberSize(buffer, position);
+    long length;
+    switch (lengthSize) {
+      case 1:
+        length = buffer.get(position) & 0xff;
+        break;
+      case 3:
+        length = buffer.getShort(position + 1) & 0xffff;
+        break;
+      case 5:
+        length = buffer.getInt(position + 1) & 0xffffffffL;
+        break;
+      default:
+        length = buffer.getLong(position + 1);
     }
+    long end = (long) position + lengthSize + length;
+    if (length < 0 || end > buffer.limit()) {
+      throw new EncodingException("Truncated TLV element at offset " + offset);
+    }
+    return (int) end;
+  }
+
+  private static int varNumberSize(final ByteBuffer buffer, final int position) throws EncodingException {
+    if (position >= buffer.limit()) {
+      throw new EncodingException("Truncated TLV element header at offset " + position);
+    }
+    int first = buffer.get(position) & 0xff;
+    int size = first < 253 ? 1 : first == 253 ? 3 : first == 254 ? 5 : 9;
+    if (position + size > buffer.limit()) {
+      throw new EncodingException("Truncated TLV element header at offset " + position);
+    }
+    return size;
   }
 
   /**
@@ -76,7 +232,7 @@ public class MockTransport extends Transport {
    */
   @Override
   public boolean isAsync() {
-    return false;
+    return onReady != null;
   }
 
   /**
@@ -88,6 +244,11 @@ public class MockTransport extends Transport {
     LOGGER.fine("Connecting...");
     connected = true;
     elementReader = new ElementReader(elementListener);
+    OnReadySignal ready = onReady;
+    if (ready != null && !receiveBuffer.isEmpty()) {
+      signalled.set(true);
+      ready.ready(this);
+    }
     if (onConnected != null) {
       onConnected.run();
     }
@@ -99,6 +260,10 @@ public class MockTransport extends Transport {
   @Override
   public void send(final ByteBuffer buffer) throws IOException {
     LOGGER.log(Level.FINE, "Sending {0} bytes", buffer.capacity() - buffer.position());
+    TraceWriter trace = traceWriter;
+    if (trace != null) {
+      trace.record(traceFace, TraceWriter.Direction.SENT, buffer);
+    }
 
     onSendBlock.emit(buffer);
   }
@@ -107,21 +272,16 @@ public class MockTransport extends Transport {
    * {@inheritDoc}
    */
   @Override
-  public void processEvents() throws IOException, EncodingException {
+  public synchronized void processEvents() throws IOException, EncodingException {
     if (!getIsConnected()) {
       LOGGER.warning("Not connnected...");
     }
+    if (elementReader == null) {
+      return; // blocks stay queued until the face connects
+    }
 
-    while (true) {
-      ByteBuffer block = null;
-      synchronized (receiveBuffer) {
-        if (!receiveBuffer.isEmpty()) {
-          block = receiveBuffer.remove(0);
-        }
-      }
-      if (block == null) {
-        break;
-      }
+    signalled.set(false);
+    for (ByteBuffer block = receiveBuffer.poll(); block != null; block = receiveBuffer.poll()) {
       elementReader.onReceivedData(block);
     }
   }
@@ -151,4 +311,63 @@ public class MockTransport extends Transport {
   public void setOnSendBlock(final OnSendBlockSignal onSendBlock) {
     this.onSendBlock = onSendBlock;
   }
+
+  /**
+   * @param onReady the handler to execute when received blocks start waiting, or null to rely on polling
+   * {@link #processEvents()}; when set the transport is asynchronous
+   */
+  public void setOnReady(final OnReadySignal onReady) {
+    this.onReady = onReady;
+    if (onReady != null && !receiveBuffer.isEmpty() && signalled.compareAndSet(false, true)) {
+      onReady.ready(this);
+    }
+  }
+
+  /**
+   * @param link the link that received blocks cross before reaching the face, or null (the default) to receive them
+   * immediately; a link may be shared by several transports to model a common bottleneck
+   */
+  public void setLink(final EmulatedLink link) {
+    this.link = link;
+  }
+
+  /**
+   * @param linkService the NDNLPv2 link service framing received blocks for the link, or null (the default) to
+   * receive bare packets; the same service must not be used by another transport
+   */
+  public void setLinkService(final LinkService linkService) {
+    this.linkService = linkService;
+  }
+
+  /**
+   * @return the NDNLPv2 link service of received blocks, or null if there is none
+   */
+  public LinkService getLinkService() {
+    return linkService;
+  }
+
+  /**
+   * @param traceWriter the trace recording every block the face sends and receives, or null (the default) for none;
+   * the transport is given a new face number within the trace
+   */
+  public void setTraceWriter(final TraceWriter traceWriter) {
+    if (traceWriter != null) {
+      traceFace = traceWriter.newFace();
+    }
+    this.traceWriter = traceWriter;
+  }
+
+  /**
+   * @return the face number of the transport within its trace, valid if a trace writer is set
+   */
+  public int getTraceFace() {
+    return traceFace;
+  }
+
+  /**
+   * @param onReceiveBlock the handler to execute when packets are received, or null for none
+   */
+  public void setOnReceiveBlock(final OnReceiveBlockSignal onReceiveBlock) {
+    this.onReceiveBlock = onReceiveBlock;
+  }
 }
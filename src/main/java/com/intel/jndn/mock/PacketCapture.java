@@ -0,0 +1,158 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Thread-safe packet log used by {@link MockFace}. With a capacity the log is a ring buffer holding only the most
+ * recent packets, so long-running tests use constant memory; with a sampling rate of N only every Nth offered packet
+ * is kept. Reading the list directly sees the live contents; use {@link #snapshot()} to get a stable copy while
+ * packets are still being captured.
+ *
+ * @param <T> the type of captured packet
+ */
+public final class PacketCapture<T> extends AbstractList<T> {
+  private static final int INITIAL_UNBOUNDED_SIZE = 16;
+  private final int capacity;
+  private final int sampling;
+  private Object[] ring;
+  private int head = 0;
+  private int size = 0;
+  private long offered = 0;
+  private long overwritten = 0;
+
+  /**
+   * Create an unbounded capture keeping every packet.
+   */
+  public PacketCapture() {
+    this(0, 1);
+  }
+
+  /**
+   * @param capacity the maximum number of packets kept, oldest overwritten first; 0 for no limit
+   * @param sampling keep one in this many offered packets; 1 keeps every packet
+   */
+  public PacketCapture(int capacity, int sampling) {
+    if (capacity < 0 || sampling < 1) {
+      throw new IllegalArgumentException("Capture capacity must be non-negative and sampling positive");
+    }
+    this.capacity = capacity;
+    this.sampling = sampling;
+    this.ring = new Object[capacity > 0 ? capacity : INITIAL_UNBOUNDED_SIZE];
+  }
+
+  /**
+   * Offer a packet to the capture; it is kept if it falls on the sampling rate, overwriting the oldest packet if the
+   * capture is full.
+   *
+   * @param packet the packet to capture
+   * @return true if the packet was kept
+   */
+  @Override
+  public synchronized boolean add(T packet) {
+    if (offered++ % sampling != 0) {
+      return false;
+    }
+    if (size == ring.length) {
+      if (capacity > 0) {
+        ring[head] = packet;
+        head = (head + 1) % ring.length;
+        overwritten++;
+        modCount++;
+        return true;
+      }
+      grow();
+    }
+    ring[(head + size) % ring.length] = packet;
+    size++;
+    modCount++;
+    return true;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public synchronized T get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+    return (T) ring[(head + index) % ring.length];
+  }
+
+  @Override
+  public synchronized T remove(int index) {
+    T removed = get(index);
+    for (int i = index; i < size - 1; i++) {
+      ring[(head + i) % ring.length] = ring[(head + i + 1) % ring.length];
+    }
+    ring[(head + size - 1) % ring.length] = null;
+    size--;
+    modCount++;
+    return removed;
+  }
+
+  @Override
+  public synchronized int size() {
+    return size;
+  }
+
+  @Override
+  public synchronized void clear() {
+    Arrays.fill(ring, null);
+    head = 0;
+    size = 0;
+    modCount++;
+  }
+
+  /**
+   * @return a copy of the captured packets, oldest first
+   */
+  public synchronized List<T> snapshot() {
+    return new ArrayList<>(this);
+  }
+
+  /**
+   * @return the maximum number of packets kept, or 0 if unbounded
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of packets offered to the capture, whether or not they were sampled
+   */
+  public synchronized long getOffered() {
+    return offered;
+  }
+
+  /**
+   * @return the number of captured packets overwritten because the capture was full
+   */
+  public synchronized long getOverwritten() {
+    return overwritten;
+  }
+
+  private void grow() {
+    Object[] larger = new Object[ring.length * 2];
+    for (int i = 0; i < size; i++) {
+      larger[i] = ring[(head + i) % ring.length];
+    }
+    ring = larger;
+    head = 0;
+  }
+}
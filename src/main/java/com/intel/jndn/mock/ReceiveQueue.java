@@ -0,0 +1,90 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free multi-producer, single-consumer queue of received blocks. Producers push onto a shared stack with a
+ * single CAS; the consumer detaches everything pushed so far with one atomic swap, reverses it into arrival order and
+ * then polls the batch without any further synchronization.
+ */
+final class ReceiveQueue {
+  private final AtomicReference<Node> incoming = new AtomicReference<>();
+  private Node batch;
+
+  /**
+   * Element of the queue; linked newest-first while incoming and oldest-first once detached.
+   */
+  private static final class Node {
+    private final ByteBuffer block;
+    private Node next;
+
+    Node(ByteBuffer block) {
+      this.block = block;
+    }
+  }
+
+  /**
+   * Add a block to the queue; may be called from any thread.
+   *
+   * @param block the block to add
+   */
+  void offer(ByteBuffer block) {
+    Node node = new Node(block);
+    Node head;
+    do {
+      head = incoming.get();
+      node.next = head;
+    } while (!incoming.compareAndSet(head, node));
+  }
+
+  /**
+   * Remove the oldest block; must only be called from one thread at a time.
+   *
+   * @return the oldest block or null if the queue is empty
+   */
+  ByteBuffer poll() {
+    if (batch == null) {
+      batch = detach();
+      if (batch == null) {
+        return null;
+      }
+    }
+    ByteBuffer block = batch.block;
+    batch = batch.next;
+    return block;
+  }
+
+  /**
+   * @return true if there are no blocks waiting; exact only when called by the consumer
+   */
+  boolean isEmpty() {
+    return batch == null && incoming.get() == null;
+  }
+
+  private Node detach() {
+    Node node = incoming.getAndSet(null);
+    Node reversed = null;
+    while (node != null) {
+      Node next = node.next;
+      node.next = reversed;
+      reversed = node;
+      node = next;
+    }
+    return reversed;
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.NetworkNack;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnNetworkNack;
+import net.named_data.jndn.OnTimeout;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Callbacks of one expressed interest whose timeout is driven by a {@link Scheduler} rather than by the wall clock
+ * of the face's node. Exactly one of the callbacks runs: when the scheduled timeout fires first, the pending interest
+ * is removed from the face so that the node's own (wall-clock) timeout and any late data are ignored.
+ */
+final class ScheduledTimeout implements OnData, OnTimeout, OnNetworkNack, Runnable {
+  private static final double DEFAULT_LIFETIME_MS = 4000;
+  private final Interest interest;
+  private final OnData onData;
+  private final OnTimeout onTimeout;
+  private final OnNetworkNack onNetworkNack;
+  private final AtomicBoolean done = new AtomicBoolean(false);
+  private Face face;
+  private long pendingInterestId;
+
+  /**
+   * @param interest the expressed interest, whose lifetime is the timeout
+   * @param onData the caller's data callback
+   * @param onTimeout the caller's timeout callback, or null
+   * @param onNetworkNack the caller's nack callback, or null
+   */
+  ScheduledTimeout(Interest interest, OnData onData, OnTimeout onTimeout, OnNetworkNack onNetworkNack) {
+    this.interest = interest;
+    this.onData = onData;
+    this.onTimeout = onTimeout;
+    this.onNetworkNack = onNetworkNack;
+  }
+
+  /**
+   * Start the timeout once the interest has been expressed with this object as its callbacks.
+   *
+   * @param face the face that expressed the interest
+   * @param pendingInterestId the id returned when expressing
+   * @param scheduler the scheduler timing the interest out
+   */
+  void start(Face face, long pendingInterestId, Scheduler scheduler) {
+    this.face = face;
+    this.pendingInterestId = pendingInterestId;
+    double lifetime = interest.getInterestLifetimeMilliseconds();
+    if (lifetime < 0) {
+      lifetime = DEFAULT_LIFETIME_MS;
+    }
+    scheduler.schedule(this, (long) (lifetime * TimeUnit.MILLISECONDS.toNanos(1)));
+  }
+
+  @Override
+  public void onData(Interest expressed, Data data) {
+    if (done.compareAndSet(false, true) && onData != null) {
+      onData.onData(expressed, data);
+    }
+  }
+
+  @Override
+  public void onTimeout(Interest expressed) {
+    if (done.compareAndSet(false, true) && onTimeout != null) {
+      onTimeout.onTimeout(expressed);
+    }
+  }
+
+  @Override
+  public void onNetworkNack(Interest expressed, NetworkNack networkNack) {
+    // without a nack callback the interest stays pending until it times out, as with a plain face
+    if (onNetworkNack != null && done.compareAndSet(false, true)) {
+      onNetworkNack.onNetworkNack(expressed, networkNack);
+    }
+  }
+
+  @Override
+  public void run() {
+    if (done.compareAndSet(false, true)) {
+      face.removePendingInterest(pendingInterestId);
+      if (onTimeout != null) {
+        onTimeout.onTimeout(interest);
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+/**
+ * Runs tasks after a delay measured on its own clock; used by mock components that emulate time-dependent behavior,
+ * such as {@link EmulatedLink}.
+ */
+public interface Scheduler extends Clock {
+  /**
+   * Run a task once its delay has passed; tasks due at the same time run in the order they were scheduled.
+   *
+   * @param task the task to run
+   * @param delayNanos the time from now after which the task runs
+   */
+  void schedule(Runnable task, long delayNanos);
+}
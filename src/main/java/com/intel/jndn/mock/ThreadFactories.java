@@ -0,0 +1,52 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for the per-face execution mode of {@link MockEventLoop}. This is the Java 8 version, creating
+ * daemon platform threads; the multi-release JAR replaces it on Java 21 and later with a version creating virtual
+ * threads (see {@code src/main/java21}). Both versions must keep the same signatures.
+ */
+final class ThreadFactories {
+  private ThreadFactories() {
+    // do not allow instances of this class
+  }
+
+  /**
+   * @return true if {@link #perFace(String)} creates virtual threads
+   */
+  static boolean isVirtual() {
+    return false;
+  }
+
+  /**
+   * @param name the prefix of the thread names
+   * @return a factory for threads each running the events of a single face
+   */
+  static ThreadFactory perFace(final String name) {
+    final AtomicInteger ids = new AtomicInteger();
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, name + "-" + ids.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+}
@@ -0,0 +1,385 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Name;
+import net.named_data.jndn.RegistrationOptions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Network of linked {@link MockForwarder}s for multi-hop experiments in a single JVM. Build one with a factory
+ * method ({@link #line(int)}, {@link #tree(int, int)}, {@link #grid(int, int)}, {@link #fromEdgeList(Reader)}) or by
+ * {@link #connect(int, int, double) connecting} nodes by hand, then call {@link #route(Name, int)} to fill every
+ * node's FIB with shortest-path routes to a producer; applications attach with {@code get(i).connect()}.
+ * <p>
+ * All nodes are created from the same {@link MockForwarder.Options}, so the options must not name a content store,
+ * which would then be shared by every node; give them a {@link VirtualScheduler} to run the whole network on virtual
+ * time.
+ */
+public final class Topology {
+  private final List<MockForwarder> nodes = new ArrayList<>();
+  private final List<List<Edge>> edges = new ArrayList<>();
+  private final Map<String, Integer> names = new HashMap<>();
+  private final Map<Name, Map<MockTransport, Integer>> routeCosts = new HashMap<>();
+  private final MockForwarder.Options forwarderOptions;
+  private final EmulatedLink.Options linkOptions;
+
+  /**
+   * Create a topology of unconnected nodes with default options.
+   *
+   * @param size the number of nodes
+   */
+  public Topology(int size) {
+    this(size, new MockForwarder.Options(), null);
+  }
+
+  /**
+   * Create a topology of unconnected nodes.
+   *
+   * @param size the number of nodes
+   * @param forwarderOptions the options of every node
+   * @param linkOptions the options of every link, or null to hand packets between nodes over immediately
+   */
+  public Topology(int size, MockForwarder.Options forwarderOptions, EmulatedLink.Options linkOptions) {
+    if (forwarderOptions.getContentStore() != null) {
+      throw new IllegalArgumentException("Topology nodes cannot share a content store");
+    }
+    this.forwarderOptions = forwarderOptions;
+    this.linkOptions = linkOptions;
+    for (int i = 0; i < size; i++) {
+      addNode();
+    }
+  }
+
+  /**
+   * @param size the number of nodes
+   * @return nodes 0 to size - 1 linked in a line
+   */
+  public static Topology line(int size) {
+    return line(size, new MockForwarder.Options(), null);
+  }
+
+  /**
+   * @param size the number of nodes
+   * @param forwarderOptions the options of every node
+   * @param linkOptions the options of every link, or null for immediate links
+   * @return nodes 0 to size - 1 linked in a line
+   */
+  public static Topology line(int size, MockForwarder.Options forwarderOptions, EmulatedLink.Options linkOptions) {
+    Topology topology = new Topology(size, forwarderOptions, linkOptions);
+    for (int i = 1; i < size; i++) {
+      topology.connect(i - 1, i);
+    }
+    return topology;
+  }
+
+  /**
+   * @param depth the number of levels below the root
+   * @param fanout the number of children of each inner node
+   * @return a complete tree with the root at node 0 and the children of node i at i * fanout + 1 and up
+   */
+  public static Topology tree(int depth, int fanout) {
+    return tree(depth, fanout, new MockForwarder.Options(), null);
+  }
+
+  /**
+   * @param depth the number of levels below the root
+   * @param fanout the number of children of each inner node
+   * @param forwarderOptions the options of every node
+   * @param linkOptions the options of every link, or null for immediate links
+   * @return a complete tree with the root at node 0 and the children of node i at i * fanout + 1 and up
+   */
+  public static Topology tree(int depth, int fanout, MockForwarder.Options forwarderOptions,
+                              EmulatedLink.Options linkOptions) {
+    int size = 1;
+    for (int level = 0, width = 1; level < depth; level++) {
+      width *= fanout;
+      size += width;
+    }
+    Topology topology = new Topology(size, forwarderOptions, linkOptions);
+    for (int child = 1; child < size; child++) {
+      topology.connect((child - 1) / fanout, child);
+    }
+    return topology;
+  }
+
+  /**
+   * @param rows the number of rows
+   * @param columns the number of columns
+   * @return a grid where node {@code row * columns + column} is linked to its horizontal and vertical neighbours
+   */
+  public static Topology grid(int rows, int columns) {
+    return grid(rows, columns, new MockForwarder.Options(), null);
+  }
+
+  /**
+   * @param rows the number of rows
+   * @param columns the number of columns
+   * @param forwarderOptions the options of every node
+   * @param linkOptions the options of every link, or null for immediate links
+   * @return a grid where node {@code row * columns + column} is linked to its horizontal and vertical neighbours
+   */
+  public static Topology grid(int rows, int columns, MockForwarder.Options forwarderOptions,
+                              EmulatedLink.Options linkOptions) {
+    Topology topology = new Topology(rows * columns, forwarderOptions, linkOptions);
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        int node = row * columns + column;
+        if (column + 1 < columns) {
+          topology.connect(node, node + 1);
+        }
+        if (row + 1 < rows) {
+          topology.connect(node, node + columns);
+        }
+      }
+    }
+    return topology;
+  }
+
+  /**
+   * @param edgeList see {@link #fromEdgeList(Reader, MockForwarder.Options, EmulatedLink.Options)}
+   * @return the topology described by the edge list
+   * @throws IOException if reading fails or a line is malformed
+   */
+  public static Topology fromEdgeList(Reader edgeList) throws IOException {
+    return fromEdgeList(edgeList, new MockForwarder.Options(), null);
+  }
+
+  /**
+   * Import a topology from an edge list: one link per line as two node names and an optional cost (1 by default),
+   * separated by whitespace. Blank lines and lines starting with {@code #} are ignored. Nodes are numbered in order
+   * of first appearance; see {@link #indexOf(String)}.
+   *
+   * @param edgeList the edge list
+   * @param forwarderOptions the options of every node
+   * @param linkOptions the options of every link, or null for immediate links
+   * @return the topology described by the edge list
+   * @throws IOException if reading fails or a line is malformed
+   */
+  public static Topology fromEdgeList(Reader edgeList, MockForwarder.Options forwarderOptions,
+                                      EmulatedLink.Options linkOptions) throws IOException {
+    Topology topology = new Topology(0, forwarderOptions, linkOptions);
+    BufferedReader reader = new BufferedReader(edgeList);
+    int lineNumber = 0;
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\\s+");
+      if (fields.length < 2 || fields.length > 3) {
+        throw new IOException("Malformed edge on line " + lineNumber + ": " + line);
+      }
+      double cost = 1;
+      if (fields.length == 3) {
+        try {
+          cost = Double.parseDouble(fields[2]);
+        } catch (NumberFormatException e) {
+          throw new IOException("Malformed cost on line " + lineNumber + ": " + line, e);
+        }
+      }
+      topology.connect(topology.named(fields[0]), topology.named(fields[1]), cost);
+    }
+    return topology;
+  }
+
+  /**
+   * Link two nodes with cost 1.
+   *
+   * @param a a node index
+   * @param b another node index
+   */
+  public void connect(int a, int b) {
+    connect(a, b, 1);
+  }
+
+  /**
+   * Link two nodes.
+   *
+   * @param a a node index
+   * @param b another node index
+   * @param cost the cost of the link in both directions, used by {@link #route(Name, int)}
+   */
+  public void connect(int a, int b, double cost) {
+    if (cost <= 0) {
+      throw new IllegalArgumentException("Link cost must be positive: " + cost);
+    }
+    nodes.get(a).link(nodes.get(b), linkOptions);
+    edges.get(a).add(new Edge(b, cost));
+    edges.get(b).add(new Edge(a, cost));
+  }
+
+  /**
+   * Route a prefix to a producer: every other node gets a route for the prefix towards its neighbour on a shortest
+   * path to the producer, with the path cost (rounded) as route cost. The producer itself must have the prefix
+   * registered by a local application. Routing a prefix to several producers gives nodes a next hop towards each, so
+   * strategies such as {@link com.intel.jndn.mock.forwarder.BestRouteStrategy} prefer the nearest; where two producers
+   * are reached through the same neighbour, the route keeps the lower cost.
+   *
+   * @param prefix the prefix served by the producer
+   * @param producer the index of the producer's node
+   * @return the number of routes added; nodes that cannot reach the producer get none
+   */
+  public int route(Name prefix, int producer) {
+    double[] distance = new double[nodes.size()];
+    int[] nextHop = shortestPathTree(producer, distance);
+    Map<MockTransport, Integer> costs = routeCosts.get(prefix);
+    if (costs == null) {
+      costs = new HashMap<>();
+      routeCosts.put(prefix, costs);
+    }
+    int routes = 0;
+    for (int node = 0; node < nodes.size(); node++) {
+      if (node != producer && nextHop[node] >= 0) {
+        MockTransport peer = nodes.get(node).getPeer(nodes.get(nextHop[node]));
+        int cost = (int) Math.min(Integer.MAX_VALUE, Math.round(distance[node]));
+        Integer existing = costs.get(peer);
+        if (existing != null && existing < cost) {
+          cost = existing;
+        }
+        costs.put(peer, cost);
+        nodes.get(node).addRoute(prefix, peer, new RegistrationOptions(), cost);
+        routes++;
+      }
+    }
+    return routes;
+  }
+
+  /**
+   * @param a a node index
+   * @param b another node index
+   * @return the number of hops on the shortest path (by cost) from a to b, or -1 if b cannot be reached
+   */
+  public int hops(int a, int b) {
+    int[] nextHop = shortestPathTree(b, new double[nodes.size()]);
+    int hops = 0;
+    for (int node = a; node != b; node = nextHop[node]) {
+      if (nextHop[node] < 0) {
+        return -1;
+      }
+      hops++;
+    }
+    return hops;
+  }
+
+  /**
+   * @param index a node index
+   * @return the forwarder of the node
+   */
+  public MockForwarder get(int index) {
+    return nodes.get(index);
+  }
+
+  /**
+   * @param name a node name from an imported edge list
+   * @return the index of the node, or -1 if there is no such node
+   */
+  public int indexOf(String name) {
+    Integer index = names.get(name);
+    return index != null ? index : -1;
+  }
+
+  /**
+   * @return the forwarders of all nodes, by index
+   */
+  public List<MockForwarder> getNodes() {
+    return Collections.unmodifiableList(nodes);
+  }
+
+  /**
+   * @return the number of nodes
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  private int addNode() {
+    nodes.add(new MockForwarder(forwarderOptions));
+    edges.add(new ArrayList<Edge>());
+    return nodes.size() - 1;
+  }
+
+  private int named(String name) {
+    Integer index = names.get(name);
+    if (index == null) {
+      index = addNode();
+      names.put(name, index);
+    }
+    return index;
+  }
+
+  /**
+   * Dijkstra from the root over the symmetric link costs; ties are broken towards lower node indices so that routes
+   * are the same on every run.
+   *
+   * @param root the node to find shortest paths to
+   * @param distance receives, for each node, the cost of its shortest path to the root
+   * @return for each node, the neighbour on its shortest path to the root, or -1 for the root and unreachable nodes
+   */
+  private int[] shortestPathTree(int root, double[] distance) {
+    int[] nextHop = new int[nodes.size()];
+    Arrays.fill(distance, Double.POSITIVE_INFINITY);
+    Arrays.fill(nextHop, -1);
+    distance[root] = 0;
+
+    PriorityQueue<double[]> queue = new PriorityQueue<>(11, new Comparator<double[]>() {
+      @Override
+      public int compare(double[] a, double[] b) {
+        int byDistance = Double.compare(a[0], b[0]);
+        return byDistance != 0 ? byDistance : Double.compare(a[1], b[1]);
+      }
+    });
+    queue.add(new double[]{0, root});
+    while (!queue.isEmpty()) {
+      double[] head = queue.poll();
+      int node = (int) head[1];
+      if (head[0] > distance[node]) {
+        continue; // stale
+      }
+      for (Edge edge : edges.get(node)) {
+        double candidate = distance[node] + edge.cost;
+        if (candidate < distance[edge.to] || candidate == distance[edge.to] && node < nextHop[edge.to]) {
+          distance[edge.to] = candidate;
+          nextHop[edge.to] = node;
+          queue.add(new double[]{candidate, edge.to});
+        }
+      }
+    }
+    nextHop[root] = -1;
+    return nextHop;
+  }
+
+  private static final class Edge {
+    private final int to;
+    private final double cost;
+
+    Edge(int to, double cost) {
+      this.to = to;
+      this.cost = cost;
+    }
+  }
+}
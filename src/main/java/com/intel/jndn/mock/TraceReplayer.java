@@ -0,0 +1,405 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Face;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replays a trace recorded by a {@link TraceWriter}, feeding its blocks to a transport or face at the original pace, a
+ * multiple of it, or as fast as possible. The trace is memory-mapped a window at a time and each block is handed over
+ * as a read-only slice of the mapping, so arbitrarily large traces replay without being loaded onto the heap and
+ * without decoding or re-encoding packets.
+ * <p>
+ * Records are replayed in file order. Pacing follows the gaps between consecutive recorded timestamps, including
+ * those of records filtered out; a gap that goes back in time, as when a trace was appended to, counts as none. A
+ * replayer is not thread-safe.
+ */
+public final class TraceReplayer implements Closeable {
+  /**
+   * Face filter matching the records of every face.
+   */
+  public static final int ALL_FACES = -1;
+  private static final Logger LOGGER = Logger.getLogger(TraceReplayer.class.getName());
+  private static final TraceWriter.Direction[] DIRECTIONS = TraceWriter.Direction.values();
+  private final FileChannel channel;
+  private final double speed;
+  private final TraceWriter.Direction direction;
+  private final int face;
+  private final int windowSize;
+  private long size;
+  private long offset;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long replayed = 0;
+  // the record last read
+  private long timestamp;
+  private int recordFace;
+  private TraceWriter.Direction recordDirection;
+  private ByteBuffer block;
+
+  /**
+   * Receives replayed blocks.
+   */
+  public interface Target {
+    /**
+     * @param block a recorded block, read-only
+     * @throws IOException if the block cannot be delivered; replay stops
+     */
+    void replay(ByteBuffer block) throws IOException;
+  }
+
+  /**
+   * Options for replaying a trace.
+   */
+  public static class Options {
+    private static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+    private double speed = 1;
+    private TraceWriter.Direction direction = TraceWriter.Direction.RECEIVED;
+    private int face = ALL_FACES;
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+
+    /**
+     * @return the replay speed as a multiple of the recorded pace, or 0 for no pacing
+     */
+    public double getSpeed() {
+      return speed;
+    }
+
+    /**
+     * @param speed the replay speed as a multiple of the recorded pace, e.g. 1 (the default) for the original pace or
+     * 10 for ten times faster; 0 replays as fast as possible
+     * @return this
+     */
+    public Options setSpeed(final double speed) {
+      if (speed < 0 || Double.isNaN(speed)) {
+        throw new IllegalArgumentException("Replay speed must not be negative: " + speed);
+      }
+      this.speed = speed;
+      return this;
+    }
+
+    /**
+     * @return the direction of the replayed records, or null if all are replayed
+     */
+    public TraceWriter.Direction getDirection() {
+      return direction;
+    }
+
+    /**
+     * @param direction the direction of the replayed records: {@link TraceWriter.Direction#RECEIVED} (the default) to
+     * feed a face what the recorded face received, {@link TraceWriter.Direction#SENT} to send what it sent, e.g. to
+     * reproduce the load on a forwarder; or null for all records
+     * @return this
+     */
+    public Options setDirection(final TraceWriter.Direction direction) {
+      this.direction = direction;
+      return this;
+    }
+
+    /**
+     * @return the face number of the replayed records, or {@link #ALL_FACES}
+     */
+    public int getFace() {
+      return face;
+    }
+
+    /**
+     * @param face the face number of the replayed records, or {@link #ALL_FACES} (the default)
+     * @return this
+     */
+    public Options setFace(final int face) {
+      this.face = face;
+      return this;
+    }
+
+    /**
+     * @return the number of bytes of the trace mapped at a time
+     */
+    public int getWindowSize() {
+      return windowSize;
+    }
+
+    /**
+     * @param windowSize the number of bytes of the trace mapped at a time, 64 MiB by default; records larger than
+     * this are mapped whole
+     * @return this
+     */
+    public Options setWindowSize(final int windowSize) {
+      if (windowSize < TraceWriter.RECORD_HEADER_SIZE) {
+        throw new IllegalArgumentException("Window size too small: " + windowSize);
+      }
+      this.windowSize = windowSize;
+      return this;
+    }
+  }
+
+  /**
+   * Open a trace to replay received blocks of all faces at the recorded pace.
+   *
+   * @param file the trace file
+   * @throws IOException if the file cannot be opened or is not a trace
+   */
+  public TraceReplayer(final Path file) throws IOException {
+    this(file, new Options());
+  }
+
+  /**
+   * @param file the trace file
+   * @param options see {@link Options}
+   * @throws IOException if the file cannot be opened or is not a trace
+   */
+  public TraceReplayer(final Path file, final Options options) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.speed = options.getSpeed();
+    this.direction = options.getDirection();
+    this.face = options.getFace();
+    this.windowSize = options.getWindowSize();
+    try {
+      checkHeader(channel);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    rewind();
+  }
+
+  /**
+   * Replay the rest of the trace into a transport, as if its face received the blocks.
+   *
+   * @param transport the transport receiving the blocks
+   * @return the number of blocks replayed
+   * @throws IOException if reading the trace fails
+   * @throws InterruptedException if the thread is interrupted while waiting for the next block
+   */
+  public long replay(final MockTransport transport) throws IOException, InterruptedException {
+    return replay(new Target() {
+      @Override
+      public void replay(ByteBuffer block) {
+        transport.receive(block);
+      }
+    });
+  }
+
+  /**
+   * Replay the rest of the trace by sending the blocks from a face, e.g. one connected to a {@link MockForwarder}.
+   *
+   * @param sender the face sending the blocks
+   * @return the number of blocks replayed
+   * @throws IOException if reading the trace or sending fails
+   * @throws InterruptedException if the thread is interrupted while waiting for the next block
+   */
+  public long replay(final Face sender) throws IOException, InterruptedException {
+    return replay(new Target() {
+      @Override
+      public void replay(ByteBuffer block) throws IOException {
+        sender.send(block);
+      }
+    });
+  }
+
+  /**
+   * Replay the rest of the trace on the calling thread, waiting on the wall clock between blocks.
+   *
+   * @param target the receiver of the blocks
+   * @return the number of blocks replayed
+   * @throws IOException if reading the trace or delivering a block fails
+   * @throws InterruptedException if the thread is interrupted while waiting for the next block
+   */
+  public long replay(final Target target) throws IOException, InterruptedException {
+    long count = 0;
+    long begin = System.nanoTime();
+    long elapsed = 0;
+    long previous = -1;
+    while (read()) {
+      elapsed += gap(previous);
+      previous = timestamp;
+      if (!selected()) {
+        continue;
+      }
+      long remaining = speed > 0 ? begin + (long) (elapsed / speed) - System.nanoTime() : 0;
+      while (remaining > 0) {
+        LockSupport.parkNanos(this, remaining);
+        if (Thread.interrupted()) {
+          throw new InterruptedException("Interrupted while replaying trace");
+        }
+        remaining = begin + (long) (elapsed / speed) - System.nanoTime();
+      }
+      target.replay(block);
+      count++;
+      replayed++;
+    }
+    return count;
+  }
+
+  /**
+   * Replay the rest of the trace as tasks of a scheduler, typically a {@link VirtualScheduler} shared with the
+   * receiving faces; this returns at once and each block is scheduled only once the previous one was replayed.
+   * Replay stops at the first block that cannot be read or delivered.
+   *
+   * @param target the receiver of the blocks
+   * @param scheduler the scheduler pacing the replay
+   */
+  public void schedule(final Target target, final Scheduler scheduler) {
+    scheduleNext(target, scheduler, -1);
+  }
+
+  private void scheduleNext(final Target target, final Scheduler scheduler, long previous) {
+    long delay = 0;
+    try {
+      while (read()) {
+        delay += gap(previous);
+        previous = timestamp;
+        if (selected()) {
+          break;
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to read trace; replay stopped", e);
+      return;
+    }
+    if (block == null) {
+      return;
+    }
+
+    final ByteBuffer next = block;
+    final long last = previous;
+    scheduler.schedule(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          target.replay(next);
+          replayed++;
+        } catch (IOException e) {
+          LOGGER.log(Level.WARNING, "Failed to replay block; replay stopped", e);
+          return;
+        }
+        scheduleNext(target, scheduler, last);
+      }
+    }, speed > 0 ? (long) (delay / speed) : 0);
+  }
+
+  /**
+   * Start over from the beginning of the trace, including records appended since it was opened.
+   *
+   * @throws IOException if the trace cannot be read
+   */
+  public void rewind() throws IOException {
+    size = channel.size();
+    offset = TraceWriter.FILE_HEADER_SIZE;
+    block = null;
+  }
+
+  /**
+   * @return the number of blocks replayed so far
+   */
+  public long getReplayed() {
+    return replayed;
+  }
+
+  /**
+   * Close the trace file; blocks already handed out remain readable.
+   *
+   * @throws IOException if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  static void checkHeader(final FileChannel file) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(TraceWriter.FILE_HEADER_SIZE);
+    while (header.hasRemaining()) {
+      if (file.read(header, header.position()) < 0) {
+        throw new IOException("Not a packet trace: file too short");
+      }
+    }
+    if (header.getInt(0) != TraceWriter.MAGIC) {
+      throw new IOException("Not a packet trace: bad magic number");
+    }
+    if (header.getInt(4) != TraceWriter.VERSION) {
+      throw new IOException("Unsupported packet trace version: " + header.getInt(4));
+    }
+  }
+
+  private long gap(long previous) {
+    return previous < 0 ? 0 : Math.max(timestamp - previous, 0);
+  }
+
+  private boolean selected() {
+    return (direction == null || direction == recordDirection) && (face == ALL_FACES || face == recordFace);
+  }
+
+  /**
+   * Read the record at the current offset and move past it.
+   *
+   * @return false, clearing the current block, at the end of the trace or at a truncated last record
+   */
+  private boolean read() throws IOException {
+    block = null;
+    if (offset == size) {
+      return false;
+    }
+    if (offset + TraceWriter.RECORD_HEADER_SIZE > size) {
+      LOGGER.warning("Ignoring truncated trace record at offset " + offset);
+      return false;
+    }
+    map(offset, TraceWriter.RECORD_HEADER_SIZE);
+    int at = (int) (offset - windowStart);
+    long recorded = window.getLong(at);
+    int recordedFace = window.getInt(at + 8);
+    int recordedDirection = window.get(at + 12);
+    int length = window.getInt(at + 13);
+    long recordSize = (long) TraceWriter.RECORD_HEADER_SIZE + length;
+    if (length < 0 || recordSize > Integer.MAX_VALUE || recordedDirection < 0
+        || recordedDirection >= DIRECTIONS.length) {
+      throw new IOException("Corrupt trace record at offset " + offset);
+    }
+    if (offset + recordSize > size) {
+      LOGGER.warning("Ignoring truncated trace record at offset " + offset);
+      return false;
+    }
+
+    map(offset, (int) recordSize);
+    at = (int) (offset - windowStart) + TraceWriter.RECORD_HEADER_SIZE;
+    ByteBuffer slice = window.duplicate();
+    slice.position(at).limit(at + length);
+    block = slice.slice();
+    timestamp = recorded;
+    recordFace = recordedFace;
+    recordDirection = DIRECTIONS[recordedDirection];
+    offset += recordSize;
+    return true;
+  }
+
+  private void map(long from, int length) throws IOException {
+    if (window != null && from >= windowStart && from + length <= windowStart + window.capacity()) {
+      return;
+    }
+    long mapped = Math.min(Math.max(windowSize, length), size - from);
+    window = channel.map(FileChannel.MapMode.READ_ONLY, from, mapped);
+    windowStart = from;
+  }
+}
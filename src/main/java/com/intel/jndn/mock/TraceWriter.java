@@ -0,0 +1,272 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only binary trace of the raw TLV blocks sent and received by mock transports, for replay with a
+ * {@link TraceReplayer}. Attach a writer to a face with {@link MockFace.Options#setTraceWriter(TraceWriter)} or to
+ * every face of a forwarder with {@link MockForwarder.Options#setTraceWriter(TraceWriter)}; one writer may record
+ * any number of transports, each under a face number of its own.
+ * <p>
+ * The file starts with an 8-byte header, the magic number {@code JNTR} and a format version, followed by records of
+ * a big-endian 17-byte header, the timestamp in nanoseconds since the writer was opened, the face number, the
+ * {@link Direction} and the block length, and then the block itself. Records are buffered in memory and written in
+ * large chunks; they are on disk once the writer is flushed or closed. Opening a writer on an existing trace appends
+ * a new session to it: timestamps continue from the last record and face numbers from the highest one recorded, so
+ * a replay of the whole file neither goes back in time nor mixes up the faces of the two sessions.
+ */
+public final class TraceWriter implements Closeable, Flushable {
+  static final int MAGIC = 0x4a4e5452;
+  static final int VERSION = 1;
+  static final int FILE_HEADER_SIZE = 8;
+  static final int RECORD_HEADER_SIZE = 17;
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+  private static final Logger LOGGER = Logger.getLogger(TraceWriter.class.getName());
+  private final FileChannel channel;
+  private final Clock clock;
+  private final long start;
+  private final ByteBuffer buffer;
+  private final AtomicInteger faces;
+  private long records = 0;
+  private long bufferedRecords = 0;
+  private long droppedRecords = 0;
+  private boolean closed = false;
+
+  /**
+   * Direction of a recorded block, as seen from the face.
+   */
+  public enum Direction {
+    /**
+     * A block sent by the face, e.g. an interest it expressed.
+     */
+    SENT,
+    /**
+     * A block received by the face, after any link and link service.
+     */
+    RECEIVED
+  }
+
+  /**
+   * Open a trace timed by the wall clock.
+   *
+   * @param file the trace file, created if missing and appended to otherwise
+   * @throws IOException if the file cannot be opened or is not a trace
+   */
+  public TraceWriter(final Path file) throws IOException {
+    this(file, Clock.SYSTEM);
+  }
+
+  /**
+   * @param file the trace file, created if missing and appended to otherwise
+   * @param clock the clock timestamping records, e.g. the {@link VirtualScheduler} of the recorded faces
+   * @throws IOException if the file cannot be opened or is not a trace
+   */
+  public TraceWriter(final Path file, final Clock clock) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    this.clock = clock;
+    this.buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+    long lastTimestamp = 0;
+    int nextFace = 0;
+    try {
+      if (channel.size() == 0) {
+        buffer.putInt(MAGIC).putInt(VERSION);
+      } else {
+        TraceReplayer.checkHeader(channel);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        long position = FILE_HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= channel.size()) {
+          header.clear();
+          read(channel, header, position);
+          int length = header.getInt(13);
+          long end = position + RECORD_HEADER_SIZE + length;
+          if (length < 0 || end > channel.size()) {
+            break;
+          }
+          lastTimestamp = Math.max(lastTimestamp, header.getLong(0));
+          nextFace = Math.max(nextFace, header.getInt(8) + 1);
+          position = end;
+        }
+        if (position < channel.size()) {
+          LOGGER.log(Level.WARNING, "Dropping the truncated last record of trace {0}", file);
+          channel.truncate(position);
+        }
+        channel.position(position);
+      }
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    this.faces = new AtomicInteger(nextFace);
+    this.start = clock.nanoTime() - lastTimestamp;
+  }
+
+  /**
+   * @return a face number unique within this writer, for a newly attached transport
+   */
+  int newFace() {
+    return faces.getAndIncrement();
+  }
+
+  /**
+   * Append a block to the trace; the block is copied, so its buffer may be reused once this returns. Failures to
+   * write are logged and counted rather than thrown so that a full disk does not break the recorded test.
+   *
+   * @param face the face number of the recording transport
+   * @param direction whether the face sent or received the block
+   * @param block the raw TLV block, from its position to its limit; not modified
+   */
+  public synchronized void record(final int face, final Direction direction, final ByteBuffer block) {
+    if (closed) {
+      droppedRecords++;
+      return;
+    }
+    int length = block.remaining();
+    long timestamp = clock.nanoTime() - start;
+    try {
+      if (buffer.remaining() < RECORD_HEADER_SIZE + length) {
+        drain();
+      }
+      if (buffer.remaining() >= RECORD_HEADER_SIZE + length) {
+        putHeader(buffer, timestamp, face, direction, length).put(block.duplicate());
+        bufferedRecords++;
+      } else {
+        // larger than the buffer: written on its own, header and block together
+        ByteBuffer header = putHeader(ByteBuffer.allocate(RECORD_HEADER_SIZE), timestamp, face, direction, length);
+        header.flip();
+        write(header, block.duplicate());
+      }
+      records++;
+    } catch (IOException e) {
+      droppedRecords++;
+      LOGGER.log(Level.WARNING, "Failed to write trace record", e);
+    }
+  }
+
+  /**
+   * Write the buffered records to the file.
+   *
+   * @throws IOException if writing fails
+   */
+  @Override
+  public synchronized void flush() throws IOException {
+    if (!closed) {
+      drain();
+    }
+  }
+
+  /**
+   * Flush the buffered records and close the file; blocks recorded afterwards are dropped.
+   *
+   * @throws IOException if writing or closing fails
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      drain();
+    } finally {
+      closed = true;
+      channel.close();
+    }
+  }
+
+  /**
+   * @return the number of records written or buffered
+   */
+  public synchronized long getRecords() {
+    return records;
+  }
+
+  /**
+   * @return the number of blocks that could not be recorded, because writing failed or the writer was closed
+   */
+  public synchronized long getDroppedRecords() {
+    return droppedRecords;
+  }
+
+  private void drain() throws IOException {
+    buffer.flip();
+    try {
+      write(buffer);
+    } catch (IOException e) {
+      // the buffered records are discarded with the buffer
+      records -= bufferedRecords;
+      droppedRecords += bufferedRecords;
+      throw e;
+    } finally {
+      buffer.clear();
+      bufferedRecords = 0;
+    }
+  }
+
+  private static void read(final FileChannel channel, final ByteBuffer bytes, final long position)
+      throws IOException {
+    while (bytes.hasRemaining()) {
+      if (channel.read(bytes, position + bytes.position()) < 0) {
+        throw new EOFException("Truncated packet trace");
+      }
+    }
+  }
+
+  private static ByteBuffer putHeader(final ByteBuffer into, final long timestamp, final int face,
+                                      final Direction direction, final int length) {
+    return into.putLong(timestamp).putInt(face).put((byte) direction.ordinal()).putInt(length);
+  }
+
+  /**
+   * Write whole records; if writing fails, the file is truncated back to where they started, so that records appended
+   * later do not follow a torn one.
+   */
+  private void write(final ByteBuffer... bytes) throws IOException {
+    long recordsStart = channel.position();
+    try {
+      while (hasRemaining(bytes)) {
+        channel.write(bytes);
+      }
+    } catch (IOException e) {
+      try {
+        channel.truncate(recordsStart);
+        channel.position(recordsStart);
+      } catch (IOException truncation) {
+        e.addSuppressed(truncation);
+      }
+      throw e;
+    }
+  }
+
+  private static boolean hasRemaining(final ByteBuffer... bytes) {
+    for (ByteBuffer buffer : bytes) {
+      if (buffer.hasRemaining()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Discrete-event scheduler on virtual time: scheduled tasks run in time order whenever the caller runs the scheduler,
+ * and the clock jumps straight to each task's time instead of waiting for it. Shared by mock faces, forwarders and
+ * links (see the {@code setScheduler} options of {@link MockFace} and {@link MockForwarder}), it lets a test simulate
+ * hours of traffic, including interest timeouts and PIT expiry, as fast as the CPU allows and with the same result
+ * on every run.
+ * <p>
+ * Tasks due at the same time run in the order they were scheduled. As an {@link Executor}, the scheduler runs
+ * submitted tasks at the current virtual time. Tasks may be scheduled from any thread, but the scheduler is meant to be
+ * run by a single thread.
+ */
+public final class VirtualScheduler implements Scheduler, Executor {
+  private static final Logger LOGGER = Logger.getLogger(VirtualScheduler.class.getName());
+  private final PriorityQueue<Event> events = new PriorityQueue<>();
+  private volatile long now;
+  private long sequence = 0;
+
+  /**
+   * Create a scheduler starting at virtual time 0.
+   */
+  public VirtualScheduler() {
+    this(0);
+  }
+
+  /**
+   * @param startNanos the initial virtual time
+   */
+  public VirtualScheduler(long startNanos) {
+    this.now = startNanos;
+  }
+
+  @Override
+  public long nanoTime() {
+    return now;
+  }
+
+  @Override
+  public synchronized void schedule(Runnable task, long delayNanos) {
+    events.add(new Event(task, now + Math.max(delayNanos, 0), sequence++));
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    schedule(task, 0);
+  }
+
+  /**
+   * Run the next task, moving the clock to its time.
+   *
+   * @return false if no task was pending
+   */
+  public boolean runNext() {
+    Event event;
+    synchronized (this) {
+      event = events.poll();
+      if (event == null) {
+        return false;
+      }
+      now = event.timeNanos;
+    }
+    try {
+      event.task.run();
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Scheduled task failed", e);
+    }
+    return true;
+  }
+
+  /**
+   * Run tasks until none are left; tasks that keep rescheduling themselves make this run forever, use
+   * {@link #runFor(long, TimeUnit)} instead.
+   *
+   * @return the number of tasks run
+   */
+  public long run() {
+    long count = 0;
+    while (runNext()) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Run every task due up to a virtual time, then move the clock to that time.
+   *
+   * @param timeNanos the virtual time to run to
+   * @return the number of tasks run
+   */
+  public long runUntil(long timeNanos) {
+    long count = 0;
+    while (true) {
+      synchronized (this) {
+        Event next = events.peek();
+        if (next == null || next.timeNanos - timeNanos > 0) {
+          if (timeNanos - now > 0) {
+            now = timeNanos;
+          }
+          return count;
+        }
+      }
+      runNext();
+      count++;
+    }
+  }
+
+  /**
+   * Run every task due within a span of virtual time from now, then move the clock to its end.
+   *
+   * @param duration the span of virtual time
+   * @param unit the unit of the span
+   * @return the number of tasks run
+   */
+  public long runFor(long duration, TimeUnit unit) {
+    return runUntil(now + unit.toNanos(duration));
+  }
+
+  /**
+   * @return the number of pending tasks
+   */
+  public synchronized int size() {
+    return events.size();
+  }
+
+  private static final class Event implements Comparable<Event> {
+    private final Runnable task;
+    private final long timeNanos;
+    private final long sequence;
+
+    Event(Runnable task, long timeNanos, long sequence) {
+      this.task = task;
+      this.timeNanos = timeNanos;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(Event other) {
+      int byTime = Long.compare(timeNanos - other.timeNanos, 0);
+      return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import com.intel.jndn.mock.forwarder.TimerWheel;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link Scheduler} backed by a hashed {@link TimerWheel}: scheduling is O(1) regardless of how many tasks are
+ * pending, so millions of delayed packets can be in flight at once. Tasks run on the scheduler's thread once
+ * {@link #start()} has been called, or on the caller's thread in {@link #runDue()}, e.g. with a manual {@link Clock}
+ * in tests. Tasks never run early, but may run up to one tick late; tasks due in the same tick run in deadline order.
+ */
+public final class WheelScheduler implements Scheduler, Closeable {
+  private static final Logger LOGGER = Logger.getLogger(WheelScheduler.class.getName());
+  private static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final int DEFAULT_WHEEL_SIZE = 4096;
+  private static final Comparator<Task> DEADLINE_ORDER = new Comparator<Task>() {
+    @Override
+    public int compare(Task a, Task b) {
+      int byDeadline = Long.compare(a.deadlineNanos - b.deadlineNanos, 0);
+      return byDeadline != 0 ? byDeadline : Long.compare(a.sequence, b.sequence);
+    }
+  };
+  private final Clock clock;
+  private final long tickNanos;
+  private final TimerWheel<Task> wheel;
+  private final List<Task> expired = new ArrayList<>();
+  private final TimerWheel.OnExpiration<Task> collect = new TimerWheel.OnExpiration<Task>() {
+    @Override
+    public void expire(Task task) {
+      expired.add(task);
+    }
+  };
+  private long sequence = 0;
+  private volatile Thread thread;
+
+  /**
+   * Create a scheduler on the system clock with a 1 ms tick.
+   */
+  public WheelScheduler() {
+    this(Clock.SYSTEM, DEFAULT_TICK_NANOS, DEFAULT_WHEEL_SIZE);
+  }
+
+  /**
+   * @param clock the time source of the scheduler
+   * @param tickNanos the resolution of the scheduler; tasks run at most this late
+   * @param wheelSize the number of wheel buckets; delays beyond {@code tickNanos * wheelSize} cost an extra visit to
+   * their bucket per revolution
+   */
+  public WheelScheduler(Clock clock, long tickNanos, int wheelSize) {
+    this.clock = clock;
+    this.tickNanos = tickNanos;
+    this.wheel = new TimerWheel<>(clock, tickNanos, wheelSize);
+  }
+
+  @Override
+  public long nanoTime() {
+    return clock.nanoTime();
+  }
+
+  @Override
+  public void schedule(Runnable task, long delayNanos) {
+    boolean wasIdle;
+    synchronized (this) {
+      wasIdle = wheel.size() == 0;
+      wheel.schedule(new Task(task, clock.nanoTime() + delayNanos, sequence++), delayNanos);
+    }
+    Thread running = thread;
+    if (wasIdle && running != null) {
+      LockSupport.unpark(running);
+    }
+  }
+
+  /**
+   * Run every task that is due, on the calling thread.
+   *
+   * @return the number of tasks run
+   */
+  public int runDue() {
+    Task[] due;
+    synchronized (this) {
+      wheel.advance(collect);
+      if (expired.isEmpty()) {
+        return 0;
+      }
+      Collections.sort(expired, DEADLINE_ORDER);
+      due = expired.toArray(new Task[expired.size()]);
+      expired.clear();
+    }
+    for (Task task : due) {
+      try {
+        task.runnable.run();
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Scheduled task failed", e);
+      }
+    }
+    return due.length;
+  }
+
+  /**
+   * @return the number of tasks waiting to run
+   */
+  public synchronized int size() {
+    return wheel.size();
+  }
+
+  /**
+   * Start a daemon thread running due tasks every tick, parking while no tasks are pending; has no effect if the
+   * thread is already running.
+   *
+   * @return this
+   */
+  public synchronized WheelScheduler start() {
+    if (thread == null) {
+      thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          runTasks();
+        }
+      }, "mock-scheduler");
+      thread.setDaemon(true);
+      thread.start();
+    }
+    return this;
+  }
+
+  /**
+   * Stop the thread started by {@link #start()}; pending tasks stay scheduled.
+   */
+  @Override
+  public void close() {
+    Thread stopping;
+    synchronized (this) {
+      stopping = thread;
+      thread = null;
+    }
+    if (stopping != null) {
+      LockSupport.unpark(stopping);
+    }
+  }
+
+  private void runTasks() {
+    Thread self = Thread.currentThread();
+    while (thread == self) {
+      runDue();
+      if (size() == 0) {
+        LockSupport.park(this); // unparked by the next schedule()
+      } else {
+        LockSupport.parkNanos(this, tickNanos);
+      }
+    }
+  }
+
+  private static final class Task {
+    private final Runnable runnable;
+    private final long deadlineNanos;
+    private final long sequence;
+
+    Task(Runnable runnable, long deadlineNanos, long sequence) {
+      this.runnable = runnable;
+      this.deadlineNanos = deadlineNanos;
+      this.sequence = sequence;
+    }
+  }
+}
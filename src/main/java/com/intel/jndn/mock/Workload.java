@@ -0,0 +1,671 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.NetworkNack;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.OnNetworkNack;
+import net.named_data.jndn.OnRegisterFailed;
+import net.named_data.jndn.OnRegisterSuccess;
+import net.named_data.jndn.OnTimeout;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.WireFormat;
+import net.named_data.jndn.security.SecurityException;
+import net.named_data.jndn.util.Blob;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Synthetic load for a {@link MockForwarder}: consumer faces request names from a catalog spread over producer faces,
+ * which register their prefixes through the usual {@code /localhost/nfd/rib/register} command and answer every
+ * interest. Names are drawn uniformly or by Zipf popularity; consumers either send at a fixed total rate (open loop)
+ * or each keep a fixed window of interests outstanding (closed loop). Each {@link #run(long, TimeUnit) run} reports
+ * the achieved throughput, satisfaction ratio and round-trip times, so that sweeping the rate or window shows where
+ * the forwarder saturates.
+ * <p>
+ * On the wall clock the workload drives every face from the calling thread, so the forwarder must be polled: it must
+ * have no event loop and must not be {@link MockForwarder#start() started}. On virtual time, give the workload the
+ * forwarder's {@link VirtualScheduler}; round-trip times then only reflect emulated link delays.
+ */
+public final class Workload {
+  private static final Logger LOGGER = Logger.getLogger(Workload.class.getName());
+  private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private final MockForwarder forwarder;
+  private final VirtualScheduler scheduler;
+  private final Clock clock;
+  private final Face[] consumers;
+  private final Name[] catalog;
+  private final double[] popularity;
+  private final Random random;
+  private final double rate;
+  private final int window;
+  private final long lifetimeNanos;
+  private final Blob content;
+  private int registered = 0;
+  private int registrationFailures = 0;
+  private boolean sending = false;
+  private int nextConsumer = 0;
+  private long expressed;
+  private long satisfied;
+  private long timedOut;
+  private long nacked;
+  private long outstanding;
+  private LatencyHistogram rtt;
+
+  /**
+   * Options for generating a workload.
+   */
+  public static class Options {
+    private int consumers = 1;
+    private int producers = 1;
+    private Name prefix = new Name("/workload");
+    private int catalogSize = 1000;
+    private double zipfExponent = 0;
+    private double rate = 0;
+    private int window = 1;
+    private long interestLifetime = TimeUnit.SECONDS.toNanos(1);
+    private int contentSize = 1024;
+    private long seed = 0;
+    private VirtualScheduler scheduler = null;
+
+    /**
+     * @return the number of consumer faces
+     */
+    public int getConsumers() {
+      return consumers;
+    }
+
+    /**
+     * @param consumers the number of consumer faces, 1 by default
+     * @return this
+     */
+    public Options setConsumers(final int consumers) {
+      if (consumers < 1) {
+        throw new IllegalArgumentException("A workload needs at least one consumer: " + consumers);
+      }
+      this.consumers = consumers;
+      return this;
+    }
+
+    /**
+     * @return the number of producer faces
+     */
+    public int getProducers() {
+      return producers;
+    }
+
+    /**
+     * @param producers the number of producer faces, 1 by default; producer i serves {@code <prefix>/producer<i>}
+     * @return this
+     */
+    public Options setProducers(final int producers) {
+      if (producers < 1) {
+        throw new IllegalArgumentException("A workload needs at least one producer: " + producers);
+      }
+      this.producers = producers;
+      return this;
+    }
+
+    /**
+     * @return the prefix of all requested names
+     */
+    public Name getPrefix() {
+      return prefix;
+    }
+
+    /**
+     * @param prefix the prefix of all requested names, {@code /workload} by default
+     * @return this
+     */
+    public Options setPrefix(final Name prefix) {
+      this.prefix = prefix;
+      return this;
+    }
+
+    /**
+     * @return the number of distinct names requested
+     */
+    public int getCatalogSize() {
+      return catalogSize;
+    }
+
+    /**
+     * @param catalogSize the number of distinct names requested, 1000 by default; item i is served by producer
+     * i modulo the number of producers
+     * @return this
+     */
+    public Options setCatalogSize(final int catalogSize) {
+      if (catalogSize < 1) {
+        throw new IllegalArgumentException("Catalog size must be positive: " + catalogSize);
+      }
+      this.catalogSize = catalogSize;
+      return this;
+    }
+
+    /**
+     * @return the exponent of the Zipf popularity of names, 0 if names are drawn uniformly
+     */
+    public double getZipfExponent() {
+      return zipfExponent;
+    }
+
+    /**
+     * @param zipfExponent the exponent s of the Zipf popularity of names, where the k-th most popular name is
+     * requested with a probability proportional to 1/k^s; 0 (the default) draws names uniformly, values around 1
+     * model typical content popularity
+     * @return this
+     */
+    public Options setZipfExponent(final double zipfExponent) {
+      if (zipfExponent < 0 || Double.isNaN(zipfExponent)) {
+        throw new IllegalArgumentException("Zipf exponent must not be negative: " + zipfExponent);
+      }
+      this.zipfExponent = zipfExponent;
+      return this;
+    }
+
+    /**
+     * @return the total interest rate per second of open-loop sending, or 0 for closed-loop sending
+     */
+    public double getRate() {
+      return rate;
+    }
+
+    /**
+     * @param rate the total number of interests per second, sent at fixed intervals by the consumers in turn whether
+     * or not earlier interests were answered; 0 (the default) sends in a closed loop instead, see
+     * {@link #setWindow(int)}
+     * @return this
+     */
+    public Options setRate(final double rate) {
+      if (rate < 0 || Double.isNaN(rate)) {
+        throw new IllegalArgumentException("Rate must not be negative: " + rate);
+      }
+      this.rate = rate;
+      return this;
+    }
+
+    /**
+     * @return the number of interests each consumer keeps outstanding in closed-loop sending
+     */
+    public int getWindow() {
+      return window;
+    }
+
+    /**
+     * @param window the number of interests each consumer keeps outstanding when the rate is 0, 1 by default; each
+     * answered, timed out or nacked interest is replaced by a new one at once
+     * @return this
+     */
+    public Options setWindow(final int window) {
+      if (window < 1) {
+        throw new IllegalArgumentException("Window must be positive: " + window);
+      }
+      this.window = window;
+      return this;
+    }
+
+    /**
+     * @param unit the unit of the result
+     * @return the lifetime of the interests sent
+     */
+    public long getInterestLifetime(final TimeUnit unit) {
+      return unit.convert(interestLifetime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param lifetime the lifetime of the interests sent, 1 second by default
+     * @param unit the unit of the lifetime
+     * @return this
+     */
+    public Options setInterestLifetime(final long lifetime, final TimeUnit unit) {
+      if (lifetime <= 0) {
+        throw new IllegalArgumentException("Interest lifetime must be positive: " + lifetime);
+      }
+      this.interestLifetime = unit.toNanos(lifetime);
+      return this;
+    }
+
+    /**
+     * @return the content size of the data produced, in bytes
+     */
+    public int getContentSize() {
+      return contentSize;
+    }
+
+    /**
+     * @param contentSize the content size of the data produced, in bytes; 1024 by default
+     * @return this
+     */
+    public Options setContentSize(final int contentSize) {
+      if (contentSize < 0) {
+        throw new IllegalArgumentException("Content size must not be negative: " + contentSize);
+      }
+      this.contentSize = contentSize;
+      return this;
+    }
+
+    /**
+     * @return the seed of the name sequence
+     */
+    public long getSeed() {
+      return seed;
+    }
+
+    /**
+     * @param seed the seed of the name sequence, 0 by default; the same seed requests the same names in the same
+     * order
+     * @return this
+     */
+    public Options setSeed(final long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * @return the scheduler of the forwarder, or null if the workload runs on the wall clock
+     */
+    public VirtualScheduler getScheduler() {
+      return scheduler;
+    }
+
+    /**
+     * @param scheduler the virtual-time scheduler of the forwarder, see {@link MockForwarder.Options#setScheduler};
+     * or null (the default) if the forwarder runs on the wall clock
+     * @return this
+     */
+    public Options setScheduler(final VirtualScheduler scheduler) {
+      this.scheduler = scheduler;
+      return this;
+    }
+  }
+
+  /**
+   * Results of a workload run.
+   */
+  public static final class Report {
+    private final long durationNanos;
+    private final long expressed;
+    private final long satisfied;
+    private final long timedOut;
+    private final long nacked;
+    private final LatencyHistogram rtt;
+
+    Report(long durationNanos, long expressed, long satisfied, long timedOut, long nacked, LatencyHistogram rtt) {
+      this.durationNanos = durationNanos;
+      this.expressed = expressed;
+      this.satisfied = satisfied;
+      this.timedOut = timedOut;
+      this.nacked = nacked;
+      this.rtt = rtt;
+    }
+
+    /**
+     * @return the number of interests sent
+     */
+    public long getExpressed() {
+      return expressed;
+    }
+
+    /**
+     * @return the number of interests answered with data
+     */
+    public long getSatisfied() {
+      return satisfied;
+    }
+
+    /**
+     * @return the number of interests that timed out
+     */
+    public long getTimedOut() {
+      return timedOut;
+    }
+
+    /**
+     * @return the number of interests answered with a network Nack
+     */
+    public long getNacked() {
+      return nacked;
+    }
+
+    /**
+     * @return the number of interests still unanswered when the run ended
+     */
+    public long getUnanswered() {
+      return expressed - satisfied - timedOut - nacked;
+    }
+
+    /**
+     * @return the fraction of sent interests answered with data, or 0 if none were sent
+     */
+    public double getSatisfactionRatio() {
+      return expressed == 0 ? 0 : (double) satisfied / expressed;
+    }
+
+    /**
+     * @return the interests sent per second of the run
+     */
+    public double getSendRate() {
+      return perSecond(expressed);
+    }
+
+    /**
+     * @return the data received per second of the run; below the send rate once the forwarder saturates
+     */
+    public double getThroughput() {
+      return perSecond(satisfied);
+    }
+
+    /**
+     * @return the round-trip times of satisfied interests
+     */
+    public LatencyHistogram getRoundTripTimes() {
+      return rtt;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("sent %d (%.1f/s), satisfied %d (%.1f/s, %.2f%%), timed out %d, nacked %d; "
+              + "RTT p50 %d us, p90 %d us, p99 %d us, max %d us", expressed, getSendRate(), satisfied, getThroughput(),
+          getSatisfactionRatio() * 100, timedOut, nacked, micros(rtt.getPercentile(50)),
+          micros(rtt.getPercentile(90)), micros(rtt.getPercentile(99)), micros(rtt.getMax()));
+    }
+
+    private double perSecond(long count) {
+      return durationNanos == 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+    }
+
+    private static long micros(long nanos) {
+      return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+  }
+
+  /**
+   * Connect the consumer and producer faces to a forwarder and register the producer prefixes.
+   *
+   * @param forwarder the forwarder to load
+   * @param options see {@link Options}
+   * @throws IOException if a producer prefix cannot be registered
+   * @throws EncodingException if a face fails to decode a registration reply
+   */
+  public Workload(final MockForwarder forwarder, final Options options) throws IOException, EncodingException {
+    this.forwarder = forwarder;
+    this.scheduler = options.getScheduler();
+    this.clock = scheduler != null ? scheduler : Clock.SYSTEM;
+    this.rate = options.getRate();
+    this.window = options.getWindow();
+    this.lifetimeNanos = options.getInterestLifetime(TimeUnit.NANOSECONDS);
+    this.content = new Blob(new byte[options.getContentSize()]);
+    this.random = new Random(options.getSeed());
+    this.popularity = options.getZipfExponent() > 0 ? zipf(options.getCatalogSize(), options.getZipfExponent()) : null;
+
+    Name[] producerPrefixes = new Name[options.getProducers()];
+    for (int i = 0; i < producerPrefixes.length; i++) {
+      producerPrefixes[i] = new Name(options.getPrefix()).append("producer" + i);
+      register(forwarder.connect(), producerPrefixes[i]);
+    }
+    catalog = new Name[options.getCatalogSize()];
+    for (int i = 0; i < catalog.length; i++) {
+      catalog[i] = new Name(producerPrefixes[i % producerPrefixes.length]).append("item" + i);
+    }
+    consumers = new Face[options.getConsumers()];
+    for (int i = 0; i < consumers.length; i++) {
+      consumers[i] = forwarder.connect();
+    }
+
+    awaitRegistration(producerPrefixes.length);
+  }
+
+  /**
+   * Send interests for a while, then wait for the outstanding ones to be answered or time out.
+   *
+   * @param duration how long to send interests
+   * @param unit the unit of the duration
+   * @return the results of the run
+   * @throws IOException if a face fails to process its events
+   * @throws EncodingException if a face fails to decode a packet
+   */
+  public Report run(final long duration, final TimeUnit unit) throws IOException, EncodingException {
+    long durationNanos = unit.toNanos(duration);
+    expressed = 0;
+    satisfied = 0;
+    timedOut = 0;
+    nacked = 0;
+    outstanding = 0;
+    rtt = new LatencyHistogram();
+
+    long start = clock.nanoTime();
+    sending = true;
+    if (scheduler != null) {
+      runVirtual(start, start + durationNanos);
+    } else {
+      runWallClock(start, start + durationNanos);
+    }
+    LOGGER.log(Level.FINE, "Workload run finished: {0} interests unanswered", outstanding);
+    return new Report(durationNanos, expressed, satisfied, timedOut, nacked, rtt);
+  }
+
+  private void runVirtual(final long start, final long end) {
+    if (rate > 0) {
+      scheduler.schedule(new Runnable() {
+        private long sent = 0;
+
+        @Override
+        public void run() {
+          express(nextConsumer());
+          sent++;
+          long due = start + (long) (sent * intervalNanos());
+          if (due - end < 0) {
+            scheduler.schedule(this, due - scheduler.nanoTime());
+          }
+        }
+      }, 0);
+    } else {
+      fillWindows();
+    }
+    scheduler.runUntil(end);
+    sending = false;
+    scheduler.runUntil(end + lifetimeNanos + SWEEP_INTERVAL_NANOS);
+  }
+
+  private void runWallClock(final long start, final long end) throws IOException, EncodingException {
+    if (rate <= 0) {
+      fillWindows();
+    }
+    long sent = 0;
+    long nextSweep = start + SWEEP_INTERVAL_NANOS;
+    long drained = end + lifetimeNanos + SWEEP_INTERVAL_NANOS;
+    while (true) {
+      long now = clock.nanoTime();
+      if (sending && now - end >= 0) {
+        sending = false;
+      }
+      if (!sending && (outstanding == 0 || now - drained >= 0)) {
+        return;
+      }
+
+      long wake = nextSweep;
+      if (sending && rate > 0) {
+        long due = start + (long) (sent * intervalNanos());
+        while (due - now <= 0 && due - end < 0) {
+          express(nextConsumer());
+          sent++;
+          due = start + (long) (sent * intervalNanos());
+        }
+        wake = Math.min(wake, due);
+      }
+      int processed = forwarder.processEvents();
+      if (now - nextSweep >= 0) {
+        for (Face consumer : consumers) {
+          consumer.processEvents(); // fires interest timeouts
+        }
+        nextSweep = now + SWEEP_INTERVAL_NANOS;
+      } else if (processed == 0) {
+        LockSupport.parkNanos(this, Math.max(wake - clock.nanoTime(), 0));
+      }
+    }
+  }
+
+  private void fillWindows() {
+    for (Face consumer : consumers) {
+      for (int i = 0; i < window; i++) {
+        express(consumer);
+      }
+    }
+  }
+
+  private double intervalNanos() {
+    return TimeUnit.SECONDS.toNanos(1) / rate;
+  }
+
+  private Face nextConsumer() {
+    Face consumer = consumers[nextConsumer];
+    nextConsumer = (nextConsumer + 1) % consumers.length;
+    return consumer;
+  }
+
+  private void express(final Face consumer) {
+    Interest interest = new Interest(catalog[sample(popularity, random, catalog.length)])
+        .setInterestLifetimeMilliseconds(TimeUnit.NANOSECONDS.toMillis(lifetimeNanos));
+    Pending pending = new Pending(consumer, clock.nanoTime());
+    try {
+      consumer.expressInterest(interest, pending, pending, pending, WireFormat.getDefaultWireFormat());
+      expressed++;
+      outstanding++;
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to express interest " + interest.getName(), e);
+    }
+  }
+
+  /**
+   * Callbacks of one expressed interest; in a closed loop, a completed interest is replaced by a new one.
+   */
+  private final class Pending implements OnData, OnTimeout, OnNetworkNack {
+    private final Face consumer;
+    private final long sent;
+
+    Pending(Face consumer, long sent) {
+      this.consumer = consumer;
+      this.sent = sent;
+    }
+
+    @Override
+    public void onData(Interest interest, Data data) {
+      rtt.record(clock.nanoTime() - sent);
+      satisfied++;
+      complete();
+    }
+
+    @Override
+    public void onTimeout(Interest interest) {
+      timedOut++;
+      complete();
+    }
+
+    @Override
+    public void onNetworkNack(Interest interest, NetworkNack networkNack) {
+      nacked++;
+      complete();
+    }
+
+    private void complete() {
+      outstanding--;
+      if (sending && rate <= 0) {
+        express(consumer);
+      }
+    }
+  }
+
+  private void register(final Face producer, final Name prefix) throws IOException {
+    try {
+      producer.registerPrefix(prefix, new OnInterestCallback() {
+        @Override
+        public void onInterest(Name name, Interest interest, Face face, long interestFilterId,
+                               InterestFilter filter) {
+          try {
+            face.putData(new Data(interest.getName()).setContent(content));
+          } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to answer interest " + interest.getName(), e);
+          }
+        }
+      }, new OnRegisterFailed() {
+        @Override
+        public void onRegisterFailed(Name name) {
+          registrationFailures++;
+        }
+      }, new OnRegisterSuccess() {
+        @Override
+        public void onRegisterSuccess(Name name, long registeredPrefixId) {
+          registered++;
+        }
+      });
+    } catch (SecurityException e) {
+      throw new IOException("Failed to sign registration of " + prefix, e);
+    }
+  }
+
+  private void awaitRegistration(final int producers) throws IOException, EncodingException {
+    boolean progress = true;
+    while (registered + registrationFailures < producers && progress) {
+      progress = scheduler != null ? scheduler.runNext() : forwarder.processEvents() > 0;
+    }
+    if (registered < producers) {
+      throw new IOException("Registered " + registered + " of " + producers + " producer prefixes");
+    }
+  }
+
+  /**
+   * @param size the number of items
+   * @param exponent the Zipf exponent
+   * @return the cumulative probabilities of the items by rank, ending at 1
+   */
+  static double[] zipf(final int size, final double exponent) {
+    double[] cumulative = new double[size];
+    double total = 0;
+    for (int i = 0; i < size; i++) {
+      total += 1 / Math.pow(i + 1, exponent);
+      cumulative[i] = total;
+    }
+    for (int i = 0; i < size; i++) {
+      cumulative[i] /= total;
+    }
+    return cumulative;
+  }
+
+  /**
+   * @param cumulative the cumulative probabilities of the items, or null to draw items uniformly
+   * @param random the source of randomness
+   * @param size the number of items
+   * @return the index of a randomly drawn item
+   */
+  static int sample(final double[] cumulative, final Random random, final int size) {
+    if (cumulative == null) {
+      return random.nextInt(size);
+    }
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    return Math.min(index >= 0 ? index : -index - 1, size - 1);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import net.named_data.jndn.Name;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Adaptive Replacement Cache (Megiddo and Modha, FAST 2003): balances recency (names seen once, T1) against frequency
+ * (names seen at least twice, T2) using ghost lists of recently evicted names (B1, B2) to learn which side deserves
+ * more of the capacity.
+ */
+public class ArcPolicy implements EvictionPolicy {
+  private final int capacity;
+  private final LinkedHashSet<Name> t1 = new LinkedHashSet<>();
+  private final LinkedHashSet<Name> t2 = new LinkedHashSet<>();
+  private final LinkedHashSet<Name> b1 = new LinkedHashSet<>();
+  private final LinkedHashSet<Name> b2 = new LinkedHashSet<>();
+  private int target = 0;
+
+  /**
+   * @param capacity the maximum number of cached names; up to the same number of evicted names is remembered
+   */
+  public ArcPolicy(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  @Override
+  public Name insert(Name name) {
+    Name victim;
+    if (b1.contains(name)) {
+      target = Math.min(capacity, target + Math.max(b2.size() / b1.size(), 1));
+      victim = replace(false);
+      b1.remove(name);
+      t2.add(name);
+    } else if (b2.contains(name)) {
+      target = Math.max(0, target - Math.max(b1.size() / b2.size(), 1));
+      victim = replace(true);
+      b2.remove(name);
+      t2.add(name);
+    } else {
+      victim = null;
+      if (t1.size() + b1.size() >= capacity) {
+        if (t1.size() < capacity) {
+          removeOldest(b1);
+          victim = replace(false);
+        } else {
+          victim = removeOldest(t1);
+        }
+      } else if (t1.size() + t2.size() + b1.size() + b2.size() >= capacity) {
+        if (t1.size() + t2.size() + b1.size() + b2.size() >= 2 * capacity) {
+          removeOldest(b2);
+        }
+        victim = replace(false);
+      }
+      t1.add(name);
+    }
+    return victim;
+  }
+
+  @Override
+  public void access(Name name) {
+    if (t1.remove(name) || t2.remove(name)) {
+      t2.add(name);
+    }
+  }
+
+  @Override
+  public void remove(Name name) {
+    if (!t1.remove(name)) {
+      t2.remove(name);
+    }
+  }
+
+  private Name replace(boolean inB2) {
+    if (t1.size() + t2.size() < capacity) {
+      return null;
+    }
+    if (!t1.isEmpty() && (t2.isEmpty() || t1.size() > target || (inB2 && t1.size() == target))) {
+      Name victim = removeOldest(t1);
+      b1.add(victim);
+      return victim;
+    } else {
+      Name victim = removeOldest(t2);
+      b2.add(victim);
+      return victim;
+    }
+  }
+
+  private static Name removeOldest(LinkedHashSet<Name> names) {
+    Iterator<Name> oldest = names.iterator();
+    Name name = oldest.next();
+    oldest.remove();
+    return name;
+  }
+}
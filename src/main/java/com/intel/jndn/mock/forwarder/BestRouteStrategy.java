@@ -0,0 +1,71 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.MockForwarder;
+import net.named_data.jndn.transport.Transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Forwards each interest to the cheapest matching next hop only. When a downstream face retransmits an interest, i.e.
+ * sends it with a new nonce while its PIT entry is still pending upstream, the interest is sent to the cheapest hop not
+ * tried yet; once every hop has been tried, to the one tried least recently. As in NFD, a new consumer expressing a
+ * recently unsatisfied name creates a new PIT entry and therefore starts again from the cheapest hop.
+ */
+public class BestRouteStrategy implements MockForwarder.Strategy {
+  private static final Comparator<MockForwarder.FibEntry> BY_COST = new Comparator<MockForwarder.FibEntry>() {
+    @Override
+    public int compare(MockForwarder.FibEntry a, MockForwarder.FibEntry b) {
+      return Integer.compare(a.getCost(), b.getCost());
+    }
+  };
+
+  @Override
+  public void afterReceiveInterest(WirePacket interest, List<MockForwarder.FibEntry> nextHops,
+                                   Transport sourceTransport) {
+    afterReceiveInterest(interest, nextHops, sourceTransport, Collections.emptyList());
+  }
+
+  @Override
+  public void afterReceiveInterest(WirePacket interest, List<MockForwarder.FibEntry> nextHops,
+                                   Transport sourceTransport, List<Object> upstreams) {
+    if (nextHops.isEmpty()) {
+      return;
+    }
+    List<MockForwarder.FibEntry> byCost = new ArrayList<>(nextHops);
+    Collections.sort(byCost, BY_COST); // stable, so equal costs keep FIB order
+    choose(byCost, upstreams).forward(interest, sourceTransport);
+  }
+
+  private static MockForwarder.FibEntry choose(List<MockForwarder.FibEntry> byCost, List<Object> upstreams) {
+    for (MockForwarder.FibEntry hop : byCost) {
+      if (!upstreams.contains(hop.getNextHop())) {
+        return hop;
+      }
+    }
+    for (Object upstream : upstreams) {
+      for (MockForwarder.FibEntry hop : byCost) {
+        if (hop.getNextHop().equals(upstream)) {
+          return hop;
+        }
+      }
+    }
+    return byCost.get(0);
+  }
+}
@@ -14,18 +14,21 @@
 
 package com.intel.jndn.mock.forwarder;
 
+import com.intel.jndn.mock.LinkService;
 import com.intel.jndn.mock.MockForwarder;
 import com.intel.jndn.mock.MockTransport;
-import net.named_data.jndn.Data;
 import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.RegistrationOptions;
 import net.named_data.jndn.encoding.EncodingException;
-import net.named_data.jndn.encoding.TlvWireFormat;
 import net.named_data.jndn.encoding.tlv.Tlv;
-import net.named_data.jndn.encoding.tlv.TlvDecoder;
 import net.named_data.jndn.transport.Transport;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,27 +41,97 @@ public class BufferHandler implements MockTransport.OnSendBlockSignal {
   private final MockTransport transport;
   private final MockForwarder.Fib fib;
   private final MockForwarder.Pit pit;
+  private final MockForwarder.ContentStore contentStore;
+  private final StrategyChoiceTable strategies;
+  private final ForwardingStatistics statistics;
+  private final LinkService linkService = new LinkService();
 
   public BufferHandler(MockTransport transport, MockForwarder.Fib fib, MockForwarder.Pit pit) {
+    this(transport, fib, pit, null);
+  }
+
+  /**
+   * @param transport the transport of the face this handler receives packets from
+   * @param fib the forwarder FIB
+   * @param pit the forwarder PIT
+   * @param contentStore the forwarder content store, or null if caching is disabled
+   */
+  public BufferHandler(MockTransport transport, MockForwarder.Fib fib, MockForwarder.Pit pit,
+                       MockForwarder.ContentStore contentStore) {
+    this(transport, fib, pit, contentStore, new StrategyChoiceTable());
+  }
+
+  /**
+   * @param transport the transport of the face this handler receives packets from
+   * @param fib the forwarder FIB
+   * @param pit the forwarder PIT
+   * @param contentStore the forwarder content store, or null if caching is disabled
+   * @param strategies the forwarder strategy choices
+   */
+  public BufferHandler(MockTransport transport, MockForwarder.Fib fib, MockForwarder.Pit pit,
+                       MockForwarder.ContentStore contentStore, StrategyChoiceTable strategies) {
+    this(transport, fib, pit, contentStore, strategies, new ForwardingStatistics());
+  }
+
+  /**
+   * @param transport the transport of the face this handler receives packets from
+   * @param fib the forwarder FIB
+   * @param pit the forwarder PIT
+   * @param contentStore the forwarder content store, or null if caching is disabled
+   * @param strategies the forwarder strategy choices
+   * @param statistics the forwarder counters
+   */
+  public BufferHandler(MockTransport transport, MockForwarder.Fib fib, MockForwarder.Pit pit,
+                       MockForwarder.ContentStore contentStore, StrategyChoiceTable strategies,
+                       ForwardingStatistics statistics) {
     this.transport = transport;
     this.fib = fib;
     this.pit = pit;
+    this.contentStore = contentStore;
+    this.strategies = strategies;
+    this.statistics = statistics;
   }
 
   @Override
-  public void emit(ByteBuffer buffer) {
+  public void emit(ByteBuffer frame) {
+    if (!frame.hasRemaining()) {
+      return;
+    }
+    if (!isLpPacket(frame)) {
+      receive(frame);
+      return;
+    }
+    // null for a fragment of a packet not yet complete, a frame without packet, or a malformed frame
+    LinkService.Packet packet = linkService.receive(frame);
+    if (packet != null) {
+      emit(packet);
+    }
+  }
+
+  /**
+   * Forward a packet received through a link service. A packet with a CongestionMark is forwarded as usual; the
+   * forwarder has no congestion control, so the mark is only counted. A network Nack is counted and dropped.
+   *
+   * @param packet the received packet and its NDNLPv2 headers
+   */
+  public void emit(LinkService.Packet packet) {
+    if (packet.getCongestionMark() != 0) {
+      statistics.record(ForwardingCounters.Counter.IN_CONGESTION_MARKS, transport, null);
+    }
+    if (packet.isNack()) {
+      statistics.record(ForwardingCounters.Counter.IN_NACKS, transport, null);
+      LOGGER.log(Level.FINE, "Dropping a network Nack with reason {0}", packet.getNackReason());
+      return;
+    }
+    receive(packet.getPacket());
+  }
+
+  private void receive(ByteBuffer buffer) {
     try {
-      if (isInterest(buffer) || isData(buffer)) {
-        TlvDecoder decoder = new TlvDecoder(buffer);
-        if (decoder.peekType(Tlv.Interest, buffer.remaining())) {
-          Interest interest = new Interest();
-          interest.wireDecode(buffer, TlvWireFormat.get());
-          forward(interest, transport);
-        } else if (decoder.peekType(Tlv.Data, buffer.remaining())) {
-          Data data = new Data();
-          data.wireDecode(buffer, TlvWireFormat.get());
-          forward(data);
-        }
+      if (isInterest(buffer)) {
+        forward(WirePacket.decode(buffer), transport);
+      } else if (isData(buffer)) {
+        forward(WirePacket.decode(buffer));
       } else {
         LOGGER.warning("Received an unknown packet");
       }
@@ -67,35 +140,129 @@ public class BufferHandler implements MockTransport.OnSendBlockSignal {
     }
   }
 
+  private boolean isLpPacket(ByteBuffer buffer) {
+    return (buffer.get(buffer.position()) & 0xff) == Tlv.LpPacket_LpPacket;
+  }
+
   private boolean isInterest(ByteBuffer buffer) {
-    return buffer.get(0) == Tlv.Interest;
+    return buffer.get(buffer.position()) == Tlv.Interest;
   }
 
   private boolean isData(ByteBuffer buffer) {
-    return buffer.get(0) == Tlv.Data;
+    return buffer.get(buffer.position()) == Tlv.Data;
   }
 
-  private void forward(Interest interest, Transport transport) {
-    if (pit.has(interest)) {
-      LOGGER.info("Already seen interest, swallowing: " + interest.toUri());
-      return;
+  private void forward(WirePacket packet, Transport transport) {
+    Name name = packet.getName();
+    Collection<MockForwarder.FibEntry> routes = fib.find(packet);
+    ForwardingCounters prefix = statistics.route(routes);
+    statistics.record(ForwardingCounters.Counter.IN_INTERESTS, transport, prefix);
+    if (contentStore != null) {
+      WirePacket cached = contentStore.find(packet);
+      if (cached != null) {
+        LOGGER.log(Level.FINE, "Satisfying interest from content store: {0}", name);
+        statistics.record(ForwardingCounters.Counter.CS_HITS, transport, prefix);
+        statistics.record(ForwardingCounters.Counter.OUT_DATA, transport, prefix);
+        statistics.record(ForwardingCounters.Counter.SATISFIED_INTERESTS, transport, prefix);
+        ((MockTransport) transport).receive(cached.wire());
+        return;
+      }
     }
 
-    LOGGER.info("Adding interest to PIT: " + interest.toUri());
-    pit.add(new PitEntryImpl(interest, (MockTransport) transport));
+    MockForwarder.Pit.Insertion insertion = pit instanceof PitImpl
+        ? ((PitImpl) pit).insert(packet, (MockTransport) transport, prefix)
+        : pit.insert(packet, (MockTransport) transport);
+    if (!insertion.isForwarded()) {
+      LOGGER.log(Level.FINE, "Not forwarding {0} interest: {1}", new Object[]{insertion, name});
+      return;
+    }
 
-    LOGGER.info("Forwarding interest: " + interest.toUri());
-    for (MockForwarder.FibEntry entry : fib.find(interest)) {
-      entry.forward(interest, transport);
+    LOGGER.log(Level.FINE, "Forwarding interest: {0}", name);
+    List<MockForwarder.FibEntry> nextHops = new ArrayList<>();
+    for (MockForwarder.FibEntry entry : routes) {
+      if (!transport.equals(entry.getNextHop())) {
+        nextHops.add(new OutRecording(entry));
+      }
     }
+    List<Object> upstreams = insertion == MockForwarder.Pit.Insertion.RETRANSMITTED ? pit.getUpstreams(packet)
+        : Collections.<Object>emptyList();
+    strategies.find(name).afterReceiveInterest(packet, nextHops, transport, upstreams);
   }
 
-  private void forward(Data data) {
+  private void forward(WirePacket data) {
     Collection<MockForwarder.PitEntry> found = pit.extract(data.getName());
-    LOGGER.log(Level.INFO, "Found {0} pending interests", found.size());
+    LOGGER.log(Level.FINE, "Found {0} pending interests", found.size());
 
+    // data is counted on the prefix its pending interests were forwarded under, saving a FIB lookup
+    boolean counted = false;
     for (MockForwarder.PitEntry pendingInterest : found) {
+      strategies.find(pendingInterest.getPacket().getName()).beforeSatisfyInterest(pendingInterest, data);
+      if (pendingInterest instanceof PitEntryImpl) {
+        ForwardingCounters prefix = ((PitEntryImpl) pendingInterest).getPrefix();
+        if (!counted) {
+          statistics.record(ForwardingCounters.Counter.IN_DATA, transport, prefix);
+          counted = true;
+        }
+        for (PitEntryImpl.InRecord record : ((PitEntryImpl) pendingInterest).getInRecords()) {
+          statistics.record(ForwardingCounters.Counter.OUT_DATA, record.getFace(), prefix);
+          statistics.record(ForwardingCounters.Counter.SATISFIED_INTERESTS, record.getFace(), prefix);
+        }
+      } else {
+        statistics.record(ForwardingCounters.Counter.OUT_DATA, null, null);
+        statistics.record(ForwardingCounters.Counter.SATISFIED_INTERESTS, null, null);
+      }
       pendingInterest.forward(data);
     }
+    if (!counted) {
+      statistics.record(ForwardingCounters.Counter.IN_DATA, transport, null);
+    }
+
+    if (contentStore != null && !found.isEmpty()) {
+      contentStore.insert(data);
+    }
+  }
+
+  /**
+   * Adds an out-record to the PIT entry of every interest a strategy forwards through the FIB entry.
+   */
+  private final class OutRecording implements MockForwarder.FibEntry {
+    private final MockForwarder.FibEntry entry;
+
+    OutRecording(MockForwarder.FibEntry entry) {
+      this.entry = entry;
+    }
+
+    @Override
+    public void forward(Interest interest, Transport sourceTransport) {
+      forward(WirePacket.wrap(interest), sourceTransport);
+    }
+
+    @Override
+    public void forward(WirePacket interest, Transport sourceTransport) {
+      pit.addOutRecord(interest, entry.getNextHop());
+      statistics.record(ForwardingCounters.Counter.OUT_INTERESTS, entry.getNextHop(),
+          statistics.prefix(entry.getPrefix()));
+      entry.forward(interest, sourceTransport);
+    }
+
+    @Override
+    public Name getPrefix() {
+      return entry.getPrefix();
+    }
+
+    @Override
+    public RegistrationOptions getFlags() {
+      return entry.getFlags();
+    }
+
+    @Override
+    public int getCost() {
+      return entry.getCost();
+    }
+
+    @Override
+    public Object getNextHop() {
+      return entry.getNextHop();
+    }
   }
 }
@@ -21,30 +21,64 @@ import net.named_data.jndn.Name;
 import net.named_data.jndn.RegistrationOptions;
 import net.named_data.jndn.transport.Transport;
 
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * FIB entry forwarding interests to a transport: the face of a client that registered the prefix or, for routes
+ * between forwarders, a {@link PeerTransport}.
+ *
  * @author Andrew Brown, andrew.brown@intel.com
  */
-class ClientFibEntry implements MockForwarder.FibEntry {
+public class ClientFibEntry implements MockForwarder.FibEntry {
 
   private static final Logger LOGGER = Logger.getLogger(ClientFibEntry.class.getName());
   private final Name prefix;
   private final MockTransport transport;
   private final RegistrationOptions flags;
+  private final int cost;
+
+  /**
+   * @param prefix the routed prefix
+   * @param transport the next hop
+   * @param flags the route flags
+   */
+  public ClientFibEntry(Name prefix, MockTransport transport, RegistrationOptions flags) {
+    this(prefix, transport, flags, 0);
+  }
 
-  ClientFibEntry(Name prefix, MockTransport transport, RegistrationOptions flags) {
+  /**
+   * @param prefix the routed prefix
+   * @param transport the next hop
+   * @param flags the route flags
+   * @param cost the route cost
+   */
+  public ClientFibEntry(Name prefix, MockTransport transport, RegistrationOptions flags, int cost) {
     this.prefix = prefix;
     this.transport = transport;
     this.flags = flags;
+    this.cost = cost;
   }
 
   @Override
   public void forward(Interest interest, Transport sourceTransport) {
-    LOGGER.info("Receiving interest on: " + this.transport);
+    LOGGER.log(Level.FINE, "Receiving interest on: {0}", this.transport);
     transport.receive(interest.wireEncode().buf());
   }
 
+  @Override
+  public void forward(WirePacket interest, Transport sourceTransport) {
+    LOGGER.log(Level.FINE, "Receiving interest on: {0}", this.transport);
+    transport.receive(interest.wire());
+  }
+
+  /**
+   * @return the next hop
+   */
+  public MockTransport getTransport() {
+    return transport;
+  }
+
   @Override
   public Name getPrefix() {
     return new Name(prefix);
@@ -54,4 +88,14 @@ class ClientFibEntry implements MockForwarder.FibEntry {
   public RegistrationOptions getFlags() {
     return flags;
   }
+
+  @Override
+  public int getCost() {
+    return cost;
+  }
+
+  @Override
+  public Object getNextHop() {
+    return transport;
+  }
 }
@@ -0,0 +1,152 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.Clock;
+import com.intel.jndn.mock.MockForwarder;
+import net.named_data.jndn.Name;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory content store; which entry to drop when full is decided by a pluggable {@link EvictionPolicy}.
+ * Matching follows the interest CanBePrefix and MustBeFresh fields, where a data packet is fresh for its
+ * FreshnessPeriod after insertion.
+ */
+public class ContentStoreImpl implements MockForwarder.ContentStore {
+
+  private final NameTree<Entry> store = new NameTree<>();
+  private final EvictionPolicy policy;
+  private final Clock clock;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * Cached data packet.
+   */
+  private static final class Entry {
+    private final WirePacket data;
+    private final long staleAt;
+
+    Entry(WirePacket data, long staleAt) {
+      this.data = data;
+      this.staleAt = staleAt;
+    }
+
+    boolean isFresh(long now) {
+      return now - staleAt < 0;
+    }
+  }
+
+  /**
+   * Create a least-recently-used content store.
+   *
+   * @param capacity the maximum number of cached packets
+   */
+  public ContentStoreImpl(int capacity) {
+    this(new LruPolicy(capacity));
+  }
+
+  /**
+   * @param policy the policy deciding which packets to evict; its capacity bounds the store
+   */
+  public ContentStoreImpl(EvictionPolicy policy) {
+    this(policy, Clock.SYSTEM);
+  }
+
+  /**
+   * @param policy the policy deciding which packets to evict; its capacity bounds the store
+   * @param clock the clock used to judge freshness
+   */
+  public ContentStoreImpl(EvictionPolicy policy, Clock clock) {
+    this.policy = policy;
+    this.clock = clock;
+  }
+
+  @Override
+  public synchronized WirePacket find(WirePacket interest) {
+    final long now = clock.nanoTime();
+    final boolean mustBeFresh = interest.getMustBeFresh();
+    Entry entry;
+    if (interest.getCanBePrefix()) {
+      entry = store.findFirst(interest.getName(), new NameTree.Matcher<Entry>() {
+        @Override
+        public boolean matches(Entry candidate) {
+          return !mustBeFresh || candidate.isFresh(now);
+        }
+      });
+    } else {
+      entry = store.get(interest.getName());
+      if (entry != null && mustBeFresh && !entry.isFresh(now)) {
+        entry = null;
+      }
+    }
+
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    policy.access(entry.data.getName());
+    return entry.data;
+  }
+
+  @Override
+  public synchronized void insert(WirePacket data) {
+    Name name = data.getName();
+    double freshnessPeriod = data.getFreshnessPeriod();
+    long staleAt = clock.nanoTime() + (freshnessPeriod > 0 ? TimeUnit.MILLISECONDS.toNanos((long) freshnessPeriod) : 0);
+
+    if (store.put(name, new Entry(data, staleAt)) != null) {
+      policy.access(name);
+      return;
+    }
+
+    Name victim = policy.insert(name);
+    if (victim != null) {
+      store.remove(victim);
+      evictions++;
+    }
+  }
+
+  /**
+   * @return the number of packets in the store
+   */
+  public synchronized int size() {
+    return store.size();
+  }
+
+  /**
+   * @return the number of interests satisfied from the store
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of interests that found no matching packet in the store
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of packets evicted to make room for new ones
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.Clock;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.util.Blob;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dead Nonce List: remembers the name and nonce of interests whose PIT entry is gone, so that a copy of the interest
+ * looping back afterwards is still recognized. Entries are kept in a rotating Bloom filter of fixed size: each of
+ * four generations covers a third of the lifetime, the oldest is cleared on rotation, and an entry is therefore
+ * remembered for between one and four thirds of the lifetime. Like any Bloom filter it has false positives, i.e. a
+ * fresh interest may occasionally be taken for a looped one, but never false negatives within the lifetime.
+ */
+public final class DeadNonceList {
+  private static final long DEFAULT_LIFETIME_MS = 6000;
+  private static final int DEFAULT_CAPACITY = 8192;
+  private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.0001;
+  private static final int GENERATIONS = 4;
+  private final Clock clock;
+  private final long rotationNanos;
+  private final long[][] generations;
+  private final int bits;
+  private final int hashes;
+  private int current = 0;
+  private long nextRotation;
+
+  /**
+   * Create a list remembering nonces for six seconds, sized for 8192 entries per lifetime.
+   *
+   * @param clock the clock driving expiration
+   */
+  public DeadNonceList(Clock clock) {
+    this(clock, DEFAULT_LIFETIME_MS, DEFAULT_CAPACITY, DEFAULT_FALSE_POSITIVE_RATE);
+  }
+
+  /**
+   * @param clock the clock driving expiration
+   * @param lifetimeMs the minimum time an entry is remembered
+   * @param capacity the number of entries expected per lifetime; more entries raise the false positive rate
+   * @param falsePositiveRate the target false positive rate of each generation at capacity
+   */
+  public DeadNonceList(Clock clock, long lifetimeMs, int capacity, double falsePositiveRate) {
+    if (lifetimeMs <= 0 || capacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException("Invalid dead nonce list parameters: lifetime " + lifetimeMs
+          + " ms, capacity " + capacity + ", false positive rate " + falsePositiveRate);
+    }
+    this.clock = clock;
+    this.rotationNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(lifetimeMs) / (GENERATIONS - 1));
+    double entries = Math.max(1.0, (double) capacity / (GENERATIONS - 1));
+    long optimalBits = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    int words = (int) Math.min(Integer.MAX_VALUE / Long.SIZE, (optimalBits + Long.SIZE - 1) / Long.SIZE);
+    this.bits = words * Long.SIZE;
+    this.hashes = Math.max(1, (int) Math.round(bits / entries * Math.log(2)));
+    this.generations = new long[GENERATIONS][words];
+    this.nextRotation = clock.nanoTime() + rotationNanos;
+  }
+
+  /**
+   * Remember an interest; interests without a nonce are ignored.
+   *
+   * @param name the interest name
+   * @param nonce the interest nonce
+   */
+  public synchronized void add(Name name, Blob nonce) {
+    if (nonce == null || nonce.size() == 0) {
+      return;
+    }
+    rotate();
+    long[] filter = generations[current];
+    long h1 = hash(name, nonce);
+    long h2 = mix(h1) | 1;
+    for (int i = 0; i < hashes; i++) {
+      int bit = (int) Math.floorMod(h1 + i * h2, (long) bits);
+      filter[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  /**
+   * @param name the interest name
+   * @param nonce the interest nonce
+   * @return true if the interest was (probably) added within the lifetime
+   */
+  public synchronized boolean has(Name name, Blob nonce) {
+    if (nonce == null || nonce.size() == 0) {
+      return false;
+    }
+    rotate();
+    long h1 = hash(name, nonce);
+    long h2 = mix(h1) | 1;
+    for (long[] filter : generations) {
+      if (contains(filter, h1, h2)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the memory held by the filter, in bytes
+   */
+  public int getSizeInBytes() {
+    return GENERATIONS * bits / Byte.SIZE;
+  }
+
+  private boolean contains(long[] filter, long h1, long h2) {
+    for (int i = 0; i < hashes; i++) {
+      int bit = (int) Math.floorMod(h1 + i * h2, (long) bits);
+      if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void rotate() {
+    long now = clock.nanoTime();
+    for (int cleared = 0; now - nextRotation >= 0; cleared++) {
+      if (cleared == GENERATIONS) {
+        nextRotation = now + rotationNanos; // idle for longer than a lifetime; everything is cleared already
+        return;
+      }
+      current = (current + 1) % GENERATIONS;
+      Arrays.fill(generations[current], 0);
+      nextRotation += rotationNanos;
+    }
+  }
+
+  private static long hash(Name name, Blob nonce) {
+    long hash = name.hashCode();
+    ByteBuffer buffer = nonce.buf();
+    while (buffer.remaining() >= Long.BYTES) {
+      hash = mix(hash ^ buffer.getLong());
+    }
+    long tail = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      tail = tail << Byte.SIZE | (buffer.get() & 0xff);
+    }
+    return mix(hash ^ mix(tail));
+  }
+
+  /**
+   * Finalization step of MurmurHash3, spreading every input bit over the whole hash.
+   */
+  private static long mix(long hash) {
+    long h = hash;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import net.named_data.jndn.Name;
+
+/**
+ * Replacement policy for a bounded {@link ContentStoreImpl}; the policy tracks which names are cached and decides
+ * which one to give up when a new name needs room. Implementations are called with the content store lock held and
+ * need not be thread-safe.
+ */
+public interface EvictionPolicy {
+  /**
+   * Record a name that has just been added to the cache.
+   *
+   * @param name a name not currently tracked as cached
+   * @return a cached name to evict in order to stay within capacity, or null if there is room; never the new name
+   */
+  Name insert(Name name);
+
+  /**
+   * Record a cache hit (or a refresh of an existing entry).
+   *
+   * @param name a cached name
+   */
+  void access(Name name);
+
+  /**
+   * Forget a cached name that was removed other than by eviction.
+   *
+   * @param name a cached name
+   */
+  void remove(Name name);
+}
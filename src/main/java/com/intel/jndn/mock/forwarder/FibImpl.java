@@ -20,32 +20,84 @@ import net.named_data.jndn.Name;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
+ * Forwarding information base indexed by a {@link NameTree}; lookups walk the interest name once and then climb back
+ * towards the root, collecting entries according to their ChildInherit and Capture flags. A prefix may have several
+ * entries, one per next hop; adding an entry for a next hop the prefix already has replaces the old entry in place,
+ * e.g. to update its cost.
+ *
  * @author Andrew Brown, andrew.brown@intel.com
  */
 public class FibImpl implements MockForwarder.Fib {
 
-  private final ConcurrentHashMap<Name, MockForwarder.FibEntry> fib = new ConcurrentHashMap<>();
+  private final NameTree<List<MockForwarder.FibEntry>> fib = new NameTree<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
   @Override
   public void add(MockForwarder.FibEntry entry) {
-    fib.put(entry.getPrefix(), entry);
+    lock.writeLock().lock();
+    try {
+      Name prefix = entry.getPrefix();
+      List<MockForwarder.FibEntry> existing = fib.get(prefix);
+      List<MockForwarder.FibEntry> updated = new ArrayList<>(existing == null ? 1 : existing.size() + 1);
+      boolean replaced = false;
+      if (existing != null) {
+        for (MockForwarder.FibEntry other : existing) {
+          if (!replaced && other.getNextHop().equals(entry.getNextHop())) {
+            updated.add(entry);
+            replaced = true;
+          } else {
+            updated.add(other);
+          }
+        }
+      }
+      if (!replaced) {
+        updated.add(entry);
+      }
+      fib.put(prefix, updated);
+    } finally {
+      lock.writeLock().unlock();
+    }
   }
 
   public List<MockForwarder.FibEntry> find(Interest interest) {
+    return find(interest.getName());
+  }
+
+  @Override
+  public List<MockForwarder.FibEntry> find(WirePacket interest) {
+    return find(interest.getName());
+  }
+
+  private List<MockForwarder.FibEntry> find(Name name) {
     ArrayList<MockForwarder.FibEntry> entries = new ArrayList<>();
-    for (int i = interest.getName().size(); i >= 0; i--) {
-      Name prefix = interest.getName().getPrefix(i);
-      MockForwarder.FibEntry entry = fib.get(prefix);
-      if (entry != null) {
-        entries.add(entry);
-        if (!entry.getFlags().getChildInherit() || entry.getFlags().getCapture()) {
-          break;
+    lock.readLock().lock();
+    try {
+      for (NameTree.Node<List<MockForwarder.FibEntry>> node = fib.walk(name); node != null;
+           node = node.getParent()) {
+        List<MockForwarder.FibEntry> found = node.getValue();
+        if (found != null) {
+          entries.addAll(found);
+          if (stopsInheritance(found)) {
+            break;
+          }
         }
       }
+    } finally {
+      lock.readLock().unlock();
     }
     return entries;
   }
+
+  private static boolean stopsInheritance(List<MockForwarder.FibEntry> entries) {
+    for (MockForwarder.FibEntry entry : entries) {
+      if (!entry.getFlags().getChildInherit() || entry.getFlags().getCapture()) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
@@ -0,0 +1,151 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * NFD-style forwarding counters of a face, a FIB prefix or a whole forwarder; see {@link ForwardingStatistics}.
+ * Counters are {@link LongAdder}s, so forwarding threads update them without contending.
+ */
+public final class ForwardingCounters implements ForwardingCountersMXBean {
+  private final String name;
+  private final LongAdder[] counters = new LongAdder[Counter.values().length];
+
+  /**
+   * Forwarding events counted.
+   */
+  public enum Counter {
+    /**
+     * An interest received.
+     */
+    IN_INTERESTS,
+    /**
+     * An interest forwarded to a next hop.
+     */
+    OUT_INTERESTS,
+    /**
+     * A data packet received.
+     */
+    IN_DATA,
+    /**
+     * A data packet sent to a downstream face, from upstream or from the content store.
+     */
+    OUT_DATA,
+    /**
+     * A downstream interest answered with data.
+     */
+    SATISFIED_INTERESTS,
+    /**
+     * A downstream interest that expired before data arrived.
+     */
+    UNSATISFIED_INTERESTS,
+    /**
+     * An interest answered from the content store.
+     */
+    CS_HITS,
+    /**
+     * A network Nack received; the forwarder drops it.
+     */
+    IN_NACKS,
+    /**
+     * A packet received with an NDNLPv2 CongestionMark; the packet itself is forwarded as usual.
+     */
+    IN_CONGESTION_MARKS
+  }
+
+  /**
+   * @param name what is counted
+   */
+  ForwardingCounters(String name) {
+    this.name = name;
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * @param counter the event to count
+   */
+  void increment(Counter counter) {
+    counters[counter.ordinal()].increment();
+  }
+
+  /**
+   * @param counter the event counted
+   * @return the number of events counted
+   */
+  public long get(Counter counter) {
+    return counters[counter.ordinal()].sum();
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public long getInInterests() {
+    return get(Counter.IN_INTERESTS);
+  }
+
+  @Override
+  public long getOutInterests() {
+    return get(Counter.OUT_INTERESTS);
+  }
+
+  @Override
+  public long getInData() {
+    return get(Counter.IN_DATA);
+  }
+
+  @Override
+  public long getOutData() {
+    return get(Counter.OUT_DATA);
+  }
+
+  @Override
+  public long getSatisfiedInterests() {
+    return get(Counter.SATISFIED_INTERESTS);
+  }
+
+  @Override
+  public long getUnsatisfiedInterests() {
+    return get(Counter.UNSATISFIED_INTERESTS);
+  }
+
+  @Override
+  public long getCsHits() {
+    return get(Counter.CS_HITS);
+  }
+
+  @Override
+  public long getInNacks() {
+    return get(Counter.IN_NACKS);
+  }
+
+  @Override
+  public long getInCongestionMarks() {
+    return get(Counter.IN_CONGESTION_MARKS);
+  }
+
+  @Override
+  public String toString() {
+    return name + ": in " + getInInterests() + " interests/" + getInData() + " data, out " + getOutInterests()
+        + " interests/" + getOutData() + " data, " + getSatisfiedInterests() + " satisfied, "
+        + getUnsatisfiedInterests() + " unsatisfied, " + getCsHits() + " CS hits, " + getInNacks() + " Nacks, "
+        + getInCongestionMarks() + " congestion marks";
+  }
+}
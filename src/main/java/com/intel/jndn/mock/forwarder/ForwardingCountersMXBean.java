@@ -0,0 +1,71 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+/**
+ * JMX view of {@link ForwardingCounters}; attribute names follow the NFD counters they mirror, without the {@code n}
+ * prefix.
+ */
+public interface ForwardingCountersMXBean {
+  /**
+   * @return what is counted: a face, a FIB prefix or the whole forwarder
+   */
+  String getName();
+
+  /**
+   * @return nInInterests, the number of interests received
+   */
+  long getInInterests();
+
+  /**
+   * @return nOutInterests, the number of interests forwarded
+   */
+  long getOutInterests();
+
+  /**
+   * @return nInData, the number of data packets received
+   */
+  long getInData();
+
+  /**
+   * @return nOutData, the number of data packets sent
+   */
+  long getOutData();
+
+  /**
+   * @return nSatisfiedInterests, the number of downstream interests answered with data
+   */
+  long getSatisfiedInterests();
+
+  /**
+   * @return nUnsatisfiedInterests, the number of downstream interests that expired unanswered
+   */
+  long getUnsatisfiedInterests();
+
+  /**
+   * @return nCsHits, the number of interests answered from the content store
+   */
+  long getCsHits();
+
+  /**
+   * @return nInNacks, the number of network Nacks received
+   */
+  long getInNacks();
+
+  /**
+   * @return the number of packets received with a CongestionMark; NFD has no such counter
+   */
+  long getInCongestionMarks();
+}
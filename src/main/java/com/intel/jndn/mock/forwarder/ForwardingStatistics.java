@@ -0,0 +1,196 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.MockForwarder;
+import net.named_data.jndn.Name;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Forwarding counters of a forwarder, kept per face, per FIB prefix and in total, in the manner of NFD's face and
+ * forwarder counters. Faces are the next hops of FIB entries, e.g. the {@link com.intel.jndn.mock.MockTransport} of a
+ * connected face. An interest is counted on the prefix of the longest FIB entry matching it, if any, and its data
+ * and expiry on the same prefix, as recorded in its PIT entry. Satisfied and unsatisfied interests are counted once
+ * per downstream face of a PIT entry. Counters are created on first use and the counters of a face are dropped when it
+ * disconnects.
+ */
+public final class ForwardingStatistics {
+  private final ForwardingCounters totals = new ForwardingCounters("forwarder");
+  private final ConcurrentMap<Object, ForwardingCounters> faces = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Name, ForwardingCounters> prefixes = new ConcurrentHashMap<>();
+  private final Set<Object> removedFaces = Collections.synchronizedSet(
+      Collections.newSetFromMap(new WeakHashMap<Object, Boolean>()));
+  private volatile Listener listener;
+
+  /**
+   * Told about counters as they are created and dropped, e.g. to export them.
+   */
+  public interface Listener {
+    /**
+     * @param face the newly counted face
+     * @param counters its counters
+     */
+    void faceAdded(Object face, ForwardingCounters counters);
+
+    /**
+     * @param face the face no longer counted
+     * @param counters its final counters
+     */
+    void faceRemoved(Object face, ForwardingCounters counters);
+
+    /**
+     * @param prefix the newly counted FIB prefix
+     * @param counters its counters
+     */
+    void prefixAdded(Name prefix, ForwardingCounters counters);
+  }
+
+  /**
+   * @return the counters of the whole forwarder
+   */
+  public ForwardingCounters getTotals() {
+    return totals;
+  }
+
+  /**
+   * @param face a next hop, e.g. the transport of a connected face
+   * @return the counters of the face, or null if nothing was counted on it yet
+   */
+  public ForwardingCounters getFace(Object face) {
+    return faces.get(face);
+  }
+
+  /**
+   * @param prefix a FIB prefix
+   * @return the counters of the prefix, or null if nothing was counted on it yet
+   */
+  public ForwardingCounters getPrefix(Name prefix) {
+    return prefixes.get(prefix);
+  }
+
+  /**
+   * @return a live view of the counters of every face
+   */
+  public Map<Object, ForwardingCounters> getFaces() {
+    return Collections.unmodifiableMap(faces);
+  }
+
+  /**
+   * @return a live view of the counters of every FIB prefix
+   */
+  public Map<Name, ForwardingCounters> getPrefixes() {
+    return Collections.unmodifiableMap(prefixes);
+  }
+
+  /**
+   * Drop the counters of a face, e.g. once it disconnected; events still concerning the face, such as its pending
+   * interests expiring, are only counted in total and on their prefix from now on.
+   *
+   * @param face a next hop, e.g. the transport of a connected face
+   */
+  public void removeFace(Object face) {
+    removedFaces.add(face);
+    ForwardingCounters removed = faces.remove(face);
+    Listener current = listener;
+    if (removed != null && current != null) {
+      current.faceRemoved(face, removed);
+    }
+  }
+
+  /**
+   * @param listener told about counters created or dropped from now on, or null for none
+   */
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Count an event in total, on a face and on a prefix.
+   *
+   * @param counter the event
+   * @param face the face concerned, or null if unknown
+   * @param prefix the counters of the prefix concerned, or null if there is none
+   */
+  void record(ForwardingCounters.Counter counter, Object face, ForwardingCounters prefix) {
+    totals.increment(counter);
+    ForwardingCounters faceCounters = face != null ? face(face) : null;
+    if (faceCounters != null) {
+      faceCounters.increment(counter);
+    }
+    if (prefix != null) {
+      prefix.increment(counter);
+    }
+  }
+
+  /**
+   * @param prefix the prefix of a FIB entry
+   * @return its counters
+   */
+  ForwardingCounters prefix(Name prefix) {
+    ForwardingCounters counters = prefixes.get(prefix);
+    if (counters == null) {
+      counters = new ForwardingCounters(prefix.toUri());
+      ForwardingCounters existing = prefixes.putIfAbsent(prefix, counters);
+      if (existing != null) {
+        return existing;
+      }
+      Listener current = listener;
+      if (current != null) {
+        current.prefixAdded(prefix, counters);
+      }
+    }
+    return counters;
+  }
+
+  /**
+   * @param routes FIB entries matching a name
+   * @return the counters of the longest prefix among them, or null if there are none
+   */
+  ForwardingCounters route(Collection<MockForwarder.FibEntry> routes) {
+    MockForwarder.FibEntry longest = null;
+    for (MockForwarder.FibEntry route : routes) {
+      if (longest == null || route.getPrefix().size() > longest.getPrefix().size()) {
+        longest = route;
+      }
+    }
+    return longest != null ? prefix(longest.getPrefix()) : null;
+  }
+
+  private ForwardingCounters face(Object face) {
+    ForwardingCounters counters = faces.get(face);
+    if (counters == null) {
+      if (removedFaces.contains(face)) {
+        return null;
+      }
+      counters = new ForwardingCounters(face.toString());
+      ForwardingCounters existing = faces.putIfAbsent(face, counters);
+      if (existing != null) {
+        return existing;
+      }
+      Listener current = listener;
+      if (current != null) {
+        current.faceAdded(face, counters);
+      }
+    }
+    return counters;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import net.named_data.jndn.Name;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Evict the least frequently used name, breaking ties by age; names are grouped by access count so that every
+ * operation is O(1).
+ */
+public class LfuPolicy implements EvictionPolicy {
+  private final int capacity;
+  private final Map<Name, Integer> counts = new HashMap<>();
+  private final Map<Integer, LinkedHashSet<Name>> buckets = new HashMap<>();
+  private int minimumCount = 0;
+
+  /**
+   * @param capacity the maximum number of cached names
+   */
+  public LfuPolicy(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  @Override
+  public Name insert(Name name) {
+    Name victim = null;
+    if (counts.size() >= capacity) {
+      LinkedHashSet<Name> least = buckets.get(minimumCount);
+      if (least == null) {
+        least = buckets.get(recomputeMinimum());
+      }
+      Iterator<Name> oldest = least.iterator();
+      victim = oldest.next();
+      oldest.remove();
+      if (least.isEmpty()) {
+        buckets.remove(minimumCount);
+      }
+      counts.remove(victim);
+    }
+    counts.put(name, 1);
+    bucket(1).add(name);
+    minimumCount = 1;
+    return victim;
+  }
+
+  @Override
+  public void access(Name name) {
+    Integer count = counts.get(name);
+    if (count == null) {
+      return;
+    }
+    unlink(name, count);
+    counts.put(name, count + 1);
+    bucket(count + 1).add(name);
+    if (minimumCount == count && !buckets.containsKey(count)) {
+      minimumCount = count + 1;
+    }
+  }
+
+  @Override
+  public void remove(Name name) {
+    Integer count = counts.remove(name);
+    if (count != null) {
+      unlink(name, count);
+    }
+  }
+
+  private LinkedHashSet<Name> bucket(int count) {
+    LinkedHashSet<Name> bucket = buckets.get(count);
+    if (bucket == null) {
+      bucket = new LinkedHashSet<>();
+      buckets.put(count, bucket);
+    }
+    return bucket;
+  }
+
+  private void unlink(Name name, int count) {
+    LinkedHashSet<Name> bucket = buckets.get(count);
+    bucket.remove(name);
+    if (bucket.isEmpty()) {
+      buckets.remove(count);
+    }
+  }
+
+  private int recomputeMinimum() {
+    minimumCount = Integer.MAX_VALUE;
+    for (int count : buckets.keySet()) {
+      minimumCount = Math.min(minimumCount, count);
+    }
+    return minimumCount;
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.Clock;
+import com.intel.jndn.mock.MockForwarder;
+import net.named_data.jndn.transport.Transport;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spreads interests over the matching next hops, sending each interest to one of them: either at random weighted by
+ * route cost, or to the hop with the lowest measured round-trip time.
+ */
+public class LoadBalanceStrategy implements MockForwarder.Strategy {
+  private static final double RTT_GAIN = 0.125;
+  private static final double EXPLORATION_RATE = 0.05;
+  private final Mode mode;
+  private final Clock clock;
+  private final Random random;
+  private final Map<Object, double[]> smoothedRtts = new ConcurrentHashMap<>();
+
+  /**
+   * How the next hop of an interest is chosen.
+   */
+  public enum Mode {
+    /**
+     * At random, with probability proportional to {@code 1 / (1 + cost)}; equal costs share the load evenly.
+     */
+    WEIGHTED,
+    /**
+     * The hop with the lowest smoothed round-trip time; hops not yet measured are tried first, and a small share of
+     * interests goes to a random hop to keep measurements current.
+     */
+    RTT
+  }
+
+  /**
+   * @param mode how to choose next hops
+   */
+  public LoadBalanceStrategy(Mode mode) {
+    this(mode, Clock.SYSTEM, new Random());
+  }
+
+  /**
+   * @param mode how to choose next hops
+   * @param clock the time source for round-trip times; must be the clock of the forwarder, whose PIT records when
+   * interests are sent, e.g. its {@link com.intel.jndn.mock.VirtualScheduler}
+   * @param random the source of random choices; seed it for reproducible runs
+   */
+  public LoadBalanceStrategy(Mode mode, Clock clock, Random random) {
+    this.mode = mode;
+    this.clock = clock;
+    this.random = random;
+  }
+
+  @Override
+  public void afterReceiveInterest(WirePacket interest, List<MockForwarder.FibEntry> nextHops,
+                                   Transport sourceTransport) {
+    if (nextHops.isEmpty()) {
+      return;
+    }
+    MockForwarder.FibEntry chosen = mode == Mode.WEIGHTED ? chooseWeighted(nextHops) : chooseFastest(nextHops);
+    chosen.forward(interest, sourceTransport);
+  }
+
+  /**
+   * In RTT mode, measure the round-trip time of the upstream the entry was most recently forwarded to from the send
+   * time of its PIT out-record; entries of other PIT implementations are not measured.
+   */
+  @Override
+  public void beforeSatisfyInterest(MockForwarder.PitEntry entry, WirePacket data) {
+    if (mode != Mode.RTT || !(entry instanceof PitEntryImpl)) {
+      return;
+    }
+    List<PitEntryImpl.OutRecord> outRecords = ((PitEntryImpl) entry).getOutRecords();
+    if (outRecords.isEmpty()) {
+      return;
+    }
+    PitEntryImpl.OutRecord sent = outRecords.get(outRecords.size() - 1);
+    double rtt = clock.nanoTime() - sent.getSent();
+    double[] smoothed = smoothedRtts.putIfAbsent(sent.getNextHop(), new double[]{rtt});
+    if (smoothed != null) {
+      synchronized (smoothed) {
+        smoothed[0] += RTT_GAIN * (rtt - smoothed[0]);
+      }
+    }
+  }
+
+  /**
+   * @param nextHop the next hop of a FIB entry, see {@link MockForwarder.FibEntry#getNextHop()}
+   * @return the smoothed round-trip time through the hop in nanoseconds, or -1 if not yet measured
+   */
+  public double getSmoothedRtt(Object nextHop) {
+    double[] smoothed = smoothedRtts.get(nextHop);
+    if (smoothed == null) {
+      return -1;
+    }
+    synchronized (smoothed) {
+      return smoothed[0];
+    }
+  }
+
+  private MockForwarder.FibEntry chooseWeighted(List<MockForwarder.FibEntry> nextHops) {
+    double total = 0;
+    for (MockForwarder.FibEntry entry : nextHops) {
+      total += weight(entry);
+    }
+    double target = random.nextDouble() * total;
+    for (MockForwarder.FibEntry entry : nextHops) {
+      target -= weight(entry);
+      if (target < 0) {
+        return entry;
+      }
+    }
+    return nextHops.get(nextHops.size() - 1);
+  }
+
+  private MockForwarder.FibEntry chooseFastest(List<MockForwarder.FibEntry> nextHops) {
+    if (random.nextDouble() < EXPLORATION_RATE) {
+      return nextHops.get(random.nextInt(nextHops.size()));
+    }
+    MockForwarder.FibEntry fastest = null;
+    double fastestRtt = Double.MAX_VALUE;
+    for (MockForwarder.FibEntry entry : nextHops) {
+      double rtt = getSmoothedRtt(entry.getNextHop());
+      if (rtt < 0) {
+        return entry;
+      }
+      if (rtt < fastestRtt) {
+        fastest = entry;
+        fastestRtt = rtt;
+      }
+    }
+    return fastest;
+  }
+
+  private static double weight(MockForwarder.FibEntry entry) {
+    return 1.0 / (1 + Math.max(entry.getCost(), 0));
+  }
+}
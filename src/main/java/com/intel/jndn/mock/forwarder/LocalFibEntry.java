@@ -21,6 +21,7 @@ import net.named_data.jndn.Name;
 import net.named_data.jndn.RegistrationOptions;
 import net.named_data.jndn.transport.Transport;
 
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -43,7 +44,7 @@ public class LocalFibEntry implements MockForwarder.FibEntry {
   }
 
   public void forward(Interest interest, Transport sourceTransport) {
-    LOGGER.info("Forwarding interest on: " + this.callback);
+    LOGGER.log(Level.FINE, "Forwarding interest on: {0}", this.callback);
     callback.in(interest, sourceTransport, registrationFace);
   }
 
@@ -56,4 +57,9 @@ public class LocalFibEntry implements MockForwarder.FibEntry {
   public RegistrationOptions getFlags() {
     return flags;
   }
+
+  @Override
+  public Object getNextHop() {
+    return callback;
+  }
 }
@@ -0,0 +1,62 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import net.named_data.jndn.Name;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Evict the least recently used name.
+ */
+public class LruPolicy implements EvictionPolicy {
+  private final int capacity;
+  private final LinkedHashSet<Name> names = new LinkedHashSet<>();
+
+  /**
+   * @param capacity the maximum number of cached names
+   */
+  public LruPolicy(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  @Override
+  public Name insert(Name name) {
+    Name victim = null;
+    if (names.size() >= capacity) {
+      Iterator<Name> oldest = names.iterator();
+      victim = oldest.next();
+      oldest.remove();
+    }
+    names.add(name);
+    return victim;
+  }
+
+  @Override
+  public void access(Name name) {
+    if (names.remove(name)) {
+      names.add(name);
+    }
+  }
+
+  @Override
+  public void remove(Name name) {
+    names.remove(name);
+  }
+}
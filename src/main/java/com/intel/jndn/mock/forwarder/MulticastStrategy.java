@@ -0,0 +1,33 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.MockForwarder;
+import net.named_data.jndn.transport.Transport;
+
+import java.util.List;
+
+/**
+ * Forwards every interest to all matching next hops.
+ */
+public class MulticastStrategy implements MockForwarder.Strategy {
+  @Override
+  public void afterReceiveInterest(WirePacket interest, List<MockForwarder.FibEntry> nextHops,
+                                   Transport sourceTransport) {
+    for (MockForwarder.FibEntry entry : nextHops) {
+      entry.forward(interest, sourceTransport);
+    }
+  }
+}
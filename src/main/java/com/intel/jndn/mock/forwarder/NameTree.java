@@ -0,0 +1,219 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import net.named_data.jndn.Name;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Name-component trie used as the index of the forwarder tables. Every node corresponds to a name prefix and may
+ * hold a value; a lookup walks the name one component at a time from the root, so finding the longest matching
+ * prefix costs one hash probe per component and allocates nothing.
+ * <p>
+ * This class is not thread-safe; callers must synchronize access.
+ *
+ * @param <T> the type of value stored at each name
+ */
+public final class NameTree<T> {
+  private final Node<T> root = new Node<>(null, null);
+  private int size = 0;
+
+  /**
+   * Condition for selecting values in {@link #findFirst(Name, Matcher)}.
+   *
+   * @param <T> the type of value stored at each name
+   */
+  public interface Matcher<T> {
+    /**
+     * @param value a value stored in the tree
+     * @return true if the value should be selected
+     */
+    boolean matches(T value);
+  }
+
+  /**
+   * Node in the tree; one exists for every prefix of a stored name.
+   *
+   * @param <T> the type of value stored at each name
+   */
+  static final class Node<T> {
+    private final Node<T> parent;
+    private final Name.Component component;
+    private final int depth;
+    private Map<Name.Component, Node<T>> children;
+    private T value;
+
+    private Node(Node<T> parent, Name.Component component) {
+      this.parent = parent;
+      this.component = component;
+      this.depth = parent == null ? 0 : parent.depth + 1;
+    }
+
+    Node<T> getParent() {
+      return parent;
+    }
+
+    T getValue() {
+      return value;
+    }
+
+    private Node<T> child(Name.Component childComponent) {
+      return children == null ? null : children.get(childComponent);
+    }
+  }
+
+  /**
+   * @param name the exact name to look up
+   * @return the value stored at the name or null if none
+   */
+  public T get(Name name) {
+    Node<T> node = walk(name);
+    return depthMatches(node, name) ? node.value : null;
+  }
+
+  /**
+   * @param name the name to store the value at
+   * @param value the value to store; may not be null
+   * @return the value previously stored at the name or null if none
+   */
+  public T put(Name name, T value) {
+    if (value == null) {
+      throw new IllegalArgumentException("NameTree values may not be null");
+    }
+    Node<T> node = root;
+    for (int i = 0; i < name.size(); i++) {
+      Name.Component component = name.get(i);
+      Node<T> child = node.child(component);
+      if (child == null) {
+        child = new Node<>(node, component);
+        if (node.children == null) {
+          node.children = new HashMap<>(2);
+        }
+        node.children.put(component, child);
+      }
+      node = child;
+    }
+    T previous = node.value;
+    node.value = value;
+    if (previous == null) {
+      size++;
+    }
+    return previous;
+  }
+
+  /**
+   * @param name the exact name to remove
+   * @return the value removed or null if none was stored at the name
+   */
+  public T remove(Name name) {
+    Node<T> node = walk(name);
+    return depthMatches(node, name) ? clear(node) : null;
+  }
+
+  /**
+   * @param name the name to match against
+   * @return the value stored at the longest prefix of the name holding a value, or null if no prefix does
+   */
+  public T findLongestPrefixMatch(Name name) {
+    for (Node<T> node = walk(name); node != null; node = node.parent) {
+      if (node.value != null) {
+        return node.value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param prefix the name under which to search, inclusive
+   * @param matcher the condition the returned value must satisfy
+   * @return the first value stored at or below the prefix that satisfies the matcher, or null if none does
+   */
+  public T findFirst(Name prefix, Matcher<T> matcher) {
+    Node<T> start = walk(prefix);
+    if (!depthMatches(start, prefix)) {
+      return null;
+    }
+
+    Deque<Node<T>> pending = new ArrayDeque<>();
+    pending.push(start);
+    while (!pending.isEmpty()) {
+      Node<T> node = pending.pop();
+      if (node.value != null && matcher.matches(node.value)) {
+        return node.value;
+      }
+      if (node.children != null) {
+        for (Node<T> child : node.children.values()) {
+          pending.push(child);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the number of names holding a value
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Follow the components of a name down the tree as far as they go; the returned node and its ancestors (through
+   * {@link Node#getParent()}) are the prefixes of the name present in the tree, deepest first.
+   *
+   * @param name the name to walk
+   * @return the deepest node matching a prefix of the name; the root if no component matches
+   */
+  Node<T> walk(Name name) {
+    Node<T> node = root;
+    for (int i = 0; i < name.size(); i++) {
+      Node<T> child = node.child(name.get(i));
+      if (child == null) {
+        break;
+      }
+      node = child;
+    }
+    return node;
+  }
+
+  /**
+   * Remove the value held by a node, pruning any ancestors left without values or children.
+   *
+   * @param node a node returned by {@link #walk(Name)}
+   * @return the value removed or null if the node held none
+   */
+  T clear(Node<T> node) {
+    T previous = node.value;
+    if (previous == null) {
+      return null;
+    }
+    node.value = null;
+    size--;
+
+    while (node.parent != null && node.value == null && (node.children == null || node.children.isEmpty())) {
+      node.parent.children.remove(node.component);
+      node = node.parent;
+    }
+    return previous;
+  }
+
+  private static boolean depthMatches(Node<?> node, Name name) {
+    return node.depth == name.size();
+  }
+}
@@ -15,6 +15,7 @@
 package com.intel.jndn.mock.forwarder;
 
 import com.intel.jndn.mock.MockForwarder;
+import com.intel.jndn.mock.MockKeyChain;
 import com.intel.jndn.mock.MockTransport;
 import net.named_data.jndn.ControlParameters;
 import net.named_data.jndn.ControlResponse;
@@ -24,8 +25,6 @@ import net.named_data.jndn.Interest;
 import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.security.KeyChain;
 import net.named_data.jndn.security.SecurityException;
-import net.named_data.jndn.security.pib.PibImpl;
-import net.named_data.jndn.security.tpm.TpmBackEnd;
 import net.named_data.jndn.transport.Transport;
 
 import java.io.IOException;
@@ -45,10 +44,21 @@ public class OnPrefixRegistration implements MockForwarder.OnInterestReceived {
   private static final int CONTROL_COMMAND_NAME_OFFSET = 3;
   private final KeyChain keyChain;
   private final MockForwarder.Fib fib;
+  private final MockKeyChain.SigningMode signingMode;
 
   public OnPrefixRegistration(KeyChain keyChain, MockForwarder.Fib fib) {
+    this(keyChain, fib, MockKeyChain.SigningMode.RSA);
+  }
+
+  /**
+   * @param keyChain the key chain signing registration responses
+   * @param fib the FIB to add registered routes to
+   * @param signingMode how to sign registration responses
+   */
+  public OnPrefixRegistration(KeyChain keyChain, MockForwarder.Fib fib, MockKeyChain.SigningMode signingMode) {
     this.keyChain = keyChain;
     this.fib = fib;
+    this.signingMode = signingMode;
   }
 
   @Override
@@ -58,9 +68,11 @@ public class OnPrefixRegistration implements MockForwarder.OnInterestReceived {
 
     MockForwarder.FibEntry entry = new ClientFibEntry(params.getName(),
                                                       (MockTransport) destinationTransport,
-                                                      params.getForwardingFlags());
+                                                      params.getForwardingFlags(),
+                                                      params.getCost());
     fib.add(entry);
-    LOGGER.info("Added new route " + params.getName() + " to: " + destinationTransport);
+    LOGGER.info("Added new route " + params.getName() + " with cost " + params.getCost() + " to: "
+        + destinationTransport);
 
     ControlResponse response = encodeResponse(params);
 
@@ -82,7 +94,9 @@ public class OnPrefixRegistration implements MockForwarder.OnInterestReceived {
       params.wireDecode(interest.getName().get(CONTROL_PARAMETERS_NAME_OFFSET).getValue());
       params.setFaceId(1);
       params.setOrigin(0);
-      params.setCost(0);
+      if (params.getCost() < 0) {
+        params.setCost(0); // keep a registered cost, defaulting to 0 as NFD does
+      }
     } catch (EncodingException e) {
       throw new IllegalArgumentException("", e);
     }
@@ -99,8 +113,8 @@ public class OnPrefixRegistration implements MockForwarder.OnInterestReceived {
 
   private void signResponse(Data data) {
     try {
-      keyChain.sign(data);
-    } catch (SecurityException | KeyChain.Error | TpmBackEnd.Error | PibImpl.Error e) {
+      MockKeyChain.sign(keyChain, data, signingMode);
+    } catch (SecurityException e) {
       LOGGER.log(Level.FINE, "MockKeyChain signing failed", e);
     }
   }
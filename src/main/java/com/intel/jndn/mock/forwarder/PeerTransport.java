@@ -0,0 +1,68 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.EmulatedLink;
+import com.intel.jndn.mock.MockTransport;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One side of a face between two mock forwarders: the forwarder owning this transport sends packets to it as it
+ * would to a client face, and they are handed directly, or across an {@link EmulatedLink}, to the packet handler of
+ * the other forwarder. Created in pairs by {@link com.intel.jndn.mock.MockForwarder#link}.
+ */
+public class PeerTransport extends MockTransport {
+  private final EmulatedLink link;
+  private volatile MockTransport.OnSendBlockSignal remote;
+  private final EmulatedLink.Receiver delivery = new EmulatedLink.Receiver() {
+    @Override
+    public void receive(ByteBuffer block) {
+      remote.emit(block);
+    }
+  };
+
+  /**
+   * @param link the link packets cross towards the other forwarder, or null to hand them over immediately
+   */
+  public PeerTransport(EmulatedLink link) {
+    this.link = link;
+  }
+
+  /**
+   * @param remote the handler of the other forwarder receiving packets sent to this transport, i.e. a
+   * {@link BufferHandler} whose transport is the other side of the pair
+   */
+  public void connectTo(MockTransport.OnSendBlockSignal remote) {
+    this.remote = remote;
+  }
+
+  /**
+   * Send a packet to the other forwarder; called by the forwarder owning this transport.
+   *
+   * @param block the packet
+   */
+  @Override
+  public void receive(final ByteBuffer block) {
+    if (remote == null) {
+      throw new IllegalStateException("Peer transport is not connected to a forwarder");
+    }
+    if (link != null) {
+      link.send(block, delivery);
+    } else {
+      delivery.receive(block.duplicate());
+    }
+  }
+}
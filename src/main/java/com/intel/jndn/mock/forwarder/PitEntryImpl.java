@@ -18,40 +18,255 @@ import com.intel.jndn.mock.MockForwarder;
 import com.intel.jndn.mock.MockTransport;
 import net.named_data.jndn.Data;
 import net.named_data.jndn.Interest;
+import net.named_data.jndn.util.Blob;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * PIT entry for one interest, i.e. one name with one set of selectors. Each downstream face waiting for the interest
+ * has an in-record with the nonce and expiry of the last interest it sent; each upstream the interest was forwarded to
+ * has an out-record. A matching data is sent once to every downstream face.
+ *
  * @author Andrew Brown, andrew.brown@intel.com
  */
 final class PitEntryImpl implements MockForwarder.PitEntry {
 
   private static final Logger LOGGER = Logger.getLogger(PitEntryImpl.class.getName());
-  private final Interest interest;
-  private final MockTransport transport;
+  private final WirePacket interest;
+  private final List<InRecord> inRecords = new ArrayList<>(1);
+  private final List<OutRecord> outRecords = new ArrayList<>(1);
   private boolean satisfied = false;
+  private ForwardingCounters prefix;
+
+  /**
+   * A downstream face waiting for the data.
+   */
+  static final class InRecord {
+    private final MockTransport face;
+    private Blob nonce;
+    private long expiry;
+
+    InRecord(MockTransport face, Blob nonce, long expiry) {
+      this.face = face;
+      this.nonce = nonce;
+      this.expiry = expiry;
+    }
+
+    MockTransport getFace() {
+      return face;
+    }
+
+    Blob getNonce() {
+      return nonce;
+    }
+
+    long getExpiry() {
+      return expiry;
+    }
+  }
+
+  /**
+   * An upstream the interest was forwarded to.
+   */
+  static final class OutRecord {
+    private final Object nextHop;
+    private final Blob nonce;
+    private final long sent;
+
+    OutRecord(Object nextHop, Blob nonce, long sent) {
+      this.nextHop = nextHop;
+      this.nonce = nonce;
+      this.sent = sent;
+    }
+
+    Object getNextHop() {
+      return nextHop;
+    }
+
+    Blob getNonce() {
+      return nonce;
+    }
+
+    long getSent() {
+      return sent;
+    }
+  }
 
   PitEntryImpl(Interest interest, MockTransport transport) {
+    this(WirePacket.wrap(interest), transport);
+  }
+
+  PitEntryImpl(WirePacket interest, MockTransport transport) {
+    this(interest, transport, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param interest the interest creating the entry
+   * @param transport the downstream face it arrived on
+   * @param expiry when the interest expires, in {@link com.intel.jndn.mock.Clock} nanoseconds
+   */
+  PitEntryImpl(WirePacket interest, MockTransport transport, long expiry) {
     this.interest = interest;
-    this.transport = transport;
+    inRecords.add(new InRecord(transport, interest.getNonce(), expiry));
   }
 
   public void forward(Data data) {
-    LOGGER.info("Forwarding data on: " + this.transport);
+    send(data.wireEncode().buf());
+  }
 
+  @Override
+  public void forward(WirePacket data) {
+    send(data.wire());
+  }
+
+  private void send(ByteBuffer wire) {
     if (satisfied) {
-      LOGGER.warning("Data already forwarded for PIT entry: " + interest.toUri());
+      LOGGER.warning("Data already forwarded for PIT entry: " + interest.getName().toUri());
     }
 
-    transport.receive(data.wireEncode().buf());
+    for (InRecord record : inRecords) {
+      LOGGER.log(Level.FINE, "Forwarding data on: {0}", record.face);
+      record.face.receive(wire.duplicate());
+    }
     satisfied = true;
   }
 
   public Interest getInterest() {
-    return new Interest(interest);
+    return new Interest(interest.getInterest());
+  }
+
+  @Override
+  public WirePacket getPacket() {
+    return interest;
   }
 
   public boolean isSatisfied() {
     return satisfied;
   }
+
+  /**
+   * @param other an incoming interest for the same name
+   * @return true if the interest would be aggregated into this entry, i.e. it has the same selectors
+   */
+  boolean matches(WirePacket other) {
+    return interest.getCanBePrefix() == other.getCanBePrefix() && interest.getMustBeFresh() == other.getMustBeFresh();
+  }
+
+  /**
+   * @param nonce the nonce of an incoming interest
+   * @param face the face the interest arrived on
+   * @return true if the nonce was already received from another face or forwarded upstream, i.e. the interest looped
+   */
+  boolean isLooping(Blob nonce, MockTransport face) {
+    if (nonce == null || nonce.size() == 0) {
+      return false;
+    }
+    for (InRecord record : inRecords) {
+      if (record.face != face && nonce.equals(record.nonce)) {
+        return true;
+      }
+    }
+    for (OutRecord record : outRecords) {
+      if (nonce.equals(record.nonce)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Insert or refresh the in-record of a downstream face.
+   *
+   * @param face the face the interest arrived on
+   * @param nonce the nonce of the interest
+   * @param expiry when the interest expires
+   * @return true if the face already had an in-record, i.e. the interest is a retransmission
+   */
+  boolean addInRecord(MockTransport face, Blob nonce, long expiry) {
+    for (InRecord record : inRecords) {
+      if (record.face == face) {
+        record.nonce = nonce;
+        record.expiry = expiry;
+        return true;
+      }
+    }
+    inRecords.add(new InRecord(face, nonce, expiry));
+    return false;
+  }
+
+  /**
+   * Insert or refresh the out-record of an upstream; out-records are kept from least to most recently forwarded.
+   *
+   * @param nextHop the upstream, see {@link MockForwarder.FibEntry#getNextHop()}
+   * @param nonce the nonce of the forwarded interest
+   * @param sent when the interest was forwarded
+   */
+  void addOutRecord(Object nextHop, Blob nonce, long sent) {
+    Iterator<OutRecord> records = outRecords.iterator();
+    while (records.hasNext()) {
+      if (records.next().nextHop.equals(nextHop)) {
+        records.remove();
+        break;
+      }
+    }
+    outRecords.add(new OutRecord(nextHop, nonce, sent));
+  }
+
+  /**
+   * Drop the in-records of downstream faces whose interest has expired; they no longer expect the data.
+   *
+   * @param now the current time
+   * @return the dropped in-records
+   */
+  List<InRecord> removeExpiredInRecords(long now) {
+    List<InRecord> expired = Collections.emptyList();
+    Iterator<InRecord> records = inRecords.iterator();
+    while (records.hasNext()) {
+      InRecord record = records.next();
+      if (record.expiry <= now) {
+        records.remove();
+        if (expired.isEmpty()) {
+          expired = new ArrayList<>(1);
+        }
+        expired.add(record);
+      }
+    }
+    return expired;
+  }
+
+  /**
+   * @return the latest expiry of any in-record
+   */
+  long getExpiry() {
+    long expiry = Long.MIN_VALUE;
+    for (InRecord record : inRecords) {
+      expiry = Math.max(expiry, record.expiry);
+    }
+    return expiry;
+  }
+
+  List<InRecord> getInRecords() {
+    return inRecords;
+  }
+
+  List<OutRecord> getOutRecords() {
+    return outRecords;
+  }
+
+  /**
+   * @return the counters of the FIB prefix the entry was forwarded under, or null if none
+   */
+  ForwardingCounters getPrefix() {
+    return prefix;
+  }
+
+  void setPrefix(ForwardingCounters prefix) {
+    this.prefix = prefix;
+  }
 }
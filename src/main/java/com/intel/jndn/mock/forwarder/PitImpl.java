@@ -14,46 +14,315 @@
 
 package com.intel.jndn.mock.forwarder;
 
+import com.intel.jndn.mock.Clock;
 import com.intel.jndn.mock.MockForwarder;
+import com.intel.jndn.mock.MockTransport;
 import net.named_data.jndn.Interest;
 import net.named_data.jndn.Name;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
- * Naive implementation of a Pending Interest Table.
+ * Naive implementation of a Pending Interest Table, indexed by a {@link NameTree}. Interests for the same name and
+ * selectors share one entry with an in-record per downstream face, see {@link #insert(WirePacket, MockTransport)}.
+ * Entries expire after the lifetime of their last interest; expiration is driven by a {@link TimerWheel} that is
+ * advanced on every table operation.
+ * <p>
+ * Looping interests are detected by nonce: while an entry is pending from its in- and out-records, and after it is
+ * gone from a {@link DeadNonceList} holding the nonces it was forwarded with.
  *
  * @author Andrew Brown, andrew.brown@intel.com
  */
 public class PitImpl implements MockForwarder.Pit {
 
-  private final Map<Name, List<MockForwarder.PitEntry>> pit = new ConcurrentHashMap<>();
+  private static final Logger LOGGER = Logger.getLogger(PitImpl.class.getName());
+  private static final long DEFAULT_INTEREST_LIFETIME_MS = 4000;
+  private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final int WHEEL_SIZE = 512;
+  private final NameTree<List<PendingEntry>> pit = new NameTree<>();
+  private final Clock clock;
+  private final DeadNonceList deadNonces;
+  private final TimerWheel<PendingEntry> wheel;
+  private final TimerWheel.OnExpiration<PendingEntry> onExpiration = new TimerWheel.OnExpiration<PendingEntry>() {
+    @Override
+    public void expire(PendingEntry pending) {
+      LOGGER.log(Level.FINE, "Expiring PIT entry: {0}", pending.name);
+      remove(pending);
+      addDeadNonces(pending);
+      expirations++;
+      if (pending.entry instanceof PitEntryImpl) {
+        countUnsatisfied((PitEntryImpl) pending.entry, ((PitEntryImpl) pending.entry).getInRecords());
+      } else if (statistics != null) {
+        statistics.record(ForwardingCounters.Counter.UNSATISFIED_INTERESTS, null, null);
+      }
+    }
+  };
+  private ForwardingStatistics statistics;
+  private long expirations = 0;
+  private long duplicateNonces = 0;
+  private long deadNonceHits = 0;
+
+  /**
+   * A PIT entry as stored in the table, along with its expiration timer.
+   */
+  private static final class PendingEntry {
+    private final Name name;
+    private final MockForwarder.PitEntry entry;
+    private TimerWheel.Timeout<PendingEntry> timeout;
+    private long deadline;
 
-  public List<MockForwarder.PitEntry> extract(Name name) {
+    PendingEntry(Name name, MockForwarder.PitEntry entry) {
+      this.name = name;
+      this.entry = entry;
+    }
+  }
+
+  /**
+   * Create a PIT expiring entries on the system clock.
+   */
+  public PitImpl() {
+    this(Clock.SYSTEM);
+  }
+
+  /**
+   * @param clock the clock driving entry expiration
+   */
+  public PitImpl(Clock clock) {
+    this(clock, new DeadNonceList(clock));
+  }
+
+  /**
+   * @param clock the clock driving entry expiration
+   * @param deadNonces the list remembering the nonces of removed entries
+   */
+  public PitImpl(Clock clock, DeadNonceList deadNonces) {
+    this.clock = clock;
+    this.deadNonces = deadNonces;
+    this.wheel = new TimerWheel<>(clock, TICK_NANOS, WHEEL_SIZE);
+  }
+
+  public synchronized List<MockForwarder.PitEntry> extract(Name name) {
+    wheel.advance(onExpiration);
     ArrayList<MockForwarder.PitEntry> entries = new ArrayList<>();
-    for (int i = name.size(); i >= 0; i--) {
-      Name prefix = name.getPrefix(i);
-      List<MockForwarder.PitEntry> pendingInterests = pit.get(prefix);
+    NameTree.Node<List<PendingEntry>> node = pit.walk(name);
+    while (node != null) {
+      NameTree.Node<List<PendingEntry>> parent = node.getParent();
+      List<PendingEntry> pendingInterests = pit.clear(node);
       if (pendingInterests != null) {
-        entries.addAll(pendingInterests);
-        pendingInterests.clear(); // TODO is this necessary
+        long now = clock.nanoTime();
+        for (PendingEntry pending : pendingInterests) {
+          pending.timeout.cancel();
+          addDeadNonces(pending);
+          if (pending.entry instanceof PitEntryImpl) {
+            PitEntryImpl entry = (PitEntryImpl) pending.entry;
+            countUnsatisfied(entry, entry.removeExpiredInRecords(now));
+          }
+          entries.add(pending.entry);
+        }
       }
+      node = parent;
     }
     return entries;
   }
 
-  public void add(MockForwarder.PitEntry entry) {
-    if (!pit.containsKey(entry.getInterest().getName())) {
-      pit.put(entry.getInterest().getName(), new ArrayList<MockForwarder.PitEntry>(1));
+  public synchronized void add(MockForwarder.PitEntry entry) {
+    wheel.advance(onExpiration);
+    WirePacket interest = entry.getPacket();
+    schedule(new PendingEntry(interest.getName(), entry), clock.nanoTime() + lifetimeOf(interest));
+  }
+
+  @Override
+  public Insertion insert(WirePacket interest, MockTransport downstream) {
+    return insert(interest, downstream, null);
+  }
+
+  /**
+   * Record an interest received from a downstream face, see {@link #insert(WirePacket, MockTransport)}.
+   *
+   * @param interest the incoming interest, as received on the wire
+   * @param downstream the face the interest arrived on
+   * @param prefix the counters of the FIB prefix the interest matched, or null if none; kept with a new entry so that
+   * its data and expiry are counted without looking the name up again
+   * @return whether the interest must be forwarded upstream
+   */
+  synchronized Insertion insert(WirePacket interest, MockTransport downstream, ForwardingCounters prefix) {
+    wheel.advance(onExpiration);
+    if (deadNonces.has(interest.getName(), interest.getNonce())) {
+      deadNonceHits++;
+      return Insertion.LOOPED;
+    }
+
+    long expiry = clock.nanoTime() + lifetimeOf(interest);
+    PendingEntry pending = find(interest);
+    if (pending == null) {
+      PitEntryImpl entry = new PitEntryImpl(interest, downstream, expiry);
+      entry.setPrefix(prefix);
+      schedule(new PendingEntry(interest.getName(), entry), expiry);
+      return Insertion.NEW;
+    }
+
+    PitEntryImpl entry = (PitEntryImpl) pending.entry;
+    if (entry.isLooping(interest.getNonce(), downstream)) {
+      duplicateNonces++;
+      return Insertion.LOOPED;
+    }
+    boolean retransmitted = entry.addInRecord(downstream, interest.getNonce(), expiry);
+    if (expiry > pending.deadline) {
+      pending.timeout.cancel();
+      pending.deadline = expiry;
+      pending.timeout = wheel.schedule(pending, expiry - clock.nanoTime());
+    }
+    return retransmitted ? Insertion.RETRANSMITTED : Insertion.AGGREGATED;
+  }
+
+  @Override
+  public synchronized void addOutRecord(WirePacket interest, Object nextHop) {
+    PendingEntry pending = find(interest);
+    if (pending != null) {
+      ((PitEntryImpl) pending.entry).addOutRecord(nextHop, interest.getNonce(), clock.nanoTime());
     }
-    pit.get(entry.getInterest().getName()).add(entry);
+  }
+
+  @Override
+  public synchronized List<Object> getUpstreams(WirePacket interest) {
+    PendingEntry pending = find(interest);
+    if (pending == null || !(pending.entry instanceof PitEntryImpl)) {
+      return Collections.emptyList();
+    }
+    List<PitEntryImpl.OutRecord> records = ((PitEntryImpl) pending.entry).getOutRecords();
+    List<Object> upstreams = new ArrayList<>(records.size());
+    for (PitEntryImpl.OutRecord record : records) {
+      upstreams.add(record.getNextHop());
+    }
+    return upstreams;
+  }
+
+  /**
+   * @param interest an incoming interest
+   * @return the pending entry the interest would be aggregated into, or null if there is none
+   */
+  synchronized PitEntryImpl get(WirePacket interest) {
+    wheel.advance(onExpiration);
+    PendingEntry pending = find(interest);
+    return pending != null ? (PitEntryImpl) pending.entry : null;
   }
 
   public boolean has(Interest interest) {
-    List<MockForwarder.PitEntry> entries = pit.get(interest.getName());
-    return entries != null && !entries.isEmpty();
+    return has(interest.getName());
+  }
+
+  @Override
+  public boolean has(WirePacket interest) {
+    return has(interest.getName());
+  }
+
+  private synchronized boolean has(Name name) {
+    wheel.advance(onExpiration);
+    return pit.get(name) != null;
+  }
+
+  /**
+   * Remove any entries whose interest lifetime has passed; this also happens implicitly on every table operation.
+   *
+   * @return the number of entries expired by this call
+   */
+  public synchronized int expire() {
+    return wheel.advance(onExpiration);
+  }
+
+  /**
+   * @return the number of entries in the table
+   */
+  public synchronized int size() {
+    return wheel.size();
+  }
+
+  /**
+   * @return the number of entries removed because their interest lifetime passed before a matching data arrived
+   */
+  public synchronized long getExpirations() {
+    return expirations;
+  }
+
+  /**
+   * @return the number of interests dropped because their nonce was already pending, from another face or upstream
+   */
+  public synchronized long getDuplicateNonces() {
+    return duplicateNonces;
+  }
+
+  /**
+   * @return the number of interests dropped because their nonce was in the dead nonce list
+   */
+  public synchronized long getDeadNonceHits() {
+    return deadNonceHits;
+  }
+
+  /**
+   * @param statistics the counters of satisfied and unsatisfied interests, or null to not count them
+   */
+  public synchronized void setStatistics(ForwardingStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  private void countUnsatisfied(PitEntryImpl entry, List<PitEntryImpl.InRecord> expired) {
+    if (statistics == null) {
+      return;
+    }
+    for (PitEntryImpl.InRecord record : expired) {
+      statistics.record(ForwardingCounters.Counter.UNSATISFIED_INTERESTS, record.getFace(), entry.getPrefix());
+    }
+  }
+
+  private void addDeadNonces(PendingEntry pending) {
+    if (pending.entry instanceof PitEntryImpl) {
+      for (PitEntryImpl.OutRecord record : ((PitEntryImpl) pending.entry).getOutRecords()) {
+        deadNonces.add(pending.name, record.getNonce());
+      }
+    }
+  }
+
+  private void schedule(PendingEntry pending, long deadline) {
+    pending.deadline = deadline;
+    pending.timeout = wheel.schedule(pending, deadline - clock.nanoTime());
+
+    List<PendingEntry> pendingInterests = pit.get(pending.name);
+    if (pendingInterests == null) {
+      pendingInterests = new ArrayList<>(1);
+      pit.put(pending.name, pendingInterests);
+    }
+    pendingInterests.add(pending);
+  }
+
+  private PendingEntry find(WirePacket interest) {
+    List<PendingEntry> pendingInterests = pit.get(interest.getName());
+    if (pendingInterests != null) {
+      for (PendingEntry pending : pendingInterests) {
+        if (pending.entry instanceof PitEntryImpl && ((PitEntryImpl) pending.entry).matches(interest)) {
+          return pending;
+        }
+      }
+    }
+    return null;
+  }
+
+  private void remove(PendingEntry pending) {
+    List<PendingEntry> pendingInterests = pit.get(pending.name);
+    if (pendingInterests != null) {
+      pendingInterests.remove(pending);
+      if (pendingInterests.isEmpty()) {
+        pit.remove(pending.name);
+      }
+    }
+  }
+
+  private static long lifetimeOf(WirePacket interest) {
+    double lifetime = interest.getInterestLifetime();
+    return TimeUnit.MILLISECONDS.toNanos(lifetime >= 0 ? (long) lifetime : DEFAULT_INTEREST_LIFETIME_MS);
   }
 }
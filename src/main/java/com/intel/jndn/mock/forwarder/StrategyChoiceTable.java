@@ -0,0 +1,86 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.MockForwarder;
+import net.named_data.jndn.Name;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Strategy choice table: the forwarding strategy of each name is the one set at its longest prefix, falling back to
+ * the default strategy at the root.
+ */
+public class StrategyChoiceTable {
+  private final NameTree<MockForwarder.Strategy> strategies = new NameTree<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Create a table sending every interest to all matching next hops, as the forwarder always did.
+   */
+  public StrategyChoiceTable() {
+    this(new MulticastStrategy());
+  }
+
+  /**
+   * @param defaultStrategy the strategy of names without a more specific choice
+   */
+  public StrategyChoiceTable(MockForwarder.Strategy defaultStrategy) {
+    strategies.put(new Name(), defaultStrategy);
+  }
+
+  /**
+   * @param prefix the prefix under which to use the strategy; the empty name replaces the default strategy
+   * @param strategy the strategy
+   */
+  public void set(Name prefix, MockForwarder.Strategy strategy) {
+    lock.writeLock().lock();
+    try {
+      strategies.put(prefix, strategy);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @param prefix the prefix whose strategy choice to remove, so that it inherits its parent's; the default strategy
+   * cannot be removed
+   */
+  public void unset(Name prefix) {
+    if (prefix.size() == 0) {
+      throw new IllegalArgumentException("The default strategy cannot be removed");
+    }
+    lock.writeLock().lock();
+    try {
+      strategies.remove(prefix);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @param name an interest name
+   * @return the strategy choice of the name's longest prefix
+   */
+  public MockForwarder.Strategy find(Name name) {
+    lock.readLock().lock();
+    try {
+      return strategies.findLongestPrefixMatch(name);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+}
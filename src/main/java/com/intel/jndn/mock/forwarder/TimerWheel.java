@@ -0,0 +1,191 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.Clock;
+
+/**
+ * Hashed timer wheel: timeouts are hashed by deadline tick into a fixed ring of buckets so that scheduling and
+ * cancelling are O(1) and each tick only visits the bucket it points at, regardless of how many timeouts are pending.
+ * Timeouts further away than one revolution simply stay in their bucket until their deadline tick comes around.
+ * <p>
+ * This class is not thread-safe; callers must synchronize access.
+ *
+ * @param <T> the type of item scheduled for expiration
+ */
+public final class TimerWheel<T> {
+  private final Clock clock;
+  private final long tickNanos;
+  private final Timeout<T>[] buckets;
+  private final int mask;
+  private final long startNanos;
+  private long currentTick = 0;
+  private int size = 0;
+
+  /**
+   * API for handling expired items.
+   *
+   * @param <T> the type of item scheduled for expiration
+   */
+  public interface OnExpiration<T> {
+    /**
+     * Called once for each item whose deadline has passed.
+     *
+     * @param item the expired item
+     */
+    void expire(T item);
+  }
+
+  /**
+   * Handle to a scheduled item; use {@link #cancel()} to remove it from the wheel before it expires.
+   *
+   * @param <T> the type of item scheduled for expiration
+   */
+  public static final class Timeout<T> {
+    private final T item;
+    private final long deadlineTick;
+    private TimerWheel<T> wheel;
+    private Timeout<T> previous;
+    private Timeout<T> next;
+
+    private Timeout(T item, long deadlineTick, TimerWheel<T> wheel) {
+      this.item = item;
+      this.deadlineTick = deadlineTick;
+      this.wheel = wheel;
+    }
+
+    /**
+     * @return the scheduled item
+     */
+    public T getItem() {
+      return item;
+    }
+
+    /**
+     * @return true if the item is still waiting in the wheel
+     */
+    public boolean isPending() {
+      return wheel != null;
+    }
+
+    /**
+     * Remove this timeout from the wheel; does nothing if it has already expired or been cancelled.
+     */
+    public void cancel() {
+      if (wheel != null) {
+        wheel.unlink(this);
+      }
+    }
+  }
+
+  /**
+   * @param clock the time source driving the wheel
+   * @param tickNanos the resolution of the wheel; deadlines are rounded up to the next tick
+   * @param wheelSize the number of buckets, rounded up to a power of two
+   */
+  @SuppressWarnings("unchecked")
+  public TimerWheel(Clock clock, long tickNanos, int wheelSize) {
+    if (tickNanos <= 0 || wheelSize <= 0) {
+      throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+    }
+    int size = Integer.highestOneBit(wheelSize);
+    if (size < wheelSize) {
+      size <<= 1;
+    }
+    this.clock = clock;
+    this.tickNanos = tickNanos;
+    this.buckets = (Timeout<T>[]) new Timeout[size];
+    this.mask = size - 1;
+    this.startNanos = clock.nanoTime();
+  }
+
+  /**
+   * @param item the item to expire
+   * @param delayNanos the time from now after which the item expires
+   * @return a handle for cancelling the timeout
+   */
+  public Timeout<T> schedule(T item, long delayNanos) {
+    long elapsed = clock.nanoTime() - startNanos;
+    long deadlineTick = Math.max(currentTick + 1, (elapsed + Math.max(delayNanos, 0) + tickNanos - 1) / tickNanos);
+    Timeout<T> timeout = new Timeout<>(item, deadlineTick, this);
+    int index = (int) (deadlineTick & mask);
+    timeout.next = buckets[index];
+    if (buckets[index] != null) {
+      buckets[index].previous = timeout;
+    }
+    buckets[index] = timeout;
+    size++;
+    return timeout;
+  }
+
+  /**
+   * Move the wheel forward to the current time, expiring every item whose deadline has passed. Each elapsed tick
+   * visits a single bucket; if more than a full revolution has elapsed every bucket is visited exactly once.
+   *
+   * @param onExpiration called for each expired item, after it has been removed from the wheel
+   * @return the number of expired items
+   */
+  public int advance(OnExpiration<T> onExpiration) {
+    long targetTick = (clock.nanoTime() - startNanos) / tickNanos;
+    if (targetTick <= currentTick) {
+      return 0;
+    }
+
+    long firstTick = Math.max(currentTick + 1, targetTick - mask);
+    currentTick = targetTick;
+
+    int expired = 0;
+    for (long tick = firstTick; tick <= targetTick; tick++) {
+      int index = (int) (tick & mask);
+      Timeout<T> timeout = buckets[index];
+      while (timeout != null) {
+        Timeout<T> next = timeout.next;
+        if (timeout.deadlineTick <= targetTick) {
+          unlink(timeout);
+          onExpiration.expire(timeout.item);
+          expired++;
+          if (next != null && next.wheel == null) {
+            next = buckets[index]; // the callback cancelled our successor; rescan the bucket
+          }
+        }
+        timeout = next;
+      }
+    }
+    return expired;
+  }
+
+  /**
+   * @return the number of pending timeouts
+   */
+  public int size() {
+    return size;
+  }
+
+  private void unlink(Timeout<T> timeout) {
+    int index = (int) (timeout.deadlineTick & mask);
+    if (timeout.previous != null) {
+      timeout.previous.next = timeout.next;
+    } else {
+      buckets[index] = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.previous = timeout.previous;
+    }
+    timeout.previous = null;
+    timeout.next = null;
+    timeout.wheel = null;
+    size--;
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.TlvWireFormat;
+import net.named_data.jndn.encoding.tlv.Tlv;
+import net.named_data.jndn.util.Blob;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A packet moving through the mock forwarder, kept together with the wire encoding it arrived in. Decoding reads only
+ * the fields needed to forward the packet straight from the TLV bytes: the name and, for interests, the nonce,
+ * lifetime, CanBePrefix and MustBeFresh, or, for data, the freshness period. The full {@link Interest} or {@link Data}
+ * is only built when {@link #getInterest()} or {@link #getData()} is first called, e.g. to hand the packet to a local
+ * callback. Forwarding an unmodified packet hands out read-only duplicates of the wire encoding, so fanning a packet
+ * out to many faces neither re-encodes nor copies it.
+ * <p>
+ * Both the v0.2 (selectors) and v0.3 interest formats are accepted, matching jndn's own decoding.
+ */
+public final class WirePacket {
+  private final ByteBuffer wire;
+  private final int type;
+  private Name name;
+  private Blob nonce = new Blob();
+  private double interestLifetime = -1;
+  private boolean canBePrefix = false;
+  private boolean mustBeFresh = false;
+  private double freshnessPeriod = -1;
+  private Interest interest;
+  private Data data;
+
+  private WirePacket(ByteBuffer wire, int type) {
+    this.wire = wire;
+    this.type = type;
+  }
+
+  /**
+   * @param buffer the wire encoding of an interest or data packet, from its position to its limit; the bytes are
+   * shared, not copied, and must not be modified
+   * @return a view of the packet with its forwarding fields decoded
+   * @throws EncodingException if the buffer does not contain a well-formed interest or data packet
+   */
+  public static WirePacket decode(ByteBuffer buffer) throws EncodingException {
+    ByteBuffer wire = buffer.asReadOnlyBuffer();
+    Reader reader = new Reader(wire);
+    int type = (int) reader.readVarNumber();
+    int end = reader.readLength(wire.limit());
+    wire.limit(end);
+
+    WirePacket packet = new WirePacket(wire, type);
+    if (type == Tlv.Interest) {
+      packet.decodeInterestFields(reader, end);
+    } else if (type == Tlv.Data) {
+      packet.decodeDataFields(reader, end);
+    } else {
+      throw new EncodingException("Not an interest or data packet, TLV type: " + type);
+    }
+    return packet;
+  }
+
+  /**
+   * @param interest the interest to wrap; it is encoded once here and must not be modified afterwards
+   * @return the wrapped packet
+   */
+  public static WirePacket wrap(Interest interest) {
+    WirePacket packet = new WirePacket(interest.wireEncode().buf().asReadOnlyBuffer(), Tlv.Interest);
+    packet.interest = interest;
+    packet.name = interest.getName();
+    packet.nonce = interest.getNonce();
+    packet.interestLifetime = interest.getInterestLifetimeMilliseconds();
+    packet.canBePrefix = interest.getCanBePrefix();
+    packet.mustBeFresh = interest.getMustBeFresh();
+    return packet;
+  }
+
+  /**
+   * @param data the data packet to wrap; it is encoded once here and must not be modified afterwards
+   * @return the wrapped packet
+   */
+  public static WirePacket wrap(Data data) {
+    WirePacket packet = new WirePacket(data.wireEncode().buf().asReadOnlyBuffer(), Tlv.Data);
+    packet.data = data;
+    packet.name = data.getName();
+    packet.freshnessPeriod = data.getMetaInfo().getFreshnessPeriod();
+    return packet;
+  }
+
+  /**
+   * @return a read-only view of the wire encoding with its own position and limit; does not copy the bytes
+   */
+  public ByteBuffer wire() {
+    return wire.duplicate();
+  }
+
+  /**
+   * @return true if the packet is an interest
+   */
+  public boolean isInterest() {
+    return type == Tlv.Interest;
+  }
+
+  /**
+   * @return true if the packet is a data packet
+   */
+  public boolean isData() {
+    return type == Tlv.Data;
+  }
+
+  /**
+   * @return the fully decoded interest, built on the first call; callers must not modify it
+   * @throws IllegalStateException if the packet is not an interest or its remaining fields fail to decode
+   */
+  public synchronized Interest getInterest() {
+    if (!isInterest()) {
+      throw new IllegalStateException("Packet is not an interest");
+    }
+    if (interest == null) {
+      Interest decoded = new Interest();
+      try {
+        decoded.wireDecode(new Blob(wire.duplicate(), false), TlvWireFormat.get());
+      } catch (EncodingException e) {
+        throw new IllegalStateException("Failed to decode interest: " + name.toUri(), e);
+      }
+      interest = decoded;
+    }
+    return interest;
+  }
+
+  /**
+   * @return the fully decoded data packet, built on the first call; callers must not modify it
+   * @throws IllegalStateException if the packet is not a data packet or its remaining fields fail to decode
+   */
+  public synchronized Data getData() {
+    if (!isData()) {
+      throw new IllegalStateException("Packet is not a data packet");
+    }
+    if (data == null) {
+      Data decoded = new Data();
+      try {
+        decoded.wireDecode(new Blob(wire.duplicate(), false), TlvWireFormat.get());
+      } catch (EncodingException e) {
+        throw new IllegalStateException("Failed to decode data: " + name.toUri(), e);
+      }
+      data = decoded;
+    }
+    return data;
+  }
+
+  /**
+   * @return the packet name; callers must not modify it
+   */
+  public Name getName() {
+    return name;
+  }
+
+  /**
+   * @return the interest nonce, empty if absent or if this is a data packet
+   */
+  public Blob getNonce() {
+    return nonce;
+  }
+
+  /**
+   * @return the interest lifetime in milliseconds, negative if absent or if this is a data packet
+   */
+  public double getInterestLifetime() {
+    return interestLifetime;
+  }
+
+  /**
+   * @return the interest CanBePrefix field; false for data packets
+   */
+  public boolean getCanBePrefix() {
+    return canBePrefix;
+  }
+
+  /**
+   * @return the interest MustBeFresh field; false for data packets
+   */
+  public boolean getMustBeFresh() {
+    return mustBeFresh;
+  }
+
+  /**
+   * @return the data FreshnessPeriod in milliseconds, negative if absent or if this is an interest
+   */
+  public double getFreshnessPeriod() {
+    return freshnessPeriod;
+  }
+
+  private void decodeInterestFields(Reader reader, int end) throws EncodingException {
+    name = reader.readName();
+    boolean v03 = false;
+    boolean v03CanBePrefix = false;
+    long maxSuffixComponents = -1;
+    while (reader.position < end) {
+      int fieldType = (int) reader.readVarNumber();
+      int fieldEnd = reader.readLength(end);
+      switch (fieldType) {
+        case Tlv.Selectors:
+          while (reader.position < fieldEnd) {
+            int selectorType = (int) reader.readVarNumber();
+            int selectorEnd = reader.readLength(fieldEnd);
+            if (selectorType == Tlv.MustBeFresh) {
+              mustBeFresh = true;
+            } else if (selectorType == Tlv.MaxSuffixComponents) {
+              maxSuffixComponents = reader.readNonNegativeInteger(selectorEnd);
+            }
+            reader.position = selectorEnd;
+          }
+          break;
+        case Tlv.CanBePrefix:
+          v03 = true;
+          v03CanBePrefix = true;
+          break;
+        case Tlv.MustBeFresh:
+          v03 = true;
+          mustBeFresh = true;
+          break;
+        case Tlv.HopLimit:
+        case Tlv.ApplicationParameters:
+          v03 = true;
+          break;
+        case Tlv.Nonce:
+          nonce = new Blob(reader.slice(fieldEnd), false);
+          break;
+        case Tlv.InterestLifetime:
+          interestLifetime = reader.readNonNegativeInteger(fieldEnd);
+          break;
+        default:
+          break;
+      }
+      reader.position = fieldEnd;
+    }
+    canBePrefix = v03 ? v03CanBePrefix : maxSuffixComponents != 1;
+  }
+
+  private void decodeDataFields(Reader reader, int end) throws EncodingException {
+    name = reader.readName();
+    while (reader.position < end) {
+      int fieldType = (int) reader.readVarNumber();
+      int fieldEnd = reader.readLength(end);
+      if (fieldType == Tlv.MetaInfo) {
+        while (reader.position < fieldEnd) {
+          int metaType = (int) reader.readVarNumber();
+          int metaEnd = reader.readLength(fieldEnd);
+          if (metaType == Tlv.FreshnessPeriod) {
+            freshnessPeriod = reader.readNonNegativeInteger(metaEnd);
+          }
+          reader.position = metaEnd;
+        }
+        return; // nothing after MetaInfo is needed for forwarding
+      }
+      reader.position = fieldEnd;
+    }
+  }
+
+  /**
+   * Minimal TLV reader over absolute buffer positions; unlike jndn's decoder it never copies values.
+   */
+  private static final class Reader {
+    private final ByteBuffer buffer;
+    private int position;
+
+    Reader(ByteBuffer buffer) {
+      this.buffer = buffer;
+      this.position = buffer.position();
+    }
+
+    long readVarNumber() throws EncodingException {
+      int first = readByte(buffer.limit());
+      switch (first) {
+        case 253:
+          return readUnsigned(2, buffer.limit());
+        case 254:
+          return readUnsigned(4, buffer.limit());
+        case 255:
+          return readUnsigned(8, buffer.limit());
+        default:
+          return first;
+      }
+    }
+
+    /**
+     * @param end the end of the enclosing TLV
+     * @return the end of the value whose length was just read
+     */
+    int readLength(int end) throws EncodingException {
+      long length = readVarNumber();
+      if (length < 0 || length > end - position) {
+        throw new EncodingException("TLV length exceeds the enclosing TLV");
+      }
+      return position + (int) length;
+    }
+
+    long readNonNegativeInteger(int end) throws EncodingException {
+      int length = end - position;
+      if (length != 1 && length != 2 && length != 4 && length != 8) {
+        throw new EncodingException("Invalid non-negative integer length: " + length);
+      }
+      return readUnsigned(length, end);
+    }
+
+    ByteBuffer slice(int end) {
+      ByteBuffer slice = buffer.duplicate();
+      slice.limit(end);
+      slice.position(position);
+      return slice;
+    }
+
+    Name readName() throws EncodingException {
+      int start = position;
+      if (readVarNumber() != Tlv.Name) {
+        throw new EncodingException("Expected a name as the first packet field");
+      }
+      int end = readLength(buffer.limit());
+      position = start;
+      Name name = new Name();
+      name.wireDecode(new Blob(slice(end), false));
+      position = end;
+      return name;
+    }
+
+    private int readByte(int end) throws EncodingException {
+      if (position >= end) {
+        throw new EncodingException("Unexpected end of TLV");
+      }
+      return buffer.get(position++) & 0xFF;
+    }
+
+    private long readUnsigned(int length, int end) throws EncodingException {
+      long value = 0;
+      for (int i = 0; i < length; i++) {
+        value = (value << 8) | readByte(end);
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factories for the per-face execution mode of {@link MockEventLoop}. This is the Java 21 version, selected
+ * from the multi-release JAR, creating virtual threads so that a face parked waiting for packets costs no platform
+ * thread. Must keep the same signatures as the Java 8 version in {@code src/main/java}.
+ */
+final class ThreadFactories {
+  private ThreadFactories() {
+    // do not allow instances of this class
+  }
+
+  /**
+   * @return true if {@link #perFace(String)} creates virtual threads
+   */
+  static boolean isVirtual() {
+    return true;
+  }
+
+  /**
+   * @param name the prefix of the thread names
+   * @return a factory for threads each running the events of a single face
+   */
+  static ThreadFactory perFace(final String name) {
+    return Thread.ofVirtual().name(name + "-", 0).factory();
+  }
+}
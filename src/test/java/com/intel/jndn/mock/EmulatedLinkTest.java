@@ -0,0 +1,182 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test link emulation on a manual clock.
+ */
+public class EmulatedLinkTest {
+  private ManualClock clock;
+  private WheelScheduler scheduler;
+  private List<Integer> received;
+  private EmulatedLink.Receiver receiver;
+
+  @Before
+  public void setup() {
+    clock = new ManualClock();
+    scheduler = new WheelScheduler(clock, TimeUnit.MICROSECONDS.toNanos(100), 1024);
+    received = new ArrayList<>();
+    receiver = new EmulatedLink.Receiver() {
+      @Override
+      public void receive(ByteBuffer block) {
+        received.add((int) block.get(block.position()));
+      }
+    };
+  }
+
+  @Test
+  public void testPerfectLinkDeliversImmediately() {
+    EmulatedLink link = new EmulatedLink(new EmulatedLink.Options().setScheduler(scheduler));
+    link.send(packet(1, 100), receiver);
+    assertEquals(1, received.size());
+    assertEquals(0, scheduler.size());
+  }
+
+  @Test
+  public void testDelay() {
+    EmulatedLink link = new EmulatedLink(new EmulatedLink.Options().setScheduler(scheduler)
+        .setDelay(10, TimeUnit.MILLISECONDS));
+    link.send(packet(1, 100), receiver);
+
+    advance(9);
+    assertTrue(received.isEmpty());
+    advance(1);
+    assertEquals(1, received.size());
+  }
+
+  @Test
+  public void testBandwidthSerializesPackets() {
+    // 1000 bytes at 8 Mbit/s take 1 ms each
+    EmulatedLink link = new EmulatedLink(new EmulatedLink.Options().setScheduler(scheduler)
+        .setBandwidth(8000000));
+    for (int i = 0; i < 10; i++) {
+      link.send(packet(i, 1000), receiver);
+    }
+    assertEquals(10, link.getQueueLength());
+
+    advance(5);
+    assertEquals(5, received.size());
+    assertEquals(5, link.getQueueLength());
+    advance(5);
+    assertEquals(10, received.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, (int) received.get(i));
+    }
+  }
+
+  @Test
+  public void testDropTail() {
+    EmulatedLink link = new EmulatedLink(new EmulatedLink.Options().setScheduler(scheduler)
+        .setBandwidth(8000000).setQueueLimit(3));
+    for (int i = 0; i < 10; i++) {
+      link.send(packet(i, 1000), receiver);
+    }
+    assertEquals(7, link.getQueueDrops());
+
+    advance(10);
+    assertEquals(3, received.size());
+  }
+
+  @Test
+  public void testRedDropsEarly() {
+    EmulatedLink link = new EmulatedLink(new EmulatedLink.Options().setScheduler(scheduler)
+        .setBandwidth(8000000).setQueueDiscipline(EmulatedLink.QueueDiscipline.RED).setRedParameters(1, 3, 0.5)
+        .setSeed(42L));
+    for (int i = 0; i < 10000; i++) {
+      link.send(packet(i, 1000), receiver);
+    }
+    assertTrue(link.getQueueDrops() > 0);
+    assertTrue(link.getQueueLength() < 10000);
+  }
+
+  @Test
+  public void testSeededLossIsReproducible() {
+    EmulatedLink first = new EmulatedLink(lossy(7L));
+    EmulatedLink second = new EmulatedLink(lossy(7L));
+    for (int i = 0; i < 1000; i++) {
+      first.send(packet(i, 100), receiver);
+      second.send(packet(i, 100), receiver);
+    }
+    assertEquals(first.getLosses(), second.getLosses());
+    assertTrue(first.getLosses() > 400 && first.getLosses() < 600);
+    assertEquals(2000 - 2 * first.getLosses(), received.size());
+  }
+
+  @Test
+  public void testReordering() {
+    EmulatedLink link = new EmulatedLink(new EmulatedLink.Options().setScheduler(scheduler)
+        .setDelay(1, TimeUnit.MILLISECONDS).setReordering(0.2, 5, TimeUnit.MILLISECONDS).setSeed(3L));
+    for (int i = 0; i < 100; i++) {
+      link.send(packet(i, 100), receiver);
+      advance(1);
+    }
+    advance(10);
+
+    assertEquals(100, received.size());
+    assertTrue(link.getReordered() > 0);
+    boolean outOfOrder = false;
+    for (int i = 1; i < received.size(); i++) {
+      outOfOrder |= (received.get(i) & 0xFF) < (received.get(i - 1) & 0xFF);
+    }
+    assertTrue(outOfOrder);
+  }
+
+  @Test
+  public void testMockTransportCrossesLink() throws Exception {
+    MockTransport transport = new MockTransport();
+    transport.setLink(new EmulatedLink(new EmulatedLink.Options().setScheduler(scheduler)
+        .setDelay(10, TimeUnit.MILLISECONDS)));
+    final List<ByteBuffer> arrived = new ArrayList<>();
+    transport.setOnReceiveBlock(new MockTransport.OnReceiveBlockSignal() {
+      @Override
+      public void emit(ByteBuffer buffer) {
+        arrived.add(buffer);
+      }
+    });
+
+    transport.receive(packet(1, 100));
+    assertTrue(arrived.isEmpty());
+    advance(10);
+    assertEquals(1, arrived.size());
+  }
+
+  private void advance(long milliseconds) {
+    for (long i = 0; i < milliseconds; i++) {
+      clock.advance(1);
+      scheduler.runDue();
+    }
+  }
+
+  private EmulatedLink.Options lossy(long seed) {
+    return new EmulatedLink.Options().setScheduler(scheduler).setLossRate(0.5).setSeed(seed);
+  }
+
+  private static ByteBuffer packet(int id, int size) {
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.put(0, (byte) id);
+    return buffer;
+  }
+}
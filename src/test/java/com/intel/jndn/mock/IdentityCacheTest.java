@@ -0,0 +1,70 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Name;
+import net.named_data.jndn.security.KeyChain;
+import net.named_data.jndn.security.KeyType;
+import net.named_data.jndn.security.identity.IdentityManager;
+import net.named_data.jndn.security.identity.MemoryIdentityStorage;
+import net.named_data.jndn.security.identity.MemoryPrivateKeyStorage;
+import net.named_data.jndn.security.policy.SelfVerifyPolicyManager;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the shared identity cache and its keystore file.
+ */
+public class IdentityCacheTest {
+
+  @Test
+  public void testIdentityIsGeneratedOnce() throws Exception {
+    Name name = new Name("/test/cached");
+    KeyChain first = MockKeyChain.configure(name);
+    KeyChain second = MockKeyChain.configure(name);
+    assertEquals(first.getDefaultCertificateName(), second.getDefaultCertificateName());
+  }
+
+  @Test
+  public void testKeyStoreSurvivesReload() throws Exception {
+    File keyStore = File.createTempFile("jndn-mock", ".keystore");
+    assertTrue(keyStore.delete());
+    keyStore.deleteOnExit();
+    Name name = new Name("/test/stored");
+
+    IdentityCache cache = new IdentityCache(keyStore);
+    KeyChain generated = install(cache, name);
+    assertTrue(keyStore.isFile());
+
+    IdentityCache reloaded = new IdentityCache(keyStore);
+    assertEquals(1, reloaded.size());
+    KeyChain loaded = install(reloaded, name);
+    assertEquals(1, reloaded.size());
+    assertEquals(generated.getDefaultCertificateName(), loaded.getDefaultCertificateName());
+  }
+
+  private static KeyChain install(IdentityCache cache, Name name) throws Exception {
+    MemoryIdentityStorage identityStorage = new MemoryIdentityStorage();
+    MemoryPrivateKeyStorage keyStorage = new MemoryPrivateKeyStorage();
+    IdentityManager identityManager = new IdentityManager(identityStorage, keyStorage);
+    cache.install(name, KeyType.EC, identityManager, identityStorage, keyStorage);
+    identityManager.setDefaultIdentity(name);
+    return new KeyChain(identityManager, new SelfVerifyPolicyManager(identityStorage));
+  }
+}
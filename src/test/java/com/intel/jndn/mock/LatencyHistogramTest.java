@@ -0,0 +1,63 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test latency histogram bucketing and percentiles.
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketsAreContiguous() {
+    for (int i = 0; i < 900; i++) {
+      long upper = LatencyHistogram.upperBoundOf(i);
+      assertEquals(i, LatencyHistogram.indexOf(upper));
+      assertEquals(i + 1, LatencyHistogram.indexOf(upper + 1));
+    }
+  }
+
+  @Test
+  public void testPrecision() {
+    for (long value = 1; value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+      long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(value));
+      assertTrue(upper >= value);
+      assertTrue(upper - value <= value / 16);
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500500.0, histogram.getMean(), 0.001);
+    assertEquals(1000000, histogram.getMax());
+    long median = histogram.getPercentile(50);
+    assertTrue(median >= 500000 && median <= 500000 * 17 / 16);
+    assertEquals(1000000, histogram.getPercentile(100));
+
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(99));
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test NDNLPv2 framing, fragmentation and reassembly.
+ */
+public class LinkServiceTest {
+  private static final int MTU = 1500;
+  private ManualClock clock;
+  private LinkService service;
+
+  @Before
+  public void setup() {
+    clock = new ManualClock();
+    service = new LinkService(new LinkService.Options().setMtu(MTU), clock);
+  }
+
+  @Test
+  public void testSmallPacketsPassBare() {
+    ByteBuffer packet = packet(1000);
+    List<ByteBuffer> frames = service.encode(packet);
+
+    assertEquals(1, frames.size());
+    assertEquals(packet, frames.get(0));
+    assertEquals(packet, service.decode(frames.get(0)));
+    assertEquals(0, service.getOverheadBytes());
+  }
+
+  @Test
+  public void testFragmentsLargePackets() {
+    ByteBuffer packet = packet(100000);
+    List<ByteBuffer> frames = service.encode(packet);
+
+    assertEquals(69, frames.size());
+    for (ByteBuffer frame : frames) {
+      assertTrue(frame.remaining() <= MTU);
+    }
+    for (int i = 0; i < frames.size() - 1; i++) {
+      assertNull(service.decode(frames.get(i)));
+    }
+    assertEquals(packet, service.decode(frames.get(frames.size() - 1)));
+    assertEquals(1, service.getFragmentedPackets());
+    assertEquals(1, service.getReassembledPackets());
+    assertEquals(0, service.getReassemblyBytes());
+    assertTrue(service.getOverheadBytes() < frames.size() * 32);
+  }
+
+  @Test
+  public void testReassemblesOutOfOrderFragments() {
+    ByteBuffer packet = packet(10000);
+    List<ByteBuffer> frames = service.encode(packet);
+    Collections.shuffle(frames, new Random(1));
+
+    ByteBuffer reassembled = null;
+    for (ByteBuffer frame : frames) {
+      assertNull(reassembled);
+      reassembled = service.decode(frame);
+    }
+    assertEquals(packet, reassembled);
+  }
+
+  @Test
+  public void testIncompletePacketsTimeOut() {
+    List<ByteBuffer> frames = service.encode(packet(10000));
+    service.decode(frames.get(0));
+    assertEquals(1, service.getPartialPackets());
+    assertTrue(service.getReassemblyBytes() > 0);
+
+    clock.advance(501);
+    assertEquals(0, service.getPartialPackets());
+    assertEquals(0, service.getReassemblyBytes());
+    assertEquals(1, service.getReassemblyDrops());
+    assertNull(service.decode(frames.get(1)));
+  }
+
+  @Test
+  public void testReassemblyBuffersAreBounded() {
+    service = new LinkService(new LinkService.Options().setMtu(MTU).setMaxPartialPackets(2)
+        .setMaxReassemblyBytes(5000), clock);
+    List<List<ByteBuffer>> packets = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      packets.add(service.encode(packet(4000)));
+      service.decode(packets.get(i).get(0));
+    }
+    assertEquals(2, service.getPartialPackets());
+    assertEquals(1, service.getReassemblyDrops());
+
+    service.decode(packets.get(2).get(1));
+    assertEquals(2, service.getPartialPackets());
+    assertTrue(service.getReassemblyBytes() <= 5000);
+
+    assertNull(service.decode(service.encode(packet(6000)).get(0)));
+    assertTrue(service.getReassemblyBytes() <= 5000);
+  }
+
+  @Test
+  public void testNackIsPassedToNetworkLayer() throws Exception {
+    ByteBuffer interest = packet(100);
+    List<ByteBuffer> frames = service.encode(interest, 150, false);
+    assertEquals(1, frames.size());
+
+    ByteBuffer received = service.decode(frames.get(0));
+    LpFrame frame = LpFrame.decode(received);
+    assertEquals(150, frame.nackReason);
+    assertEquals(interest, frame.fragment);
+    assertEquals(false, frame.hasSequence);
+  }
+
+  @Test
+  public void testCongestionMarkSurvivesFragmentation() throws Exception {
+    ByteBuffer data = packet(10000);
+    ByteBuffer received = null;
+    for (ByteBuffer frame : service.encode(data, LinkService.NO_NACK, true)) {
+      received = service.decode(frame);
+    }
+
+    assertNotNull(received);
+    LpFrame frame = LpFrame.decode(received);
+    assertEquals(1, frame.congestionMark);
+    assertEquals(LinkService.NO_NACK, frame.nackReason);
+    assertEquals(data, frame.fragment);
+    assertEquals(1, service.getCongestionMarks());
+  }
+
+  @Test
+  public void testLossDetection() {
+    service = new LinkService(new LinkService.Options().setLossDetection(true), clock);
+    List<ByteBuffer> frames = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      frames.addAll(service.encode(packet(100)));
+    }
+
+    for (int i = 0; i < frames.size(); i++) {
+      if (i != 3 && i != 4 && i != 7) {
+        assertEquals(packet(100), service.decode(frames.get(i)));
+      }
+    }
+    assertEquals(3, service.getLostFrames());
+
+    service.decode(frames.get(7));
+    assertEquals(2, service.getLostFrames());
+  }
+
+  @Test
+  public void testMalformedFramesAreDropped() {
+    ByteBuffer frame = service.encode(packet(100), 150, false).get(0);
+    frame.limit(frame.limit() - 1);
+
+    assertNull(service.decode(frame));
+    assertEquals(1, service.getDecodeErrors());
+  }
+
+  @Test
+  public void testFrameWithoutFragmentIsIgnored() {
+    LpFrame idle = new LpFrame();
+    idle.hasSequence = true;
+    idle.fragment = ByteBuffer.allocate(0);
+
+    assertNull(service.decode(idle.encode()));
+    assertNull(service.receive(idle.encode()));
+    assertEquals(0, service.getDecodeErrors());
+  }
+
+  @Test
+  public void testReceivedPacketKeepsItsHeaders() {
+    ByteBuffer packet = packet(100);
+    LinkService.Packet received = service.receive(service.encode(packet, 150, true).get(0));
+
+    assertEquals(packet, received.getPacket());
+    assertTrue(received.isNack());
+    assertEquals(150, received.getNackReason());
+    assertEquals(1, received.getCongestionMark());
+  }
+
+  @Test
+  public void testNegativeFieldLengthIsMalformed() {
+    byte[] frame = {(byte) 100, (byte) 0xff, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0x00};
+
+    assertNull(service.decode(ByteBuffer.wrap(frame)));
+    assertEquals(1, service.getDecodeErrors());
+  }
+
+  @Test
+  public void testFragmentCountIsBounded() {
+    LpFrame frame = new LpFrame();
+    frame.hasSequence = true;
+    frame.fragIndex = 0;
+    frame.fragCount = Integer.MAX_VALUE;
+    frame.fragment = packet(100);
+
+    assertNull(service.decode(frame.encode()));
+    assertEquals(1, service.getDecodeErrors());
+    assertEquals(0, service.getPartialPackets());
+  }
+
+  @Test
+  public void testTransportFragmentsOverLinkWithMtu() {
+    MockTransport transport = new MockTransport();
+    EmulatedLink link = new EmulatedLink(new EmulatedLink.Options().setMtu(MTU));
+    transport.setLink(link);
+    transport.setLinkService(new LinkService(new LinkService.Options().setMtu(MTU)));
+    final List<ByteBuffer> received = new ArrayList<>();
+    transport.setOnReceiveBlock(new MockTransport.OnReceiveBlockSignal() {
+      @Override
+      public void emit(ByteBuffer buffer) {
+        received.add(buffer);
+      }
+    });
+
+    ByteBuffer data = packet(50000);
+    transport.receive(data);
+
+    assertEquals(1, received.size());
+    assertEquals(data, received.get(0));
+    assertEquals(0, link.getOversized());
+    assertEquals(34, link.getOffered());
+  }
+
+  @Test
+  public void testLinkDropsOversizedPackets() {
+    EmulatedLink link = new EmulatedLink(new EmulatedLink.Options().setMtu(MTU));
+    final List<ByteBuffer> received = new ArrayList<>();
+    EmulatedLink.Receiver receiver = new EmulatedLink.Receiver() {
+      @Override
+      public void receive(ByteBuffer block) {
+        received.add(block);
+      }
+    };
+
+    link.send(packet(MTU), receiver);
+    link.send(packet(MTU + 1), receiver);
+
+    assertEquals(1, received.size());
+    assertEquals(1, link.getOversized());
+  }
+
+  @Test
+  public void testReassemblyTimeoutIsConfigurable() {
+    service = new LinkService(new LinkService.Options().setMtu(MTU).setReassemblyTimeout(2, TimeUnit.SECONDS), clock);
+    service.decode(service.encode(packet(10000)).get(0));
+
+    clock.advance(1000);
+    assertEquals(1, service.getPartialPackets());
+    clock.advance(1001);
+    assertEquals(0, service.getPartialPackets());
+    assertEquals(0, service.getReassemblyBytes());
+  }
+
+  /**
+   * @return a packet of the given size, starting like a data packet so it is not taken for an LpPacket
+   */
+  private static ByteBuffer packet(int size) {
+    byte[] bytes = new byte[size];
+    new Random(size).nextBytes(bytes);
+    bytes[0] = 6;
+    return ByteBuffer.wrap(bytes);
+  }
+}
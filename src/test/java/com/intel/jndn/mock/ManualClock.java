@@ -0,0 +1,36 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock that only moves when told to; use for testing time-dependent behavior.
+ */
+public class ManualClock implements Clock {
+  private long now = 0;
+
+  /**
+   * @param milliseconds the amount of time to move forward
+   */
+  public void advance(long milliseconds) {
+    now += TimeUnit.MILLISECONDS.toNanos(milliseconds);
+  }
+
+  @Override
+  public long nanoTime() {
+    return now;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.OnRegisterFailed;
+import net.named_data.jndn.OnRegisterSuccess;
+import net.named_data.jndn.OnTimeout;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test event-loop driven faces.
+ */
+public class MockEventLoopTest {
+  private MockEventLoop loop;
+
+  @After
+  public void teardown() {
+    if (loop != null) {
+      loop.close();
+    }
+  }
+
+  @Test
+  public void testTransportSignalsOncePerDrain() throws Exception {
+    final AtomicInteger signals = new AtomicInteger();
+    MockTransport transport = new MockTransport();
+    transport.connect(null, null, null);
+    assertFalse(transport.isAsync());
+    transport.setOnReady(new MockTransport.OnReadySignal() {
+      @Override
+      public void ready(MockTransport t) {
+        signals.incrementAndGet();
+      }
+    });
+    assertTrue(transport.isAsync());
+
+    transport.receive(ByteBuffer.allocate(1));
+    transport.receive(ByteBuffer.allocate(1));
+    assertEquals(1, signals.get());
+
+    transport.processEvents();
+    transport.receive(ByteBuffer.allocate(1));
+    assertEquals(2, signals.get());
+  }
+
+  @Test
+  public void testForwarderWithoutPolling() throws Exception {
+    loop = new MockEventLoop();
+    assertRoundTrip(loop);
+  }
+
+  @Test
+  public void testForwarderWithThreadPerFace() throws Exception {
+    loop = MockEventLoop.threadPerFace();
+    assertRoundTrip(loop);
+    assertTrue(loop.size() >= 3);
+  }
+
+  private static void assertRoundTrip(MockEventLoop loop) throws Exception {
+    MockForwarder forwarder = new MockForwarder(new MockForwarder.Options().setEventLoop(loop));
+    Face producer = forwarder.connect();
+    Face consumer = forwarder.connect();
+    Name prefix = new Name("/test");
+
+    final CountDownLatch registered = new CountDownLatch(1);
+    producer.registerPrefix(prefix, new OnInterestCallback() {
+      @Override
+      public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId, InterestFilter filter) {
+        try {
+          face.putData(new Data(interest.getName()));
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }, new OnRegisterFailed() {
+      @Override
+      public void onRegisterFailed(Name prefix) {
+      }
+    }, new OnRegisterSuccess() {
+      @Override
+      public void onRegisterSuccess(Name prefix, long registeredPrefixId) {
+        registered.countDown();
+      }
+    });
+    assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+    final CountDownLatch received = new CountDownLatch(1);
+    consumer.expressInterest(new Name(prefix).append("a"), new OnData() {
+      @Override
+      public void onData(Interest interest, Data data) {
+        received.countDown();
+      }
+    }, new OnTimeout() {
+      @Override
+      public void onTimeout(Interest interest) {
+      }
+    });
+    assertTrue(received.await(5, TimeUnit.SECONDS));
+  }
+}
@@ -18,18 +18,24 @@ import net.named_data.jndn.Face;
 import net.named_data.jndn.Interest;
 import net.named_data.jndn.InterestFilter;
 import net.named_data.jndn.Name;
+import net.named_data.jndn.NetworkNack;
 import net.named_data.jndn.OnData;
 import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.OnNetworkNack;
 import net.named_data.jndn.OnRegisterFailed;
 import net.named_data.jndn.OnRegisterSuccess;
 import net.named_data.jndn.OnTimeout;
 import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.WireFormat;
 import net.named_data.jndn.security.SecurityException;
 import net.named_data.jndn.util.Blob;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import static org.junit.Assert.assertEquals;
@@ -109,6 +115,101 @@ public class MockFaceTest {
     assertEquals(isTimeout, true);
   }
 
+  @Test
+  public void testInterestTimeoutsOnVirtualTime() throws IOException, EncodingException {
+    VirtualScheduler scheduler = new VirtualScheduler();
+    face = new MockFace(new MockFace.Options().setScheduler(scheduler));
+    expressInterest("/some/name");
+
+    scheduler.runFor(999, TimeUnit.MILLISECONDS);
+    assertFalse(isTimeout);
+
+    scheduler.runFor(1, TimeUnit.MILLISECONDS);
+    assertTrue(isTimeout);
+    assertEquals(1, counter);
+  }
+
+  @Test
+  public void testDataBeforeVirtualTimeout() throws IOException, EncodingException {
+    VirtualScheduler scheduler = new VirtualScheduler();
+    face = new MockFace(new MockFace.Options().setScheduler(scheduler));
+    expressInterest("/test/with/responses");
+    scheduler.runFor(500, TimeUnit.MILLISECONDS);
+
+    face.receive(new Data(new Name("/test/with/responses")));
+    scheduler.runFor(1, TimeUnit.HOURS);
+
+    assertNotNull(recvData);
+    assertFalse(isTimeout);
+    assertEquals(1, counter);
+  }
+
+  @Test
+  public void testReceivingABatchOfPackets() throws IOException, EncodingException, InterruptedException {
+    List<Data> batch = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      expressInterest("/test/batch/" + i);
+      batch.add(new Data(new Name("/test/batch/" + i)));
+    }
+
+    face.receive(batch);
+    run(20, 100);
+
+    assertEquals(100, counter);
+    assertFalse(isTimeout);
+    assertEquals("/test/batch/99", recvData.getName().toString());
+  }
+
+  @Test
+  public void testLargeDataIsFragmentedAndReassembled() throws IOException, EncodingException, InterruptedException {
+    LinkService linkService = new LinkService(new LinkService.Options().setMtu(1500));
+    face = new MockFace(new MockFace.Options().setLinkService(linkService));
+    expressInterest("/test/large");
+
+    Data response = new Data(new Name("/test/large"));
+    response.setContent(new Blob(new byte[10000]));
+    face.receive(response);
+
+    run(20);
+
+    assertNotNull(recvData);
+    assertEquals(10000, recvData.getContent().size());
+    assertEquals(1, linkService.getFragmentedPackets());
+    assertTrue(linkService.getFramesSent() > 1);
+  }
+
+  @Test
+  public void testReceivingNetworkNack() throws IOException, EncodingException, InterruptedException {
+    final NetworkNack[] received = new NetworkNack[1];
+    face.expressInterest(new Interest(new Name("/test/nack")).setInterestLifetimeMilliseconds(1000), new OnData() {
+      @Override
+      public void onData(final Interest interest, final Data data) {
+        counter++;
+      }
+    }, new OnTimeout() {
+      @Override
+      public void onTimeout(final Interest interest) {
+        counter++;
+        isTimeout = true;
+      }
+    }, new OnNetworkNack() {
+      @Override
+      public void onNetworkNack(final Interest interest, final NetworkNack networkNack) {
+        counter++;
+        received[0] = networkNack;
+      }
+    }, WireFormat.getDefaultWireFormat());
+
+    NetworkNack nack = new NetworkNack();
+    nack.setReason(NetworkNack.Reason.NO_ROUTE);
+    face.receive(face.getSentInterests().get(0), nack);
+    run(20);
+
+    assertNotNull(received[0]);
+    assertEquals(NetworkNack.Reason.NO_ROUTE, received[0].getReason());
+    assertFalse(isTimeout);
+  }
+
   @Test
   public void testPrefixRegistration() throws IOException, SecurityException, EncodingException, InterruptedException {
     class State {
@@ -14,6 +14,7 @@
 
 package com.intel.jndn.mock;
 
+import com.intel.jndn.mock.forwarder.ForwardingCounters;
 import net.named_data.jndn.Data;
 import net.named_data.jndn.Face;
 import net.named_data.jndn.Interest;
@@ -26,13 +27,20 @@ import net.named_data.jndn.OnRegisterSuccess;
 import net.named_data.jndn.OnTimeout;
 import org.junit.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -102,5 +110,359 @@ public class MockForwarderTest {
 
     response2.await(1, TimeUnit.SECONDS);
     assertTrue(received.get());
+
+    FaceMetrics metrics = ((MeasurableFace) b).metrics();
+    assertEquals(1, metrics.getInterestsSent());
+    assertEquals(1, metrics.getDataReceived());
+    assertTrue(metrics.getDataBytesReceived() > 0);
+    assertEquals(1, metrics.getRoundTripTimes().getCount());
+    assertTrue(((MeasurableFace) b).sentInterests().isEmpty());
+  }
+
+  @Test
+  public void measurableFaceDerivesMetricsFromHistories() {
+    final Collection<Interest> interests = Collections.singletonList(new Interest(new Name("/test/a")));
+    final Collection<Data> datas = Collections.singletonList(new Data(new Name("/test/a")));
+    MeasurableFace face = new MeasurableFace() {
+      @Override
+      public Collection<Interest> sentInterests() {
+        return interests;
+      }
+
+      @Override
+      public Collection<Data> sentDatas() {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public Collection<Interest> receivedInterests() {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public Collection<Data> receivedDatas() {
+        return datas;
+      }
+    };
+
+    FaceMetrics metrics = face.metrics();
+    assertEquals(1, metrics.getInterestsSent());
+    assertEquals(0, metrics.getDataSent());
+    assertEquals(1, metrics.getDataReceived());
+    assertEquals(0, metrics.getRoundTripTimes().getCount());
+  }
+
+  @Test
+  public void pumpServesOnlyReadyFaces() throws Exception {
+    Name prefix = new Name("/test");
+    MockForwarder forwarder = new MockForwarder();
+    for (int i = 0; i < 100; i++) {
+      forwarder.connect();
+    }
+    Face a = forwarder.connect();
+    Face b = forwarder.connect();
+
+    final AtomicBoolean registered = new AtomicBoolean(false);
+    a.registerPrefix(prefix, new OnInterestCallback() {
+      @Override
+      public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId, InterestFilter filter) {
+        try {
+          face.putData(new Data(interest.getName()));
+        } catch (IOException e) {
+          LOGGER.info("Failed to send data for: " + interest.toUri());
+        }
+      }
+    }, new OnRegisterFailed() {
+      @Override
+      public void onRegisterFailed(Name prefix) {
+        LOGGER.severe("Failed to register prefix for: " + prefix);
+      }
+    }, new OnRegisterSuccess() {
+      @Override
+      public void onRegisterSuccess(Name prefix, long registeredPrefixId) {
+        registered.set(true);
+      }
+    });
+    assertTrue(forwarder.processEvents() <= 2);
+    assertTrue(registered.get());
+
+    final AtomicBoolean received = new AtomicBoolean(false);
+    b.expressInterest(prefix, new OnData() {
+      @Override
+      public void onData(Interest interest, Data data) {
+        received.set(true);
+      }
+    }, new OnTimeout() {
+      @Override
+      public void onTimeout(Interest interest) {
+        LOGGER.info("Failed to receive data for interest: " + interest.toUri());
+      }
+    });
+    assertEquals(2, forwarder.processEvents());
+    assertTrue(received.get());
+    assertEquals(0, forwarder.processEvents());
+  }
+
+  @Test
+  public void aggregatesIdenticalInterests() throws Exception {
+    Name prefix = new Name("/test");
+    MockForwarder forwarder = new MockForwarder();
+    Face producer = forwarder.connect();
+
+    final AtomicInteger producerHits = new AtomicInteger();
+    producer.registerPrefix(prefix, new OnInterestCallback() {
+      @Override
+      public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId, InterestFilter filter) {
+        producerHits.incrementAndGet();
+        try {
+          face.putData(new Data(interest.getName()));
+        } catch (IOException e) {
+          LOGGER.info("Failed to send data for: " + interest.toUri());
+        }
+      }
+    }, new OnRegisterFailed() {
+      @Override
+      public void onRegisterFailed(Name prefix) {
+        LOGGER.severe("Failed to register prefix for: " + prefix);
+      }
+    });
+    forwarder.processEvents();
+
+    final AtomicInteger received = new AtomicInteger();
+    for (int i = 0; i < 10; i++) {
+      forwarder.connect().expressInterest(new Name(prefix).append("item"), new OnData() {
+        @Override
+        public void onData(Interest interest, Data data) {
+          received.incrementAndGet();
+        }
+      }, new OnTimeout() {
+        @Override
+        public void onTimeout(Interest interest) {
+          LOGGER.info("Failed to receive data for interest: " + interest.toUri());
+        }
+      });
+    }
+    int processed;
+    do {
+      processed = forwarder.processEvents();
+    } while (processed > 0);
+
+    assertEquals(1, producerHits.get());
+    assertEquals(10, received.get());
+  }
+
+  @Test
+  public void countsForwardedPackets() throws Exception {
+    Name prefix = new Name("/test");
+    MockForwarder forwarder = new MockForwarder();
+    Face producer = forwarder.connect();
+    producer.registerPrefix(prefix, new OnInterestCallback() {
+      @Override
+      public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId, InterestFilter filter) {
+        try {
+          face.putData(new Data(interest.getName()));
+        } catch (IOException e) {
+          LOGGER.info("Failed to send data for: " + interest.toUri());
+        }
+      }
+    }, new OnRegisterFailed() {
+      @Override
+      public void onRegisterFailed(Name prefix) {
+        LOGGER.severe("Failed to register prefix for: " + prefix);
+      }
+    });
+    forwarder.processEvents();
+
+    Face consumer = forwarder.connect();
+    for (int i = 0; i < 2; i++) {
+      consumer.expressInterest(new Name(prefix).append("item"), new OnData() {
+        @Override
+        public void onData(Interest interest, Data data) {
+          LOGGER.info("Received data: " + data.getName());
+        }
+      }, new OnTimeout() {
+        @Override
+        public void onTimeout(Interest interest) {
+          LOGGER.info("Failed to receive data for interest: " + interest.toUri());
+        }
+      });
+      int processed;
+      do {
+        processed = forwarder.processEvents();
+      } while (processed > 0);
+    }
+
+    ForwardingCounters counters = forwarder.getStatistics().getPrefix(prefix);
+    assertEquals(2, counters.getInInterests());
+    assertEquals(2, counters.getInData());
+    assertEquals(2, counters.getOutData());
+    assertEquals(2, counters.getSatisfiedInterests());
+    assertEquals(0, counters.getUnsatisfiedInterests());
+
+    int consumerFaces = 0;
+    for (ForwardingCounters face : forwarder.getStatistics().getFaces().values()) {
+      if (face.getInInterests() == 2 && face.getOutData() == 2) {
+        consumerFaces++;
+      }
+    }
+    assertEquals(1, consumerFaces);
+  }
+
+  @Test
+  public void exportsCountersThroughJmx() throws Exception {
+    MockForwarder forwarder = new MockForwarder(new MockForwarder.Options().setJmxName("test"));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName totals = new ObjectName("com.intel.jndn.mock:type=MockForwarder,name=\"test\"");
+    ObjectName face = new ObjectName("com.intel.jndn.mock:type=MockForwarder,name=\"test\",face=1");
+    try {
+      assertTrue(server.isRegistered(totals));
+      assertEquals(0L, server.getAttribute(totals, "InInterests"));
+
+      Face consumer = forwarder.connect();
+      consumer.expressInterest(new Name("/unrouted"), new OnData() {
+        @Override
+        public void onData(Interest interest, Data data) {
+          LOGGER.severe("Received data for unrouted interest: " + data.getName());
+        }
+      }, new OnTimeout() {
+        @Override
+        public void onTimeout(Interest interest) {
+          LOGGER.info("Unrouted interest timed out: " + interest.toUri());
+        }
+      });
+      forwarder.processEvents();
+      assertEquals(1L, server.getAttribute(face, "InInterests"));
+
+      consumer.shutdown();
+      assertFalse(server.isRegistered(face));
+    } finally {
+      forwarder.unregisterMBeans();
+    }
+    assertFalse(server.isRegistered(totals));
+  }
+
+  @Test
+  public void forwardsCongestionMarkedPackets() throws Exception {
+    Name prefix = new Name("/test");
+    VirtualScheduler scheduler = new VirtualScheduler();
+    MockForwarder forwarder = new MockForwarder(new MockForwarder.Options().setScheduler(scheduler)
+        .setSigningMode(MockKeyChain.SigningMode.DIGEST_SHA256)
+        .setLink(new EmulatedLink.Options().setBandwidth(1000000))
+        .setLinkService(new LinkService.Options().setCongestionThreshold(1)));
+    Face producer = forwarder.connect();
+    producer.registerPrefix(prefix, new OnInterestCallback() {
+      @Override
+      public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId, InterestFilter filter) {
+        try {
+          face.putData(new Data(interest.getName()));
+        } catch (IOException e) {
+          LOGGER.info("Failed to send data for: " + interest.toUri());
+        }
+      }
+    }, new OnRegisterFailed() {
+      @Override
+      public void onRegisterFailed(Name prefix) {
+        LOGGER.severe("Failed to register prefix for: " + prefix);
+      }
+    });
+    scheduler.run();
+
+    final AtomicInteger received = new AtomicInteger();
+    Face consumer = forwarder.connect();
+    for (int i = 0; i < 5; i++) {
+      consumer.expressInterest(new Name(prefix).append("item" + i), new OnData() {
+        @Override
+        public void onData(Interest interest, Data data) {
+          received.incrementAndGet();
+        }
+      }, new OnTimeout() {
+        @Override
+        public void onTimeout(Interest interest) {
+          LOGGER.info("Failed to receive data for interest: " + interest.toUri());
+        }
+      });
+    }
+    scheduler.run();
+
+    assertEquals(5, received.get());
+    assertTrue(forwarder.getStatistics().getTotals().getInCongestionMarks() > 0);
+  }
+
+  @Test
+  public void dropsLoopingInterests() throws Exception {
+    Name prefix = new Name("/test");
+    MockForwarder a = new MockForwarder();
+    MockForwarder b = new MockForwarder();
+    MockForwarder c = new MockForwarder();
+    a.addRoute(prefix, a.link(b));
+    b.addRoute(prefix, b.link(c));
+    c.addRoute(prefix, c.link(a));
+
+    a.connect().expressInterest(new Name(prefix).append("item"), new OnData() {
+      @Override
+      public void onData(Interest interest, Data data) {
+        LOGGER.severe("Received data for looping interest: " + data.getName());
+      }
+    }, new OnTimeout() {
+      @Override
+      public void onTimeout(Interest interest) {
+        LOGGER.info("Looping interest timed out: " + interest.toUri());
+      }
+    });
+
+    assertEquals(1, a.getLoopedInterests());
+    assertEquals(0, b.getLoopedInterests());
+    assertEquals(0, c.getLoopedInterests());
+  }
+
+  @Test
+  public void backgroundPump() throws Exception {
+    Name prefix = new Name("/test");
+    MockForwarder forwarder = new MockForwarder();
+    forwarder.start();
+    try {
+      Face a = forwarder.connect();
+      Face b = forwarder.connect();
+
+      final CountDownLatch registered = new CountDownLatch(1);
+      a.registerPrefix(prefix, new OnInterestCallback() {
+        @Override
+        public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId,
+                               InterestFilter filter) {
+          try {
+            face.putData(new Data(interest.getName()));
+          } catch (IOException e) {
+            LOGGER.info("Failed to send data for: " + interest.toUri());
+          }
+        }
+      }, new OnRegisterFailed() {
+        @Override
+        public void onRegisterFailed(Name prefix) {
+          LOGGER.severe("Failed to register prefix for: " + prefix);
+        }
+      }, new OnRegisterSuccess() {
+        @Override
+        public void onRegisterSuccess(Name prefix, long registeredPrefixId) {
+          registered.countDown();
+        }
+      });
+      assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+      final CountDownLatch received = new CountDownLatch(1);
+      b.expressInterest(prefix, new OnData() {
+        @Override
+        public void onData(Interest interest, Data data) {
+          received.countDown();
+        }
+      }, new OnTimeout() {
+        @Override
+        public void onTimeout(Interest interest) {
+          LOGGER.info("Failed to receive data for interest: " + interest.toUri());
+        }
+      });
+      assertTrue(received.await(5, TimeUnit.SECONDS));
+    } finally {
+      forwarder.stop();
+    }
   }
 }
@@ -13,7 +13,10 @@
  */
 package com.intel.jndn.mock;
 
+import net.named_data.jndn.Data;
+import net.named_data.jndn.HmacWithSha256Signature;
 import net.named_data.jndn.Name;
+import net.named_data.jndn.Sha256WithEcdsaSignature;
 import net.named_data.jndn.security.KeyChain;
 import org.junit.Test;
 
@@ -37,4 +40,21 @@ public class MockKeyChainTest {
     assertEquals(identity, keyChain.getDefaultIdentity().toUri());
     assertTrue(keyChain.getDefaultCertificateName().toUri().startsWith(identity));
   }
+
+  @Test
+  public void testEcdsaSigning() throws Exception {
+    KeyChain keyChain = MockKeyChain.configure(new Name("/test/ecdsa"), MockKeyChain.SigningMode.ECDSA);
+    Data data = new Data(new Name("/test/ecdsa/data"));
+    MockKeyChain.sign(keyChain, data, MockKeyChain.SigningMode.ECDSA);
+    assertTrue(data.getSignature() instanceof Sha256WithEcdsaSignature);
+  }
+
+  @Test
+  public void testHmacSigning() throws Exception {
+    KeyChain keyChain = MockKeyChain.configure(new Name("/test/hmac"), MockKeyChain.SigningMode.HMAC);
+    Data data = new Data(new Name("/test/hmac/data"));
+    MockKeyChain.sign(keyChain, data, MockKeyChain.SigningMode.HMAC);
+    assertTrue(data.getSignature() instanceof HmacWithSha256Signature);
+    assertTrue(KeyChain.verifyDataWithHmacWithSha256(data, MockKeyChain.getHmacKey()));
+  }
 }
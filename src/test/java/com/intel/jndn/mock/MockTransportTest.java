@@ -0,0 +1,129 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import net.named_data.jndn.encoding.EncodingException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test receiving batches of encoded elements on a MockTransport.
+ */
+public class MockTransportTest {
+  private MockTransport transport;
+  private List<ByteBuffer> received;
+
+  @Before
+  public void setup() {
+    transport = new MockTransport();
+    received = new ArrayList<>();
+  }
+
+  @Test
+  public void testObservedElementsAreReceivedOneByOne() throws EncodingException {
+    observe();
+    ByteBuffer first = element(6, 10);
+    ByteBuffer second = element(5, 300);
+    ByteBuffer third = element(6, 70000);
+
+    transport.receiveElements(concat(first, second, third));
+
+    assertEquals(3, received.size());
+    assertEquals(first, received.get(0));
+    assertEquals(second, received.get(1));
+    assertEquals(third, received.get(2));
+  }
+
+  @Test
+  public void testElementsCrossLinkServiceOneByOne() throws EncodingException {
+    LinkService service = new LinkService(new LinkService.Options().setMtu(1500));
+    transport.setLinkService(service);
+    observe();
+
+    transport.receiveElements(concat(element(6, 100), element(6, 5000)));
+
+    assertEquals(2, received.size());
+    assertEquals(1, service.getFragmentedPackets());
+    assertEquals(1, service.getReassembledPackets());
+  }
+
+  @Test
+  public void testBufferIsNotModified() throws EncodingException {
+    ByteBuffer elements = concat(element(6, 10), element(5, 20));
+    int position = elements.position();
+
+    transport.receiveElements(elements);
+
+    assertEquals(position, elements.position());
+  }
+
+  @Test(expected = EncodingException.class)
+  public void testTruncatedElementIsRejected() throws EncodingException {
+    ByteBuffer elements = concat(element(6, 10), element(5, 20));
+    elements.limit(elements.limit() - 1);
+    transport.receiveElements(elements);
+  }
+
+  @Test(expected = EncodingException.class)
+  public void testTruncatedHeaderIsRejected() throws EncodingException {
+    ByteBuffer elements = concat(element(6, 10), ByteBuffer.wrap(new byte[]{6, (byte) 253, 1}));
+    transport.receiveElements(elements);
+  }
+
+  private void observe() {
+    transport.setOnReceiveBlock(new MockTransport.OnReceiveBlockSignal() {
+      @Override
+      public void emit(ByteBuffer buffer) {
+        received.add(buffer);
+      }
+    });
+  }
+
+  private static ByteBuffer element(int type, int length) {
+    ByteBuffer element = ByteBuffer.allocate(length + 6);
+    element.put((byte) type);
+    if (length < 253) {
+      element.put((byte) length);
+    } else if (length <= 0xffff) {
+      element.put((byte) 253).putShort((short) length);
+    } else {
+      element.put((byte) 254).putInt(length);
+    }
+    for (int i = 0; i < length; i++) {
+      element.put((byte) i);
+    }
+    element.flip();
+    return element;
+  }
+
+  private static ByteBuffer concat(ByteBuffer... elements) {
+    int size = 0;
+    for (ByteBuffer element : elements) {
+      size += element.remaining();
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    for (ByteBuffer element : elements) {
+      buffer.put(element.duplicate());
+    }
+    buffer.flip();
+    return buffer;
+  }
+}
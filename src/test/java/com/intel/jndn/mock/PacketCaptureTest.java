@@ -0,0 +1,86 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test bounded and sampled packet capture.
+ */
+public class PacketCaptureTest {
+
+  @Test
+  public void testUnboundedCaptureKeepsEverything() {
+    PacketCapture<Integer> capture = new PacketCapture<>();
+    for (int i = 0; i < 100; i++) {
+      capture.add(i);
+    }
+
+    assertEquals(100, capture.size());
+    assertEquals(0, (int) capture.get(0));
+    assertEquals(99, (int) capture.get(99));
+  }
+
+  @Test
+  public void testRingOverwritesOldest() {
+    PacketCapture<Integer> capture = new PacketCapture<>(3, 1);
+    for (int i = 0; i < 5; i++) {
+      capture.add(i);
+    }
+
+    assertEquals(Arrays.asList(2, 3, 4), capture.snapshot());
+    assertEquals(2, capture.getOverwritten());
+  }
+
+  @Test
+  public void testSampling() {
+    PacketCapture<Integer> capture = new PacketCapture<>(0, 10);
+    for (int i = 0; i < 100; i++) {
+      capture.add(i);
+    }
+
+    assertEquals(10, capture.size());
+    assertEquals(100, capture.getOffered());
+    assertEquals(90, (int) capture.get(9));
+  }
+
+  @Test
+  public void testSnapshotIsIndependent() {
+    PacketCapture<Integer> capture = new PacketCapture<>(2, 1);
+    capture.add(1);
+    List<Integer> snapshot = capture.snapshot();
+    capture.add(2);
+    capture.clear();
+
+    assertEquals(Arrays.asList(1), snapshot);
+    assertTrue(capture.isEmpty());
+  }
+
+  @Test
+  public void testRemoveFromWrappedRing() {
+    PacketCapture<Integer> capture = new PacketCapture<>(3, 1);
+    for (int i = 0; i < 4; i++) {
+      capture.add(i);
+    }
+    assertEquals(2, (int) capture.remove(1));
+    assertEquals(Arrays.asList(1, 3), capture.snapshot());
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test ReceiveQueue ordering and concurrent use.
+ */
+public class ReceiveQueueTest {
+
+  @Test
+  public void testArrivalOrder() {
+    ReceiveQueue queue = new ReceiveQueue();
+    assertTrue(queue.isEmpty());
+    queue.offer(block(1));
+    queue.offer(block(2));
+
+    assertEquals(1, queue.poll().getInt(0));
+    queue.offer(block(3));
+    assertEquals(2, queue.poll().getInt(0));
+    assertEquals(3, queue.poll().getInt(0));
+    assertNull(queue.poll());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void testConcurrentProducers() throws InterruptedException {
+    final ReceiveQueue queue = new ReceiveQueue();
+    final int producers = 4;
+    final int blocks = 10000;
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < producers; i++) {
+      final int producer = i;
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < blocks; j++) {
+            queue.offer(block(producer * blocks + j));
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+
+    int[] last = new int[producers];
+    for (int i = 0; i < producers; i++) {
+      last[i] = i * blocks - 1;
+    }
+    int received = 0;
+    while (received < producers * blocks) {
+      ByteBuffer block = queue.poll();
+      if (block != null) {
+        int value = block.getInt(0);
+        int producer = value / blocks;
+        assertTrue("Blocks from one producer must stay in order", value > last[producer]);
+        last[producer] = value;
+        received++;
+      }
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(queue.poll());
+  }
+
+  private static ByteBuffer block(int value) {
+    ByteBuffer buffer = ByteBuffer.allocate(4);
+    buffer.putInt(0, value);
+    return buffer;
+  }
+}
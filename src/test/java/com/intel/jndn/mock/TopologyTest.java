@@ -0,0 +1,160 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import com.intel.jndn.mock.forwarder.BestRouteStrategy;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.OnRegisterFailed;
+import net.named_data.jndn.OnTimeout;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test multi-forwarder topologies.
+ */
+public class TopologyTest {
+
+  @Test
+  public void testShapes() {
+    assertEquals(4, Topology.line(5).hops(0, 4));
+    assertEquals(7, Topology.tree(2, 2).size());
+    assertEquals(4, Topology.tree(2, 2).hops(3, 6));
+    assertEquals(4, Topology.grid(3, 3).hops(0, 8));
+  }
+
+  @Test
+  public void testEdgeListRoutesAroundExpensiveLinks() throws IOException {
+    Topology topology = Topology.fromEdgeList(new StringReader(
+        "# a triangle with one slow side\n"
+            + "a b 10\n"
+            + "a c\n"
+            + "c b 2\n"));
+    assertEquals(3, topology.size());
+    assertEquals(2, topology.hops(topology.indexOf("a"), topology.indexOf("b")));
+    assertEquals(2, topology.route(new Name("/b"), topology.indexOf("b")));
+  }
+
+  @Test
+  public void testMultiHopRetrieval() throws Exception {
+    VirtualScheduler scheduler = new VirtualScheduler();
+    Topology topology = Topology.line(5, new MockForwarder.Options().setScheduler(scheduler), null);
+    Name prefix = new Name("/producer");
+
+    Face producer = topology.get(4).connect();
+    producer.registerPrefix(prefix, new OnInterestCallback() {
+      @Override
+      public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId, InterestFilter filter) {
+        try {
+          face.putData(new Data(interest.getName()));
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }, new OnRegisterFailed() {
+      @Override
+      public void onRegisterFailed(Name prefix) {
+        throw new IllegalStateException("Failed to register " + prefix);
+      }
+    });
+    scheduler.run();
+    assertEquals(4, topology.route(prefix, 4));
+
+    final AtomicBoolean received = new AtomicBoolean(false);
+    Face consumer = topology.get(0).connect();
+    consumer.expressInterest(new Name(prefix).append("data"), new OnData() {
+      @Override
+      public void onData(Interest interest, Data data) {
+        received.set(true);
+      }
+    }, new OnTimeout() {
+      @Override
+      public void onTimeout(Interest interest) {
+        received.set(false);
+      }
+    });
+    scheduler.run();
+
+    assertTrue(received.get());
+  }
+
+  @Test
+  public void testRoutesPreferNearestProducer() throws Exception {
+    VirtualScheduler scheduler = new VirtualScheduler();
+    Topology topology = Topology.line(5, new MockForwarder.Options().setScheduler(scheduler), null);
+    Name prefix = new Name("/producer");
+    for (int i = 0; i < topology.size(); i++) {
+      topology.get(i).setStrategy(new Name(), new BestRouteStrategy());
+    }
+
+    AtomicInteger near = new AtomicInteger();
+    AtomicInteger far = new AtomicInteger();
+    produce(topology.get(0).connect(), prefix, near);
+    produce(topology.get(4).connect(), prefix, far);
+    scheduler.run();
+    topology.route(prefix, 0);
+    topology.route(prefix, 4);
+
+    final AtomicBoolean received = new AtomicBoolean(false);
+    Face consumer = topology.get(1).connect();
+    consumer.expressInterest(new Name(prefix).append("data"), new OnData() {
+      @Override
+      public void onData(Interest interest, Data data) {
+        received.set(true);
+      }
+    }, new OnTimeout() {
+      @Override
+      public void onTimeout(Interest interest) {
+        received.set(false);
+      }
+    });
+    scheduler.run();
+
+    assertTrue(received.get());
+    assertEquals(1, near.get());
+    assertEquals(0, far.get());
+  }
+
+  private static void produce(Face face, Name prefix, final AtomicInteger interests) throws Exception {
+    face.registerPrefix(prefix, new OnInterestCallback() {
+      @Override
+      public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId, InterestFilter filter) {
+        interests.incrementAndGet();
+        try {
+          face.putData(new Data(interest.getName()));
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }, new OnRegisterFailed() {
+      @Override
+      public void onRegisterFailed(Name prefix) {
+        throw new IllegalStateException("Failed to register " + prefix);
+      }
+    });
+  }
+}
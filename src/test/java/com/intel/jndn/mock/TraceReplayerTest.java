@@ -0,0 +1,230 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test recording packet traces and replaying them.
+ */
+public class TraceReplayerTest {
+  private Path file;
+  private ManualClock clock;
+  private List<ByteBuffer> replayed;
+  private TraceReplayer.Target target;
+
+  @Before
+  public void setup() throws IOException {
+    file = Files.createTempFile("jndn-mock", ".trace");
+    Files.delete(file);
+    clock = new ManualClock();
+    replayed = new ArrayList<>();
+    target = new TraceReplayer.Target() {
+      @Override
+      public void replay(ByteBuffer block) {
+        replayed.add(block);
+      }
+    };
+  }
+
+  @After
+  public void teardown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void testRecordedBlocksAreReplayedInOrder() throws Exception {
+    MockTransport transport = new MockTransport();
+    try (TraceWriter writer = new TraceWriter(file, clock)) {
+      transport.setTraceWriter(writer);
+      for (int i = 0; i < 100; i++) {
+        transport.receive(block(i, 10 + i * 100));
+      }
+      assertEquals(100, writer.getRecords());
+    }
+
+    try (TraceReplayer replayer = new TraceReplayer(file, new TraceReplayer.Options().setSpeed(0))) {
+      assertEquals(100, replayer.replay(target));
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(block(i, 10 + i * 100), replayed.get(i));
+    }
+  }
+
+  @Test
+  public void testRecordsCrossMappingWindows() throws Exception {
+    try (TraceWriter writer = new TraceWriter(file, clock)) {
+      writer.record(0, TraceWriter.Direction.RECEIVED, block(1, 100));
+      writer.record(0, TraceWriter.Direction.RECEIVED, block(2, 200000));
+      writer.record(0, TraceWriter.Direction.RECEIVED, block(3, 100));
+    }
+
+    TraceReplayer.Options options = new TraceReplayer.Options().setSpeed(0).setWindowSize(150);
+    try (TraceReplayer replayer = new TraceReplayer(file, options)) {
+      assertEquals(3, replayer.replay(target));
+    }
+    assertEquals(block(2, 200000), replayed.get(1));
+    assertEquals(block(3, 100), replayed.get(2));
+  }
+
+  @Test
+  public void testRecordsAreFilteredByDirectionAndFace() throws Exception {
+    MockTransport first = new MockTransport();
+    MockTransport second = new MockTransport();
+    MockTransport.OnSendBlockSignal discard = new MockTransport.OnSendBlockSignal() {
+      @Override
+      public void emit(ByteBuffer buffer) {
+        // only the trace matters
+      }
+    };
+    first.setOnSendBlock(discard);
+    second.setOnSendBlock(discard);
+    try (TraceWriter writer = new TraceWriter(file, clock)) {
+      first.setTraceWriter(writer);
+      second.setTraceWriter(writer);
+      first.send(block(1, 10));
+      first.receive(block(2, 10));
+      second.send(block(3, 10));
+      second.receive(block(4, 10));
+    }
+
+    TraceReplayer.Options options = new TraceReplayer.Options().setSpeed(0)
+        .setDirection(TraceWriter.Direction.SENT).setFace(second.getTraceFace());
+    try (TraceReplayer replayer = new TraceReplayer(file, options)) {
+      assertEquals(1, replayer.replay(target));
+      assertEquals(0, replayer.replay(target));
+      replayer.rewind();
+      assertEquals(1, replayer.replay(target));
+    }
+    assertEquals(block(3, 10), replayed.get(0));
+    assertEquals(block(3, 10), replayed.get(1));
+  }
+
+  @Test
+  public void testAppendedSessionContinuesTimeAndFaces() throws Exception {
+    try (TraceWriter writer = new TraceWriter(file, clock)) {
+      writer.record(writer.newFace(), TraceWriter.Direction.RECEIVED, block(1, 10));
+      clock.advance(100);
+      writer.record(0, TraceWriter.Direction.RECEIVED, block(2, 10));
+    }
+    try (TraceWriter writer = new TraceWriter(file, new ManualClock())) {
+      int face = writer.newFace();
+      assertEquals(1, face);
+      writer.record(face, TraceWriter.Direction.RECEIVED, block(3, 10));
+    }
+
+    try (TraceReplayer replayer = new TraceReplayer(file, new TraceReplayer.Options().setSpeed(0).setFace(0))) {
+      assertEquals(2, replayer.replay(target));
+    }
+    VirtualScheduler scheduler = new VirtualScheduler();
+    try (TraceReplayer replayer = new TraceReplayer(file, new TraceReplayer.Options().setSpeed(1))) {
+      replayer.schedule(target, scheduler);
+      scheduler.run();
+      assertEquals(TimeUnit.MILLISECONDS.toNanos(100), scheduler.nanoTime());
+    }
+    assertEquals(block(3, 10), replayed.get(4));
+  }
+
+  @Test
+  public void testScheduledReplayKeepsScaledTiming() throws Exception {
+    try (TraceWriter writer = new TraceWriter(file, clock)) {
+      writer.record(0, TraceWriter.Direction.RECEIVED, block(1, 10));
+      clock.advance(100);
+      writer.record(0, TraceWriter.Direction.SENT, block(2, 10));
+      clock.advance(100);
+      writer.record(0, TraceWriter.Direction.RECEIVED, block(3, 10));
+    }
+
+    VirtualScheduler scheduler = new VirtualScheduler();
+    try (TraceReplayer replayer = new TraceReplayer(file, new TraceReplayer.Options().setSpeed(2))) {
+      replayer.schedule(target, scheduler);
+      scheduler.runFor(99, TimeUnit.MILLISECONDS);
+      assertEquals(1, replayed.size());
+      scheduler.runFor(1, TimeUnit.MILLISECONDS);
+      assertEquals(2, replayed.size());
+      assertEquals(2, replayer.getReplayed());
+    }
+  }
+
+  @Test
+  public void testWallClockReplayIsPaced() throws Exception {
+    try (TraceWriter writer = new TraceWriter(file, clock)) {
+      writer.record(0, TraceWriter.Direction.RECEIVED, block(1, 10));
+      clock.advance(200);
+      writer.record(0, TraceWriter.Direction.RECEIVED, block(2, 10));
+    }
+
+    long start = System.nanoTime();
+    try (TraceReplayer replayer = new TraceReplayer(file, new TraceReplayer.Options().setSpeed(4))) {
+      assertEquals(2, replayer.replay(target));
+    }
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  @Test
+  public void testTraceIsAppendedTo() throws Exception {
+    try (TraceWriter writer = new TraceWriter(file, clock)) {
+      writer.record(0, TraceWriter.Direction.RECEIVED, block(1, 10));
+    }
+    try (TraceWriter writer = new TraceWriter(file, clock)) {
+      writer.record(0, TraceWriter.Direction.RECEIVED, block(2, 10));
+    }
+
+    try (TraceReplayer replayer = new TraceReplayer(file)) {
+      assertEquals(2, replayer.replay(target));
+    }
+    assertEquals(block(2, 10), replayed.get(1));
+  }
+
+  @Test(expected = IOException.class)
+  public void testOtherFilesAreRejected() throws IOException {
+    Files.write(file, new byte[]{6, 2, 1, 2});
+    new TraceReplayer(file).close();
+  }
+
+  @Test(expected = IOException.class)
+  public void testOversizedRecordLengthIsCorrupt() throws Exception {
+    ByteBuffer trace = ByteBuffer.allocate(TraceWriter.FILE_HEADER_SIZE + TraceWriter.RECORD_HEADER_SIZE + 4);
+    trace.putInt(TraceWriter.MAGIC).putInt(TraceWriter.VERSION);
+    trace.putLong(0).putInt(0).put((byte) 0).putInt(Integer.MAX_VALUE - 1);
+    Files.write(file, trace.array());
+
+    try (TraceReplayer replayer = new TraceReplayer(file)) {
+      replayer.replay(target);
+    }
+  }
+
+  private static ByteBuffer block(int type, int length) {
+    byte[] bytes = new byte[length];
+    bytes[0] = (byte) type;
+    for (int i = 1; i < length; i++) {
+      bytes[i] = (byte) (i * type);
+    }
+    return ByteBuffer.wrap(bytes);
+  }
+}
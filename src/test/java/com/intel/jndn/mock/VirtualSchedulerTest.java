@@ -0,0 +1,112 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test the virtual-time scheduler.
+ */
+public class VirtualSchedulerTest {
+
+  @Test
+  public void testTasksRunInTimeThenSchedulingOrder() {
+    VirtualScheduler scheduler = new VirtualScheduler();
+    List<String> log = new ArrayList<>();
+    scheduler.schedule(record(log, "c"), 30);
+    scheduler.schedule(record(log, "a1"), 10);
+    scheduler.schedule(record(log, "b"), 20);
+    scheduler.schedule(record(log, "a2"), 10);
+
+    assertEquals(4, scheduler.run());
+    assertEquals(Arrays.asList("a1", "a2", "b", "c"), log);
+    assertEquals(30, scheduler.nanoTime());
+  }
+
+  @Test
+  public void testRunUntilStopsAtTime() {
+    VirtualScheduler scheduler = new VirtualScheduler();
+    List<String> log = new ArrayList<>();
+    scheduler.schedule(record(log, "early"), TimeUnit.SECONDS.toNanos(1));
+    scheduler.schedule(record(log, "late"), TimeUnit.HOURS.toNanos(2));
+
+    assertEquals(1, scheduler.runFor(1, TimeUnit.HOURS));
+    assertEquals(TimeUnit.HOURS.toNanos(1), scheduler.nanoTime());
+    assertEquals(1, scheduler.size());
+
+    assertEquals(1, scheduler.runFor(1, TimeUnit.HOURS));
+    assertEquals(0, scheduler.size());
+    assertFalse(scheduler.runNext());
+  }
+
+  @Test
+  public void testTasksScheduledByTasksRunAtTheirTime() {
+    final VirtualScheduler scheduler = new VirtualScheduler();
+    final long[] times = new long[3];
+    scheduler.schedule(new Runnable() {
+      private int count = 0;
+
+      @Override
+      public void run() {
+        times[count++] = scheduler.nanoTime();
+        if (count < times.length) {
+          scheduler.schedule(this, 100);
+        }
+      }
+    }, 100);
+
+    assertEquals(3, scheduler.run());
+    assertEquals(100, times[0]);
+    assertEquals(200, times[1]);
+    assertEquals(300, times[2]);
+  }
+
+  @Test
+  public void testDrivesEmulatedLink() {
+    final VirtualScheduler scheduler = new VirtualScheduler();
+    EmulatedLink link = new EmulatedLink(new EmulatedLink.Options().setScheduler(scheduler)
+        .setDelay(50, TimeUnit.MILLISECONDS).setBandwidth(8000000));
+    final List<Long> arrivals = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      link.send(ByteBuffer.allocate(1000), new EmulatedLink.Receiver() {
+        @Override
+        public void receive(ByteBuffer block) {
+          arrivals.add(TimeUnit.NANOSECONDS.toMillis(scheduler.nanoTime()));
+        }
+      });
+    }
+
+    scheduler.run();
+    assertEquals(Arrays.asList(51L, 52L, 53L), arrivals);
+  }
+
+  private static Runnable record(final List<String> log, final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        log.add(name);
+      }
+    };
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the synthetic workload generator.
+ */
+public class WorkloadTest {
+  @Test
+  public void testZipfFavorsPopularNames() {
+    double[] cumulative = Workload.zipf(1000, 1);
+    assertEquals(1, cumulative[cumulative.length - 1], 1e-9);
+
+    Random random = new Random(0);
+    int[] counts = new int[1000];
+    int draws = 100000;
+    for (int i = 0; i < draws; i++) {
+      counts[Workload.sample(cumulative, random, 1000)]++;
+    }
+    assertEquals(0.1336, (double) counts[0] / draws, 0.01); // 1 / H(1000)
+    assertEquals(counts[0] / 2.0, counts[1], draws * 0.01);
+    assertTrue(counts[999] < counts[0] / 100);
+  }
+
+  @Test
+  public void testUniformDrawsEveryName() {
+    Random random = new Random(0);
+    int[] counts = new int[10];
+    for (int i = 0; i < 10000; i++) {
+      counts[Workload.sample(null, random, 10)]++;
+    }
+    for (int count : counts) {
+      assertEquals(1000, count, 150);
+    }
+  }
+
+  @Test
+  public void testClosedLoopSatisfiesEveryInterest() throws Exception {
+    VirtualScheduler scheduler = new VirtualScheduler();
+    MockForwarder forwarder = new MockForwarder(new MockForwarder.Options().setScheduler(scheduler)
+        .setSigningMode(MockKeyChain.SigningMode.DIGEST_SHA256)
+        .setLink(new EmulatedLink.Options().setDelay(1, TimeUnit.MILLISECONDS)));
+    Workload workload = new Workload(forwarder, new Workload.Options().setConsumers(4).setProducers(2)
+        .setWindow(2).setZipfExponent(0.8).setScheduler(scheduler));
+
+    Workload.Report report = workload.run(1, TimeUnit.SECONDS);
+
+    assertTrue(report.getExpressed() > 100);
+    assertEquals(report.getExpressed(), report.getSatisfied());
+    assertEquals(1.0, report.getSatisfactionRatio(), 0);
+    assertEquals(0, report.getUnanswered());
+    assertTrue(report.getRoundTripTimes().getPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(4));
+  }
+
+  @Test
+  public void testOpenLoopSendsAtFixedRate() throws Exception {
+    VirtualScheduler scheduler = new VirtualScheduler();
+    MockForwarder forwarder = new MockForwarder(new MockForwarder.Options().setScheduler(scheduler)
+        .setSigningMode(MockKeyChain.SigningMode.DIGEST_SHA256));
+    Workload workload = new Workload(forwarder, new Workload.Options().setConsumers(3).setRate(1000)
+        .setScheduler(scheduler));
+
+    Workload.Report report = workload.run(2, TimeUnit.SECONDS);
+
+    assertEquals(2000, report.getExpressed());
+    assertEquals(1000, report.getSendRate(), 0.001);
+    assertEquals(2000, report.getSatisfied());
+  }
+
+  @Test
+  public void testWallClockRun() throws Exception {
+    MockForwarder forwarder = new MockForwarder(new MockForwarder.Options()
+        .setSigningMode(MockKeyChain.SigningMode.DIGEST_SHA256));
+    Workload workload = new Workload(forwarder, new Workload.Options().setConsumers(2).setWindow(4));
+
+    Workload.Report report = workload.run(200, TimeUnit.MILLISECONDS);
+
+    assertTrue(report.getSatisfied() > 0);
+    assertEquals(0, report.getUnanswered());
+    assertEquals(report.getExpressed(), report.getSatisfied() + report.getTimedOut() + report.getNacked());
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.ManualClock;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test content store matching and eviction.
+ */
+public class ContentStoreImplTest {
+  private final ManualClock clock = new ManualClock();
+
+  @Test
+  public void testExactMatch() {
+    ContentStoreImpl cs = new ContentStoreImpl(new LruPolicy(10), clock);
+    cs.insert(WirePacket.wrap(new Data(new Name("/a/b"))));
+
+    assertNotNull(cs.find(WirePacket.wrap(new Interest(new Name("/a/b")))));
+    assertNull(cs.find(WirePacket.wrap(new Interest(new Name("/a")))));
+    assertNull(cs.find(WirePacket.wrap(new Interest(new Name("/a/b/c")))));
+    assertEquals(1, cs.getHits());
+    assertEquals(2, cs.getMisses());
+  }
+
+  @Test
+  public void testCanBePrefix() {
+    ContentStoreImpl cs = new ContentStoreImpl(new LruPolicy(10), clock);
+    cs.insert(WirePacket.wrap(new Data(new Name("/a/b/c"))));
+
+    WirePacket found = cs.find(WirePacket.wrap(new Interest(new Name("/a")).setCanBePrefix(true)));
+    assertNotNull(found);
+    assertEquals(new Name("/a/b/c"), found.getName());
+    assertNull(cs.find(WirePacket.wrap(new Interest(new Name("/a/c")).setCanBePrefix(true))));
+  }
+
+  @Test
+  public void testMustBeFresh() {
+    ContentStoreImpl cs = new ContentStoreImpl(new LruPolicy(10), clock);
+    Data data = new Data(new Name("/a"));
+    data.getMetaInfo().setFreshnessPeriod(100);
+    cs.insert(WirePacket.wrap(data));
+    cs.insert(WirePacket.wrap(new Data(new Name("/b"))));
+
+    assertNotNull(cs.find(WirePacket.wrap(new Interest(new Name("/a")).setMustBeFresh(true))));
+    assertNull(cs.find(WirePacket.wrap(new Interest(new Name("/b")).setMustBeFresh(true))));
+    assertNotNull(cs.find(WirePacket.wrap(new Interest(new Name("/b")).setMustBeFresh(false))));
+
+    clock.advance(200);
+    assertNull(cs.find(WirePacket.wrap(new Interest(new Name("/a")).setMustBeFresh(true))));
+    assertNotNull(cs.find(WirePacket.wrap(new Interest(new Name("/a")).setMustBeFresh(false))));
+  }
+
+  @Test
+  public void testLruEviction() {
+    ContentStoreImpl cs = new ContentStoreImpl(new LruPolicy(2), clock);
+    cs.insert(WirePacket.wrap(new Data(new Name("/a"))));
+    cs.insert(WirePacket.wrap(new Data(new Name("/b"))));
+    cs.find(WirePacket.wrap(new Interest(new Name("/a"))));
+    cs.insert(WirePacket.wrap(new Data(new Name("/c"))));
+
+    assertEquals(2, cs.size());
+    assertEquals(1, cs.getEvictions());
+    assertNotNull(cs.find(WirePacket.wrap(new Interest(new Name("/a")))));
+    assertNull(cs.find(WirePacket.wrap(new Interest(new Name("/b")))));
+  }
+
+  @Test
+  public void testLfuEviction() {
+    ContentStoreImpl cs = new ContentStoreImpl(new LfuPolicy(2), clock);
+    cs.insert(WirePacket.wrap(new Data(new Name("/a"))));
+    cs.insert(WirePacket.wrap(new Data(new Name("/b"))));
+    cs.find(WirePacket.wrap(new Interest(new Name("/b"))));
+    cs.find(WirePacket.wrap(new Interest(new Name("/a"))));
+    cs.find(WirePacket.wrap(new Interest(new Name("/a"))));
+    cs.insert(WirePacket.wrap(new Data(new Name("/c"))));
+
+    assertEquals(1, cs.getEvictions());
+    assertNotNull(cs.find(WirePacket.wrap(new Interest(new Name("/a")))));
+    assertNull(cs.find(WirePacket.wrap(new Interest(new Name("/b")))));
+  }
+
+  @Test
+  public void testArcKeepsFrequentlyUsedEntriesDuringScan() {
+    ContentStoreImpl cs = new ContentStoreImpl(new ArcPolicy(4), clock);
+    cs.insert(WirePacket.wrap(new Data(new Name("/hot"))));
+    cs.find(WirePacket.wrap(new Interest(new Name("/hot"))));
+
+    for (int i = 0; i < 20; i++) {
+      cs.insert(WirePacket.wrap(new Data(new Name("/scan").append("" + i))));
+    }
+
+    assertEquals(4, cs.size());
+    assertNotNull(cs.find(WirePacket.wrap(new Interest(new Name("/hot")))));
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.ManualClock;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.util.Blob;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test dead nonce list membership and expiration.
+ */
+public class DeadNonceListTest {
+  private ManualClock clock;
+  private DeadNonceList deadNonces;
+
+  @Before
+  public void setup() {
+    clock = new ManualClock();
+    deadNonces = new DeadNonceList(clock, 600, 1000, 0.001);
+  }
+
+  @Test
+  public void testRemembersNameAndNonce() {
+    deadNonces.add(new Name("/a/b"), nonce(1));
+
+    assertTrue(deadNonces.has(new Name("/a/b"), nonce(1)));
+    assertFalse(deadNonces.has(new Name("/a/b"), nonce(2)));
+    assertFalse(deadNonces.has(new Name("/a/c"), nonce(1)));
+  }
+
+  @Test
+  public void testIgnoresMissingNonce() {
+    deadNonces.add(new Name("/a/b"), new Blob());
+
+    assertFalse(deadNonces.has(new Name("/a/b"), new Blob()));
+  }
+
+  @Test
+  public void testForgetsAfterLifetime() {
+    deadNonces.add(new Name("/a/b"), nonce(1));
+
+    clock.advance(599);
+    assertTrue(deadNonces.has(new Name("/a/b"), nonce(1)));
+
+    clock.advance(201);
+    assertFalse(deadNonces.has(new Name("/a/b"), nonce(1)));
+  }
+
+  @Test
+  public void testForgetsEverythingAfterLongIdle() {
+    deadNonces.add(new Name("/a/b"), nonce(1));
+
+    clock.advance(60000);
+    assertFalse(deadNonces.has(new Name("/a/b"), nonce(1)));
+    deadNonces.add(new Name("/a/b"), nonce(2));
+    assertTrue(deadNonces.has(new Name("/a/b"), nonce(2)));
+  }
+
+  @Test
+  public void testFalsePositiveRateAtCapacity() {
+    Name name = new Name("/a/b");
+    for (int i = 0; i < 1000; i++) {
+      deadNonces.add(name, nonce(i));
+      clock.advance(1);
+    }
+
+    int falsePositives = 0;
+    for (int i = 1000; i < 101000; i++) {
+      if (deadNonces.has(name, nonce(i))) {
+        falsePositives++;
+      }
+    }
+    assertTrue("False positives: " + falsePositives, falsePositives < 100);
+    assertTrue(deadNonces.getSizeInBytes() < 4096);
+  }
+
+  private static Blob nonce(int nonce) {
+    return new Blob(ByteBuffer.allocate(4).putInt(0, nonce), false);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.MockForwarder;
+import com.intel.jndn.mock.MockTransport;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.RegistrationOptions;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test FIB longest-prefix matching.
+ */
+public class FibImplTest {
+  private final FibImpl fib = new FibImpl();
+
+  @Test
+  public void testMatchesAllInheritingPrefixes() {
+    add("/", new RegistrationOptions());
+    add("/a", new RegistrationOptions());
+    add("/a/b", new RegistrationOptions());
+    add("/a/c", new RegistrationOptions());
+
+    List<MockForwarder.FibEntry> found = fib.find(new Interest(new Name("/a/b/c/d")));
+
+    assertEquals(3, found.size());
+    assertEquals(new Name("/a/b"), found.get(0).getPrefix());
+    assertEquals(new Name("/a"), found.get(1).getPrefix());
+    assertEquals(new Name("/"), found.get(2).getPrefix());
+  }
+
+  @Test
+  public void testStopsAtNonInheritingPrefix() {
+    add("/a", new RegistrationOptions());
+    add("/a/b", new RegistrationOptions().setChildInherit(false));
+
+    List<MockForwarder.FibEntry> found = fib.find(new Interest(new Name("/a/b/c")));
+
+    assertEquals(1, found.size());
+    assertEquals(new Name("/a/b"), found.get(0).getPrefix());
+  }
+
+  @Test
+  public void testStopsAtCapturingPrefix() {
+    add("/a", new RegistrationOptions());
+    add("/a/b", new RegistrationOptions().setCapture(true));
+
+    List<MockForwarder.FibEntry> found = fib.find(new Interest(new Name("/a/b")));
+
+    assertEquals(1, found.size());
+    assertEquals(new Name("/a/b"), found.get(0).getPrefix());
+  }
+
+  @Test
+  public void testNoMatch() {
+    add("/a/b", new RegistrationOptions());
+
+    assertEquals(0, fib.find(new Interest(new Name("/a"))).size());
+    assertEquals(0, fib.find(new Interest(new Name("/b/a"))).size());
+  }
+
+  @Test
+  public void testKeepsOneEntryPerNextHop() {
+    MockTransport first = new MockTransport();
+    MockTransport second = new MockTransport();
+    fib.add(new ClientFibEntry(new Name("/a"), first, new RegistrationOptions(), 10));
+    fib.add(new ClientFibEntry(new Name("/a"), second, new RegistrationOptions(), 20));
+    fib.add(new ClientFibEntry(new Name("/a"), first, new RegistrationOptions(), 5));
+
+    List<MockForwarder.FibEntry> found = fib.find(new Interest(new Name("/a/b")));
+
+    assertEquals(2, found.size());
+    assertEquals(first, found.get(0).getNextHop());
+    assertEquals(5, found.get(0).getCost());
+    assertEquals(second, found.get(1).getNextHop());
+    assertEquals(20, found.get(1).getCost());
+  }
+
+  private void add(String prefix, RegistrationOptions flags) {
+    fib.add(new ClientFibEntry(new Name(prefix), new MockTransport(), flags));
+  }
+}
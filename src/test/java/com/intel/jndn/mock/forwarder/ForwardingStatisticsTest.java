@@ -0,0 +1,117 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.MockTransport;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.RegistrationOptions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test attribution of forwarding counters to faces and FIB prefixes.
+ */
+public class ForwardingStatisticsTest {
+  private FibImpl fib;
+  private MockTransport face;
+  private ForwardingStatistics statistics;
+
+  @Before
+  public void setup() {
+    fib = new FibImpl();
+    face = new MockTransport();
+    fib.add(new ClientFibEntry(new Name("/a"), face, new RegistrationOptions()));
+    fib.add(new ClientFibEntry(new Name("/a/b"), face, new RegistrationOptions()));
+    statistics = new ForwardingStatistics();
+  }
+
+  @Test
+  public void testEventsAreCountedOnLongestPrefix() {
+    statistics.record(ForwardingCounters.Counter.IN_INTERESTS, face, route(new Name("/a/b/c")));
+    statistics.record(ForwardingCounters.Counter.IN_INTERESTS, face, route(new Name("/a/x")));
+    statistics.record(ForwardingCounters.Counter.IN_INTERESTS, null, route(new Name("/z")));
+
+    assertEquals(3, statistics.getTotals().getInInterests());
+    assertEquals(2, statistics.getFace(face).getInInterests());
+    assertEquals(1, statistics.getPrefix(new Name("/a/b")).getInInterests());
+    assertEquals(1, statistics.getPrefix(new Name("/a")).getInInterests());
+    assertEquals(2, statistics.getPrefixes().size());
+    assertNull(route(new Name("/z")));
+  }
+
+  @Test
+  public void testCountersAreKeptApart() {
+    ForwardingCounters prefix = route(new Name("/a/b"));
+    statistics.record(ForwardingCounters.Counter.IN_DATA, face, prefix);
+    statistics.record(ForwardingCounters.Counter.OUT_DATA, face, prefix);
+    statistics.record(ForwardingCounters.Counter.OUT_DATA, face, prefix);
+
+    assertEquals(0, prefix.getInInterests());
+    assertEquals(1, prefix.getInData());
+    assertEquals(2, prefix.getOutData());
+    assertEquals(2, statistics.getTotals().get(ForwardingCounters.Counter.OUT_DATA));
+  }
+
+  @Test
+  public void testListenerIsToldAboutNewCounters() {
+    final List<Object> added = new ArrayList<>();
+    statistics.setListener(new ForwardingStatistics.Listener() {
+      @Override
+      public void faceAdded(Object face, ForwardingCounters counters) {
+        added.add(face);
+      }
+
+      @Override
+      public void faceRemoved(Object face, ForwardingCounters counters) {
+        added.remove(face);
+      }
+
+      @Override
+      public void prefixAdded(Name prefix, ForwardingCounters counters) {
+        added.add(prefix);
+      }
+    });
+
+    statistics.record(ForwardingCounters.Counter.CS_HITS, face, route(new Name("/a/b")));
+    statistics.record(ForwardingCounters.Counter.CS_HITS, face, route(new Name("/a/b")));
+
+    assertEquals(2, added.size());
+    assertEquals(new Name("/a/b"), added.get(0));
+    assertSame(face, added.get(1));
+  }
+
+  @Test
+  public void testRemovedFaceIsNoLongerCounted() {
+    statistics.record(ForwardingCounters.Counter.IN_INTERESTS, face, null);
+    statistics.removeFace(face);
+    statistics.record(ForwardingCounters.Counter.UNSATISFIED_INTERESTS, face, null);
+
+    assertNull(statistics.getFace(face));
+    assertEquals(0, statistics.getFaces().size());
+    assertEquals(1, statistics.getTotals().getUnsatisfiedInterests());
+  }
+
+  private ForwardingCounters route(Name name) {
+    return statistics.route(fib.find(new Interest(name)));
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.ManualClock;
+import com.intel.jndn.mock.MockForwarder;
+import com.intel.jndn.mock.MockTransport;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.util.Blob;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test PIT entry expiration and interest aggregation.
+ */
+public class PitImplTest {
+  private ManualClock clock;
+  private PitImpl pit;
+
+  @Before
+  public void setup() {
+    clock = new ManualClock();
+    pit = new PitImpl(clock);
+  }
+
+  @Test
+  public void testEntryExpiresAfterInterestLifetime() {
+    Interest interest = new Interest(new Name("/a/b")).setInterestLifetimeMilliseconds(100);
+    pit.add(new PitEntryImpl(interest, new MockTransport()));
+    assertTrue(pit.has(interest));
+
+    clock.advance(50);
+    assertTrue(pit.has(interest));
+    assertEquals(0, pit.getExpirations());
+
+    clock.advance(100);
+    assertFalse(pit.has(interest));
+    assertEquals(1, pit.getExpirations());
+    assertEquals(0, pit.size());
+  }
+
+  @Test
+  public void testExtractedEntriesDoNotExpire() {
+    Interest interest = new Interest(new Name("/a/b")).setInterestLifetimeMilliseconds(100);
+    pit.add(new PitEntryImpl(interest, new MockTransport()));
+
+    assertEquals(1, pit.extract(new Name("/a/b/c")).size());
+    assertEquals(0, pit.size());
+
+    clock.advance(1000);
+    assertEquals(0, pit.expire());
+    assertEquals(0, pit.getExpirations());
+  }
+
+  @Test
+  public void testExpirationAfterManyRevolutions() {
+    for (int i = 0; i < 1000; i++) {
+      Interest interest = new Interest(new Name("/a").append("" + i)).setInterestLifetimeMilliseconds(i * 10 + 5);
+      pit.add(new PitEntryImpl(interest, new MockTransport()));
+    }
+    assertEquals(1000, pit.size());
+
+    clock.advance(5000);
+    assertEquals(500, pit.expire());
+
+    clock.advance(60000);
+    assertEquals(500, pit.expire());
+    assertEquals(1000, pit.getExpirations());
+    assertEquals(0, pit.size());
+  }
+
+  @Test
+  public void testTablesWithoutInsertUseHasAndAdd() {
+    final List<MockForwarder.PitEntry> added = new ArrayList<>();
+    MockForwarder.Pit table = new MockForwarder.Pit() {
+      @Override
+      public void add(MockForwarder.PitEntry entry) {
+        added.add(entry);
+      }
+
+      @Override
+      public boolean has(Interest interest) {
+        return !added.isEmpty();
+      }
+
+      @Override
+      public Collection<MockForwarder.PitEntry> extract(Name name) {
+        return added;
+      }
+    };
+
+    assertEquals(MockForwarder.Pit.Insertion.NEW, table.insert(interest("/a/b", 1, 100), new MockTransport()));
+    assertEquals(MockForwarder.Pit.Insertion.AGGREGATED, table.insert(interest("/a/b", 2, 100), new MockTransport()));
+    assertEquals(1, added.size());
+    assertEquals(new Name("/a/b"), added.get(0).getPacket().getName());
+  }
+
+  @Test
+  public void testAggregatesInterestsFromDifferentFaces() {
+    MockTransport first = new MockTransport();
+    MockTransport second = new MockTransport();
+
+    assertEquals(MockForwarder.Pit.Insertion.NEW, pit.insert(interest("/a/b", 1, 100), first));
+    assertEquals(MockForwarder.Pit.Insertion.AGGREGATED, pit.insert(interest("/a/b", 2, 100), second));
+
+    assertEquals(1, pit.size());
+    assertEquals(2, pit.get(interest("/a/b", 3, 100)).getInRecords().size());
+    assertEquals(1, pit.extract(new Name("/a/b")).size());
+  }
+
+  @Test
+  public void testDifferentSelectorsAreNotAggregated() {
+    MockTransport face = new MockTransport();
+    Interest interest = new Interest(new Name("/a/b")).setCanBePrefix(true);
+
+    assertEquals(MockForwarder.Pit.Insertion.NEW, pit.insert(interest("/a/b", 1, 100), face));
+    assertEquals(MockForwarder.Pit.Insertion.NEW, pit.insert(WirePacket.wrap(interest), face));
+    assertEquals(2, pit.size());
+  }
+
+  @Test
+  public void testRetransmissionFromSameFace() {
+    MockTransport face = new MockTransport();
+
+    assertEquals(MockForwarder.Pit.Insertion.NEW, pit.insert(interest("/a/b", 1, 100), face));
+    assertEquals(MockForwarder.Pit.Insertion.RETRANSMITTED, pit.insert(interest("/a/b", 2, 100), face));
+
+    PitEntryImpl entry = pit.get(interest("/a/b", 3, 100));
+    assertEquals(1, entry.getInRecords().size());
+    assertEquals(nonce(2), entry.getInRecords().get(0).getNonce());
+  }
+
+  @Test
+  public void testLoopedNonceIsDetected() {
+    MockTransport downstream = new MockTransport();
+    MockTransport other = new MockTransport();
+    WirePacket interest = interest("/a/b", 1, 100);
+
+    pit.insert(interest, downstream);
+    pit.addOutRecord(interest, "upstream");
+
+    assertEquals(MockForwarder.Pit.Insertion.LOOPED, pit.insert(interest("/a/b", 1, 100), other));
+    assertEquals(1, pit.getDuplicateNonces());
+    assertEquals(1, pit.get(interest).getOutRecords().size());
+    assertEquals(1, pit.get(interest).getInRecords().size());
+  }
+
+  @Test
+  public void testAggregationExtendsEntryLifetime() {
+    MockTransport first = new MockTransport();
+    MockTransport second = new MockTransport();
+    pit.insert(interest("/a/b", 1, 100), first);
+    clock.advance(50);
+    pit.insert(interest("/a/b", 2, 100), second);
+
+    clock.advance(70);
+    assertTrue(pit.has(interest("/a/b", 3, 100)));
+    PitEntryImpl entry = (PitEntryImpl) pit.extract(new Name("/a/b")).get(0);
+    assertEquals(1, entry.getInRecords().size());
+    assertEquals(second, entry.getInRecords().get(0).getFace());
+
+    pit.insert(interest("/a/b", 4, 100), first);
+    clock.advance(200);
+    assertNull(pit.get(interest("/a/b", 5, 100)));
+    assertEquals(1, pit.getExpirations());
+  }
+
+  @Test
+  public void testForwardedNonceIsRememberedAfterEntryIsGone() {
+    MockTransport downstream = new MockTransport();
+    WirePacket interest = interest("/a/b", 1, 100);
+    pit.insert(interest, downstream);
+    pit.addOutRecord(interest, "upstream");
+    pit.extract(new Name("/a/b"));
+
+    assertEquals(MockForwarder.Pit.Insertion.LOOPED, pit.insert(interest("/a/b", 1, 100), new MockTransport()));
+    assertEquals(MockForwarder.Pit.Insertion.NEW, pit.insert(interest("/a/b", 2, 100), downstream));
+    assertEquals(1, pit.getDeadNonceHits());
+    assertEquals(0, pit.getDuplicateNonces());
+  }
+
+  @Test
+  public void testUpstreamsAreListedLeastRecentlyForwardedFirst() {
+    WirePacket interest = interest("/a/b", 1, 100);
+    pit.insert(interest, new MockTransport());
+    assertTrue(pit.getUpstreams(interest).isEmpty());
+
+    pit.addOutRecord(interest, "first");
+    pit.addOutRecord(interest, "second");
+    pit.addOutRecord(interest, "first");
+
+    assertEquals(Arrays.<Object>asList("second", "first"), pit.getUpstreams(interest));
+  }
+
+  @Test
+  public void testExpiryIsCountedOnPrefixOfEntry() {
+    ForwardingStatistics statistics = new ForwardingStatistics();
+    pit.setStatistics(statistics);
+    ForwardingCounters prefix = statistics.prefix(new Name("/a"));
+    MockTransport first = new MockTransport();
+    MockTransport second = new MockTransport();
+    pit.insert(interest("/a/b", 1, 100), first, prefix);
+    pit.insert(interest("/a/b", 2, 100), second, null);
+
+    clock.advance(200);
+    assertEquals(1, pit.expire());
+
+    assertEquals(2, prefix.getUnsatisfiedInterests());
+    assertEquals(1, statistics.getFace(second).getUnsatisfiedInterests());
+  }
+
+  private static WirePacket interest(String name, int nonce, int lifetimeMs) {
+    return WirePacket.wrap(new Interest(new Name(name)).setNonce(nonce(nonce))
+        .setInterestLifetimeMilliseconds(lifetimeMs));
+  }
+
+  private static Blob nonce(int nonce) {
+    return new Blob(new byte[]{0, 0, 0, (byte) nonce});
+  }
+}
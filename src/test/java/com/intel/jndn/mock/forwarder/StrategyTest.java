@@ -0,0 +1,175 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import com.intel.jndn.mock.ManualClock;
+import com.intel.jndn.mock.MockForwarder;
+import com.intel.jndn.mock.MockTransport;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.RegistrationOptions;
+import net.named_data.jndn.transport.Transport;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test next hop selection by the forwarding strategies.
+ */
+public class StrategyTest {
+  private final MockTransport source = new MockTransport();
+
+  @Test
+  public void testMulticastForwardsToAll() {
+    CountingEntry a = new CountingEntry(1);
+    CountingEntry b = new CountingEntry(2);
+
+    new MulticastStrategy().afterReceiveInterest(interest("/a"), hops(a, b), source);
+
+    assertEquals(1, a.count);
+    assertEquals(1, b.count);
+  }
+
+  @Test
+  public void testBestRouteRetriesNextCheapestHop() {
+    BestRouteStrategy strategy = new BestRouteStrategy();
+    CountingEntry expensive = new CountingEntry(20);
+    CountingEntry cheap = new CountingEntry(10);
+    WirePacket interest = interest("/a");
+
+    strategy.afterReceiveInterest(interest, hops(expensive, cheap), source);
+    assertEquals(1, cheap.count);
+    assertEquals(0, expensive.count);
+
+    strategy.afterReceiveInterest(interest, hops(expensive, cheap), source, upstreams(cheap));
+    assertEquals(1, expensive.count);
+
+    strategy.afterReceiveInterest(interest, hops(expensive, cheap), source, upstreams(cheap, expensive));
+    assertEquals(2, cheap.count);
+
+    strategy.afterReceiveInterest(interest, hops(expensive, cheap), source, upstreams(expensive, cheap));
+    assertEquals(2, expensive.count);
+  }
+
+  @Test
+  public void testBestRouteSendsNewInterestsToCheapestHop() {
+    BestRouteStrategy strategy = new BestRouteStrategy();
+    CountingEntry cheap = new CountingEntry(10);
+    CountingEntry expensive = new CountingEntry(20);
+    WirePacket interest = interest("/a");
+
+    strategy.afterReceiveInterest(interest, hops(cheap, expensive), source);
+    strategy.afterReceiveInterest(interest, hops(cheap, expensive), source, upstreams());
+
+    assertEquals(2, cheap.count);
+    assertEquals(0, expensive.count);
+  }
+
+  @Test
+  public void testWeightedLoadBalancingFavorsCheapHops() {
+    LoadBalanceStrategy strategy = new LoadBalanceStrategy(LoadBalanceStrategy.Mode.WEIGHTED, new ManualClock(),
+        new Random(1));
+    CountingEntry cheap = new CountingEntry(0);
+    CountingEntry expensive = new CountingEntry(3);
+
+    for (int i = 0; i < 1000; i++) {
+      strategy.afterReceiveInterest(interest("/a/" + i), hops(cheap, expensive), source);
+    }
+
+    assertEquals(1000, cheap.count + expensive.count);
+    assertTrue(cheap.count > 700 && cheap.count < 900); // weights 1 and 1/4
+  }
+
+  @Test
+  public void testRttLoadBalancingPrefersFasterHop() {
+    ManualClock clock = new ManualClock();
+    LoadBalanceStrategy strategy = new LoadBalanceStrategy(LoadBalanceStrategy.Mode.RTT, clock, new Random(1));
+    CountingEntry slow = new CountingEntry(0);
+    CountingEntry fast = new CountingEntry(0);
+
+    for (int i = 0; i < 200; i++) {
+      WirePacket interest = interest("/a/" + i);
+      PitEntryImpl entry = new PitEntryImpl(interest, source);
+      int slowBefore = slow.count;
+      strategy.afterReceiveInterest(interest, hops(slow, fast), source);
+      boolean slowChosen = slow.count > slowBefore;
+      entry.addOutRecord(slowChosen ? slow : fast, interest.getNonce(), clock.nanoTime());
+      clock.advance(slowChosen ? 50 : 5);
+      strategy.beforeSatisfyInterest(entry, null);
+    }
+
+    assertTrue(strategy.getSmoothedRtt(slow) > strategy.getSmoothedRtt(fast));
+    assertTrue(fast.count > 180);
+  }
+
+  private static WirePacket interest(String name) {
+    return WirePacket.wrap(new Interest(new Name(name)));
+  }
+
+  private static List<MockForwarder.FibEntry> hops(MockForwarder.FibEntry... entries) {
+    return Arrays.asList(entries);
+  }
+
+  private static List<Object> upstreams(MockForwarder.FibEntry... entries) {
+    List<Object> upstreams = new ArrayList<>();
+    for (MockForwarder.FibEntry entry : entries) {
+      upstreams.add(entry.getNextHop());
+    }
+    return upstreams;
+  }
+
+  /**
+   * FIB entry recording how often it was chosen.
+   */
+  private static final class CountingEntry implements MockForwarder.FibEntry {
+    private final int cost;
+    private int count;
+
+    CountingEntry(int cost) {
+      this.cost = cost;
+    }
+
+    @Override
+    public void forward(Interest interest, Transport sourceTransport) {
+      count++;
+    }
+
+    @Override
+    public void forward(WirePacket interest, Transport sourceTransport) {
+      count++;
+    }
+
+    @Override
+    public Name getPrefix() {
+      return new Name("/a");
+    }
+
+    @Override
+    public RegistrationOptions getFlags() {
+      return new RegistrationOptions();
+    }
+
+    @Override
+    public int getCost() {
+      return cost;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * jndn-mock
+ * Copyright (c) 2016, Intel Corporation.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms and conditions of the GNU Lesser General Public License,
+ * version 3, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ */
+
+package com.intel.jndn.mock.forwarder;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.util.Blob;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that forwarded packets share their original wire encoding.
+ */
+public class WirePacketTest {
+
+  @Test
+  public void testDecodedInterestKeepsWire() throws Exception {
+    ByteBuffer encoded = new Interest(new Name("/a/b")).setInterestLifetimeMilliseconds(1000).wireEncode().buf();
+    WirePacket packet = WirePacket.decode(encoded);
+
+    assertTrue(packet.isInterest());
+    assertEquals(new Name("/a/b"), packet.getName());
+    assertEquals(1000, packet.getInterestLifetime(), 0.0);
+
+    ByteBuffer wire = packet.wire();
+    assertTrue(wire.isReadOnly());
+    assertEquals(encoded, wire);
+  }
+
+  @Test
+  public void testDuplicatesAreIndependent() throws Exception {
+    Data data = new Data(new Name("/a")).setContent(new Blob("..."));
+    WirePacket packet = WirePacket.decode(data.wireEncode().buf());
+
+    ByteBuffer first = packet.wire();
+    first.position(first.limit());
+    ByteBuffer second = packet.wire();
+
+    assertEquals(0, first.remaining());
+    assertEquals(data.wireEncode().size(), second.remaining());
+    assertEquals(new Name("/a"), packet.getData().getName());
+  }
+
+  @Test
+  public void testInterestFieldsReadFromWire() throws Exception {
+    byte[] encoded = {
+        0x05, 0x13,
+        0x07, 0x03, 0x08, 0x01, 'a',
+        0x21, 0x00,
+        0x12, 0x00,
+        0x0A, 0x04, 0x01, 0x02, 0x03, 0x04,
+        0x0C, 0x02, 0x03, (byte) 0xE8
+    };
+    WirePacket packet = WirePacket.decode(ByteBuffer.wrap(encoded));
+
+    assertTrue(packet.isInterest());
+    assertTrue(packet.getCanBePrefix());
+    assertTrue(packet.getMustBeFresh());
+    assertEquals(4, packet.getNonce().size());
+    assertEquals(1000, packet.getInterestLifetime(), 0.0);
+  }
+
+  @Test
+  public void testDataFreshnessReadFromWire() throws Exception {
+    byte[] encoded = {
+        0x06, 0x0E,
+        0x07, 0x03, 0x08, 0x01, 'a',
+        0x14, 0x03, 0x19, 0x01, 0x64,
+        0x15, 0x02, 'h', 'i'
+    };
+    WirePacket packet = WirePacket.decode(ByteBuffer.wrap(encoded));
+
+    assertTrue(packet.isData());
+    assertFalse(packet.getCanBePrefix());
+    assertEquals(100, packet.getFreshnessPeriod(), 0.0);
+  }
+
+  @Test(expected = EncodingException.class)
+  public void testTruncatedPacketIsRejected() throws Exception {
+    byte[] encoded = {0x05, 0x13, 0x07, 0x03, 0x08};
+    WirePacket.decode(ByteBuffer.wrap(encoded));
+  }
+
+  @Test(expected = EncodingException.class)
+  public void testNegativeLengthIsRejected() throws Exception {
+    byte[] encoded = {0x05, (byte) 0xff, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0x02, 0x07, 0x00};
+    WirePacket.decode(ByteBuffer.wrap(encoded));
+  }
+}